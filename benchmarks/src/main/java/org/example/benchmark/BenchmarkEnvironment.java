@@ -0,0 +1,151 @@
+package org.example.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import org.example.migration.MigrationTableManager;
+import org.example.util.ConnectionManager;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+/**
+ * Общее окружение бенчмарков: конфигурация инструмента, встроенная база H2 в режиме совместимости
+ * с PostgreSQL и генерация синтетических каталогов миграций.
+ * Конфигурация записывается во временный файл и подключается через системное свойство
+ * {@code migrations.config} до первого обращения к инструменту.
+ */
+final class BenchmarkEnvironment {
+    static final long FIRST_VERSION = 20_000_000_000_000L;
+
+    private static final String DB_URL =
+            "jdbc:h2:mem:migrations;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1";
+    private static boolean initialized;
+
+    private BenchmarkEnvironment() {
+    }
+
+    /**
+     * Записывает конфигурацию инструмента и понижает уровень логирования, чтобы вывод в лог не искажал замеры.
+     */
+    static synchronized void init() {
+        if (initialized) {
+            return;
+        }
+        try {
+            Path configFile = Files.createTempFile("migrations-benchmark", ".properties");
+            configFile.toFile().deleteOnExit();
+
+            Properties properties = new Properties();
+            properties.setProperty("db.url", DB_URL);
+            properties.setProperty("db.username", "sa");
+            properties.setProperty("db.password", "");
+            properties.setProperty("db.driver", "org.h2.Driver");
+            properties.setProperty("migration.path", configFile.getParent().toString());
+            properties.setProperty("migration.lock.enabled", "false");
+            try (Writer writer = Files.newBufferedWriter(configFile)) {
+                properties.store(writer, "Benchmark configuration");
+            }
+            System.setProperty("migrations.config", configFile.toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+        initialized = true;
+    }
+
+    /**
+     * Создаёт временный каталог с синтетическими миграциями.
+     *
+     * @param count              Количество файлов.
+     * @param statementsPerFile  Количество операторов {@code INSERT} в каждом файле.
+     * @return Отсортированный список созданных файлов.
+     */
+    static List<Path> createMigrationDirectory(int count, int statementsPerFile) throws IOException {
+        Path directory = Files.createTempDirectory("migrations-benchmark");
+        for (int i = 0; i < count; i++) {
+            StringBuilder content = new StringBuilder();
+            for (int j = 0; j < statementsPerFile; j++) {
+                content.append("INSERT INTO bench_rows (id, payload) VALUES (")
+                        .append((long) i * statementsPerFile + j).append(", 'payload ").append(j).append("');\n");
+            }
+            Files.writeString(directory.resolve((FIRST_VERSION + i) + "_migration_" + i + ".sql"), content);
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".sql")).sorted().toList();
+        }
+    }
+
+    /**
+     * Удаляет все объекты базы данных и заново создаёт таблицу миграций и таблицу для данных бенчмарков.
+     */
+    static void resetDatabase() throws SQLException {
+        try (Connection connection = ConnectionManager.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+            statement.execute("CREATE TABLE bench_rows (id BIGINT PRIMARY KEY, payload VARCHAR(255))");
+        }
+        MigrationTableManager.ensureMigrationTableExists();
+    }
+
+    /**
+     * Отмечает файлы как применённые миграции.
+     *
+     * @param files Файлы миграций.
+     */
+    static void markApplied(List<Path> files) throws SQLException {
+        try (Connection connection = ConnectionManager.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "INSERT INTO applied_migrations (file_name, version) VALUES (?, ?)")) {
+            connection.setAutoCommit(false);
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                statement.setString(1, fileName);
+                statement.setLong(2, Long.parseLong(fileName.substring(0, 14)));
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            connection.commit();
+        }
+    }
+
+    /**
+     * Выполняет произвольный SQL-оператор в отдельном соединении.
+     *
+     * @param sql SQL-оператор.
+     */
+    static void execute(String sql) throws SQLException {
+        try (Connection connection = ConnectionManager.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    /**
+     * Рекурсивно удаляет каталог.
+     *
+     * @param directory Каталог.
+     */
+    static void deleteDirectory(Path directory) throws IOException {
+        if (directory == null || !Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
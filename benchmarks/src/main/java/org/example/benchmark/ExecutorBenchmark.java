@@ -0,0 +1,67 @@
+package org.example.benchmark;
+
+import org.example.migration.MigrationExecutor;
+import org.example.migration.MigrationFile;
+import org.example.migration.TransactionMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность {@link MigrationExecutor#executeMigrations(List)} в операторах в секунду
+ * на миграции из {@value #STATEMENTS} операторов {@code INSERT} при разном размере пакета.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExecutorBenchmark {
+    static final int STATEMENTS = 10_000;
+
+    @Param({"1", "100", "1000"})
+    private int batchSize;
+
+    private MigrationExecutor executor;
+    private List<MigrationFile> migrations;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        BenchmarkEnvironment.init();
+        BenchmarkEnvironment.resetDatabase();
+
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < STATEMENTS; i++) {
+            content.append("INSERT INTO bench_rows (id, payload) VALUES (").append(i).append(", 'payload ").append(i).append("');\n");
+        }
+        migrations = List.of(new MigrationFile(BenchmarkEnvironment.FIRST_VERSION + "_bulk_insert.sql", content.toString()));
+        executor = new MigrationExecutor(batchSize, TransactionMode.ALL, 1);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTables() throws SQLException {
+        BenchmarkEnvironment.execute("DELETE FROM bench_rows");
+        BenchmarkEnvironment.execute("DELETE FROM applied_migrations");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STATEMENTS)
+    public void executeMigrations() {
+        executor.executeMigrations(migrations);
+    }
+}
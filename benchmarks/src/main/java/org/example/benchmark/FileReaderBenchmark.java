@@ -0,0 +1,63 @@
+package org.example.benchmark;
+
+import org.example.migration.MigrationFile;
+import org.example.migration.MigrationFileReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время сканирования и чтения каталога миграций {@link MigrationFileReader} в зависимости от количества файлов.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileReaderBenchmark {
+
+    @Param({"100", "1000", "10000", "50000"})
+    private int fileCount;
+
+    private Path directory;
+    private MigrationFileReader reader;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        BenchmarkEnvironment.init();
+        List<Path> files = BenchmarkEnvironment.createMigrationDirectory(fileCount, 5);
+        directory = files.get(0).getParent();
+        reader = new MigrationFileReader(directory.toString(), 4, 8 * 1024 * 1024);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkEnvironment.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public List<Path> scanMigrationFiles() throws IOException {
+        return reader.scanMigrationFiles();
+    }
+
+    @Benchmark
+    public List<MigrationFile> readMigrationFiles() throws IOException {
+        return reader.readMigrationFiles();
+    }
+}
@@ -0,0 +1,87 @@
+package org.example.benchmark;
+
+import org.example.config.ConfigurationLoader;
+import org.example.config.MigrationConfig;
+import org.example.migration.MigrationFile;
+import org.example.migration.MigrationFileReader;
+import org.example.migration.MigrationManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время поиска ожидающих миграций {@link MigrationManager#getPendingMigrations()} при длинной истории
+ * применённых миграций. Параметр {@code manifest} сравнивает холодный запуск (манифест контрольных сумм
+ * удаляется перед каждым вызовом, и все применённые файлы хэшируются) с тёплым, когда файлы только проверяются
+ * по размеру и времени изменения.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PendingMigrationsBenchmark {
+    private static final int PENDING = 10;
+
+    @Param({"1000", "10000", "50000"})
+    private int history;
+
+    @Param({"cold", "warm"})
+    private String manifest;
+
+    private Path directory;
+    private MigrationFileReader reader;
+    private MigrationManager manager;
+    private MigrationConfig config;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException {
+        BenchmarkEnvironment.init();
+        List<Path> files = BenchmarkEnvironment.createMigrationDirectory(history + PENDING, 5);
+        directory = files.get(0).getParent();
+        reader = new MigrationFileReader(directory.toString(), 4, 8 * 1024 * 1024);
+        config = ConfigurationLoader.getInstance().getConfig().toBuilder()
+                .manifestPath(directory.resolve(".migrations-manifest").toString())
+                .build();
+
+        BenchmarkEnvironment.resetDatabase();
+        BenchmarkEnvironment.markApplied(files.subList(0, history));
+        new MigrationManager(reader, config).getPendingMigrations();
+    }
+
+    @Setup(Level.Invocation)
+    public void prepareInvocation() throws IOException {
+        if (manifest.equals("cold")) {
+            Files.deleteIfExists(directory.resolve(".migrations-manifest"));
+        }
+        manager = new MigrationManager(reader, config);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkEnvironment.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public List<MigrationFile> getPendingMigrations() throws IOException {
+        return manager.getPendingMigrations();
+    }
+}
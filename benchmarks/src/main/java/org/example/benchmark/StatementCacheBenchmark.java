@@ -0,0 +1,109 @@
+package org.example.benchmark;
+
+import org.example.config.ConfigurationLoader;
+import org.example.config.MigrationConfig;
+import org.example.migration.MigrationExecutor;
+import org.example.migration.MigrationFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность выполнения миграции из {@value #STATEMENTS} операторов трёх повторяющихся форм
+ * ({@code INSERT}, {@code UPDATE} и {@code DELETE}, отличающихся только литералами) с кэшем подготовленных
+ * запросов и без него ({@code migration.statement.cache.size = 0}).
+ * Операторы идут либо сериями одной формы ({@code runs}), либо чередуются ({@code interleaved}).
+ * <p>
+ * Бенчмарк работает с H2, у которого нет серверных именованных запросов, поэтому он показывает только
+ * стоимость пакетирования и разбора на стороне клиента. Эффект {@code migration.prepare.threshold}
+ * (разбор и планирование на сервере PostgreSQL) им не измеряется и пока не измерен.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatementCacheBenchmark {
+    static final int STATEMENTS = 9_999;
+
+    @Param({"0", "256"})
+    private int statementCacheSize;
+
+    @Param({"runs", "interleaved"})
+    private String layout;
+
+    private MigrationExecutor executor;
+    private List<MigrationFile> migrations;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        BenchmarkEnvironment.init();
+        BenchmarkEnvironment.resetDatabase();
+
+        int rows = STATEMENTS / 3;
+        StringBuilder content = new StringBuilder();
+        if (layout.equals("runs")) {
+            for (int i = 0; i < rows; i++) {
+                appendInsert(content, i);
+            }
+            for (int i = 0; i < rows; i++) {
+                appendUpdate(content, i);
+            }
+            for (int i = 0; i < rows; i++) {
+                appendDelete(content, i);
+            }
+        } else {
+            for (int i = 0; i < rows; i++) {
+                appendInsert(content, i);
+                appendUpdate(content, i);
+                appendDelete(content, i);
+            }
+        }
+        migrations = List.of(new MigrationFile(BenchmarkEnvironment.FIRST_VERSION + "_repeated_shapes.sql", content.toString()));
+
+        MigrationConfig config = ConfigurationLoader.getInstance().getConfig().toBuilder()
+                .batchSize(1000)
+                .statementCacheSize(statementCacheSize)
+                .build();
+        executor = new MigrationExecutor(config);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTables() throws SQLException {
+        BenchmarkEnvironment.execute("DELETE FROM bench_rows");
+        BenchmarkEnvironment.execute("DELETE FROM applied_migrations");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STATEMENTS)
+    public void executeMigrations() {
+        executor.executeMigrations(migrations);
+    }
+
+    private static void appendInsert(StringBuilder content, int id) {
+        content.append("INSERT INTO bench_rows (id, payload) VALUES (").append(id).append(", 'payload ").append(id).append("');\n");
+    }
+
+    private static void appendUpdate(StringBuilder content, int id) {
+        content.append("UPDATE bench_rows SET payload = 'updated ").append(id).append("' WHERE id = ").append(id).append(";\n");
+    }
+
+    private static void appendDelete(StringBuilder content, int id) {
+        content.append("DELETE FROM bench_rows WHERE id = ").append(id).append(" AND payload = 'missing';\n");
+    }
+}
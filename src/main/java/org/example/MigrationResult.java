@@ -0,0 +1,33 @@
+package org.example;
+
+import org.example.metrics.MigrationMetrics;
+
+import java.util.List;
+
+/**
+ * Итог успешного запуска миграций.
+ *
+ * @param status         Результат.
+ * @param applied        Показатели миграций, применённых в этом запуске, в порядке фиксации.
+ * @param durationMillis Длительность запуска в миллисекундах, включая ожидание блокировки.
+ */
+public record MigrationResult(Status status, List<MigrationMetrics> applied, long durationMillis) {
+
+    /**
+     * Результат запуска миграций.
+     */
+    public enum Status {
+        /**
+         * Новые миграции применены.
+         */
+        APPLIED,
+        /**
+         * Новых миграций не было.
+         */
+        UP_TO_DATE
+    }
+
+    public int getAppliedCount() {
+        return applied.size();
+    }
+}
@@ -1,9 +1,17 @@
 package org.example;
 
 import lombok.extern.slf4j.Slf4j;
+import org.example.config.ConfigurationLoader;
+import org.example.config.MigrationConfig;
 import org.example.migration.*;
+import org.example.tenant.MultiTenantMigrator;
+import org.example.tenant.TenantProgressListener;
+import org.example.tenant.TenantResult;
+import org.example.tenant.TenantTarget;
+import org.example.util.ConnectionManager;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
 
 /**
@@ -13,37 +21,87 @@ import java.util.List;
 public class MigrationTool {
     /**
      * Запускает процесс миграции.
-     * Проверяет таблицу миграций, получает незавершённые миграции и применяет их.
+     * Если таблица миграций готова и новых миграций нет, метод завершается сразу, не захватывая блокировку.
+     * Иначе захватывает межпроцессную блокировку, проверяет таблицу миграций, получает незавершённые миграции
+     * и применяет их, так что при одновременном запуске на многих узлах миграции применяет только один из них.
+     * Ошибки записываются в лог; чтобы получить итог запуска или ошибку, используйте {@link Migrator}.
      */
     public static void run() {
         try {
-            MigrationTableManager.ensureMigrationTableExists();
-
-            MigrationManager migrationManager = new MigrationManager(new MigrationFileReader());
-
-            List<MigrationFile> migrations = migrationManager.getPendingMigrations();
-
-            if (migrations == null || migrations.isEmpty()) {
-                log.warn("Нет новых миграций для применения.");
-            } else {
-                log.info("Применение миграций:");
-                migrations.forEach(m -> log.info(" - {}", m.getFileName()));
-
-                MigrationExecutor migrationExecutor = new MigrationExecutor();
-
-                try {
-                    migrationExecutor.executeMigrations(migrations);
-                    log.info("Все миграции успешно применены.");
-                } catch (Exception e) {
-                    log.error("Ошибка при выполнении миграций: {}", e.getMessage(), e);
-                }
-            }
-
+            Migrator.builder().build().migrate();
             log.info("Процесс миграции завершён.");
         } catch (IOException e) {
             log.error("Ошибка во время настройки миграции: {}", e.getMessage(), e);
+        } catch (IllegalStateException e) {
+            log.error("Ошибка при выполнении миграций: {}", e.getMessage(), e);
         } catch (Exception e) {
             log.error("Произошла непредвиденная ошибка: {}", e.getMessage(), e);
         }
     }
+
+    /**
+     * Строит план применения ожидающих миграций, не изменяя ни базу данных, ни манифест контрольных сумм,
+     * и выводит его в лог. Если таблица миграций ещё не создана, в план попадают все миграции.
+     *
+     * @return План с оценкой длительности и блокировок.
+     * @throws IOException если не удаётся прочитать файлы миграций.
+     */
+    public static MigrationPlan plan() throws IOException {
+        MigrationConfig config = ConfigurationLoader.getInstance().getConfig();
+        MigrationFileReader migrationFileReader = new MigrationFileReader(config);
+
+        List<MigrationFile> migrations;
+        if (MigrationTableManager.migrationTableExists()) {
+            migrations = new MigrationManager(migrationFileReader, config).previewPendingMigrations(ConnectionManager.getDataSource());
+        } else {
+            log.info("Таблица миграций ещё не создана, в план включаются все миграции.");
+            migrations = migrationFileReader.readMigrationFiles();
+        }
+
+        MigrationPlan plan = new MigrationPlanner(config).plan(migrations);
+        log.info("{}", plan.toReport());
+        return plan;
+    }
+
+    /**
+     * Сворачивает миграции до заданной версии включительно в базовую схему.
+     * Схема читается из базы по умолчанию, в которой должны быть применены ровно эти миграции.
+     *
+     * @param upToVersion Последняя версия (временная метка), которую покрывает базовая схема.
+     * @return Путь к созданному файлу в папке {@code baseline}.
+     * @throws IOException если не удаётся прочитать миграции или записать файл.
+     */
+    public static Path squash(long upToVersion) throws IOException {
+        MigrationConfig config = ConfigurationLoader.getInstance().getConfig();
+        return new BaselineManager(new MigrationFileReader(config), config).squash(upToVersion, ConnectionManager.getDataSource());
+    }
+
+    /**
+     * Запускает режим наблюдения для локальной разработки: применяет ожидающие миграции, а затем применяет новые
+     * и заново применяет изменённую последнюю миграцию сразу после сохранения файла.
+     * Метод не возвращает управление, пока поток не будет прерван.
+     *
+     * @throws IOException если не удаётся прочитать папку миграций или начать наблюдение за ней.
+     * @see MigrationWatcher
+     */
+    public static void watch() throws IOException {
+        MigrationConfig config = ConfigurationLoader.getInstance().getConfig();
+        try (MigrationWatcher watcher = new MigrationWatcher(new MigrationFileReader(config), config, ConnectionManager.getDataSource())) {
+            watcher.watch();
+        }
+    }
+
+    /**
+     * Применяет миграции к нескольким базам данных одновременно.
+     * Папка миграций читается один раз; параметры подключения из конфигурации служат шаблоном,
+     * в котором для каждой базы заменяются URL и учётные данные.
+     *
+     * @param targets  Базы данных.
+     * @param listener Получатель событий о ходе обработки.
+     * @return Итоги обработки в порядке {@code targets}.
+     * @throws IOException если не удаётся прочитать файлы миграций.
+     */
+    public static List<TenantResult> runTenants(List<TenantTarget> targets, TenantProgressListener listener) throws IOException {
+        return new MultiTenantMigrator(ConfigurationLoader.getInstance().getConfig()).migrate(targets, listener);
+    }
 }
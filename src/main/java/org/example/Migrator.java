@@ -0,0 +1,283 @@
+package org.example;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.config.ConfigurationLoader;
+import org.example.config.MigrationConfig;
+import org.example.metrics.MetricsRegistry;
+import org.example.metrics.MigrationMetrics;
+import org.example.metrics.MigrationMetricsListener;
+import org.example.migration.BaselineManager;
+import org.example.migration.MigrationExecutor;
+import org.example.migration.MigrationFile;
+import org.example.migration.MigrationFileReader;
+import org.example.migration.MigrationLock;
+import org.example.migration.MigrationManager;
+import org.example.migration.MigrationTableManager;
+import org.example.migration.ParallelMigrationExecutor;
+import org.example.util.ConnectionManager;
+import org.example.util.ConnectionPool;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Встраиваемый API для применения миграций из приложения.
+ * <p>
+ * В отличие от {@link MigrationTool#run()}, ошибки не только записываются в лог, но и передаются вызывающему коду:
+ * {@link #migrate()} выбрасывает исключение, а {@link #migrateAsync()} завершает {@link CompletableFuture} с ошибкой.
+ * Асинхронный запуск позволяет приложению прогревать кэши и открывать обработчики запросов, пока применяются миграции,
+ * и дождаться результата перед тем, как начать принимать запросы.
+ * О ходе запуска сообщает получатель {@link MigrationMetricsListener}, заданный в {@link Builder#listener}:
+ * он получает те же события, что и глобальные получатели метрик, но только для своего запуска.
+ * <p>
+ * Миграции применяются к источнику соединений из {@link Builder#dataSource}. Если он не задан, но задана
+ * {@link Builder#config конфигурация}, на время каждого запуска по ней создаётся собственный пул соединений;
+ * иначе используется общий {@link ConnectionManager#getDataSource()}.
+ */
+@Slf4j
+public class Migrator {
+    private final MigrationConfig config;
+    private final DataSource dataSource;
+    private final boolean ownPool;
+    private final Executor executor;
+    private final MigrationMetricsListener listener;
+
+    private Migrator(Builder builder) {
+        this.config = builder.config != null ? builder.config : ConfigurationLoader.getInstance().getConfig();
+        this.dataSource = builder.dataSource;
+        this.ownPool = builder.dataSource == null && builder.config != null;
+        this.executor = builder.executor;
+        this.listener = builder.listener;
+    }
+
+    /**
+     * Создаёт построитель с общей конфигурацией, отдельным потоком для каждого асинхронного запуска и без получателя событий.
+     *
+     * @return Новый построитель.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Применяет ожидающие миграции в вызывающем потоке.
+     * Если таблица миграций готова и новых миграций нет, метод завершается сразу, не захватывая блокировку.
+     * Иначе миграции применяются под межпроцессной блокировкой, если она включена.
+     * Прерывание потока останавливает запуск перед следующей миграцией: текущая транзакция откатывается,
+     * ранее зафиксированные миграции остаются применёнными.
+     *
+     * @return Итог запуска.
+     * @throws IOException           если не удаётся прочитать файлы миграций.
+     * @throws IllegalStateException если миграции не удалось применить или не удалось захватить блокировку.
+     */
+    public MigrationResult migrate() throws IOException {
+        if (!ownPool) {
+            return migrate(dataSource != null ? dataSource : ConnectionManager.getDataSource());
+        }
+        try (ConnectionPool pool = ConnectionManager.createPool(config)) {
+            return migrate(pool);
+        }
+    }
+
+    private MigrationResult migrate(DataSource dataSource) throws IOException {
+        long startedAt = System.nanoTime();
+        MigrationManager migrationManager = new MigrationManager(new MigrationFileReader(config), config);
+
+        if (MigrationTableManager.isMigrationTableReady(dataSource) && migrationManager.getPendingMigrationFiles(dataSource).isEmpty()) {
+            log.info("Нет новых миграций для применения.");
+            return result(List.of(), startedAt);
+        }
+
+        if (!config.isLockEnabled()) {
+            return result(apply(migrationManager, dataSource), startedAt);
+        }
+        MigrationLock lock;
+        try {
+            lock = MigrationLock.acquire(dataSource, config.getLockKey(), config.getLockWaitMs());
+        } catch (SQLException e) {
+            throw new IllegalStateException("Migration lock failed: " + e.getMessage(), e);
+        }
+        try {
+            return result(apply(migrationManager, dataSource), startedAt);
+        } finally {
+            lock.release();
+        }
+    }
+
+    /**
+     * Применяет ожидающие миграции на исполнителе, заданном в {@link Builder#executor}.
+     * Future завершается итогом запуска или ошибкой {@link #migrate()}.
+     * Отмена future прерывает поток миграции: запуск останавливается перед следующей миграцией,
+     * а текущая транзакция откатывается. Выполняющийся оператор не прерывается.
+     *
+     * @return Future с итогом запуска.
+     */
+    public CompletableFuture<MigrationResult> migrateAsync() {
+        CompletableFuture<MigrationResult> future = new CompletableFuture<>();
+        Thread[] runner = new Thread[1];
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                synchronized (runner) {
+                    if (runner[0] != null) {
+                        log.info("Запуск миграций отменён, останавливаемся перед следующей миграцией...");
+                        runner[0].interrupt();
+                    }
+                }
+            }
+        });
+
+        try {
+            executor.execute(() -> {
+                synchronized (runner) {
+                    if (future.isDone()) {
+                        return;
+                    }
+                    runner[0] = Thread.currentThread();
+                }
+                try {
+                    future.complete(migrate());
+                } catch (IOException e) {
+                    future.completeExceptionally(new UncheckedIOException(e));
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    synchronized (runner) {
+                        runner[0] = null;
+                        // Прерывание, пришедшее после завершения запуска, не должно достаться следующей задаче исполнителя
+                        Thread.interrupted();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Проверяет таблицу миграций, получает незавершённые миграции и применяет их.
+     * Пустая база сначала инициализируется базовой схемой, если она есть.
+     * Вызывается под блокировкой, поэтому список миграций запрашивается заново:
+     * пока узел ждал блокировку, их мог применить другой узел.
+     *
+     * @return Показатели применённых миграций.
+     */
+    private List<MigrationMetrics> apply(MigrationManager migrationManager, DataSource dataSource) throws IOException {
+        MigrationTableManager.ensureMigrationTableExists(dataSource);
+        if (config.isBaselineEnabled()) {
+            new BaselineManager(new MigrationFileReader(config), config).bootstrap(dataSource, migrationManager);
+        }
+
+        List<MigrationFile> migrations = migrationManager.getPendingMigrations(dataSource);
+        if (migrations.isEmpty()) {
+            log.warn("Нет новых миграций для применения.");
+            return List.of();
+        }
+
+        log.info("Применение миграций:");
+        migrations.forEach(m -> log.info(" - {}", m.getFileName()));
+
+        List<MigrationMetrics> applied = Collections.synchronizedList(new ArrayList<>());
+        MigrationMetricsListener metrics = MetricsRegistry.listener(listener, new MigrationMetricsListener() {
+            @Override
+            public void onMigrationApplied(MigrationMetrics migration) {
+                applied.add(migration);
+            }
+        });
+        MigrationExecutor migrationExecutor = new MigrationExecutor(config, metrics);
+        int threads = config.getParallelThreads();
+        metrics.onRunStarted(migrations.size());
+        boolean success = false;
+
+        try {
+            if (threads > 1) {
+                new ParallelMigrationExecutor(migrationExecutor, threads).executeMigrations(migrations, dataSource);
+            } else {
+                migrationExecutor.executeMigrations(migrations, dataSource);
+            }
+            migrationManager.recordAppliedMigrations(migrations);
+            success = true;
+            log.info("Все миграции успешно применены.");
+        } finally {
+            metrics.onRunFinished(success);
+        }
+        return List.copyOf(applied);
+    }
+
+    private static MigrationResult result(List<MigrationMetrics> applied, long startedAt) {
+        MigrationResult.Status status = applied.isEmpty() ? MigrationResult.Status.UP_TO_DATE : MigrationResult.Status.APPLIED;
+        return new MigrationResult(status, applied, (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    /**
+     * Построитель {@link Migrator}.
+     */
+    public static final class Builder {
+        private MigrationConfig config;
+        private DataSource dataSource;
+        private Executor executor = runnable -> new Thread(runnable, "migration").start();
+        private MigrationMetricsListener listener = new MigrationMetricsListener() {
+        };
+
+        private Builder() {
+        }
+
+        /**
+         * Конфигурация инструмента; по умолчанию — общая конфигурация {@link ConfigurationLoader}.
+         * Если источник соединений не задан, на время запуска по этой конфигурации создаётся собственный пул.
+         */
+        public Builder config(MigrationConfig config) {
+            this.config = config;
+            return this;
+        }
+
+        /**
+         * Источник соединений с базой данных; по умолчанию — пул по {@link #config конфигурации}.
+         */
+        public Builder dataSource(DataSource dataSource) {
+            this.dataSource = dataSource;
+            return this;
+        }
+
+        /**
+         * Исполнитель асинхронных запусков; по умолчанию каждый запуск выполняется в новом потоке.
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Получатель событий о ходе запуска: начале и завершении запуска, применении и ошибке каждой миграции.
+         * Вызывается из потока миграции или, при параллельном применении, из рабочих потоков.
+         */
+        public Builder listener(MigrationMetricsListener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        /**
+         * Создаёт {@link Migrator}.
+         *
+         * @return Новый экземпляр.
+         * @throws IllegalArgumentException если исполнитель или получатель событий не задан.
+         */
+        public Migrator build() {
+            if (executor == null) {
+                throw new IllegalArgumentException("Executor must be set.");
+            }
+            if (listener == null) {
+                throw new IllegalArgumentException("Listener must be set.");
+            }
+            return new Migrator(this);
+        }
+    }
+}
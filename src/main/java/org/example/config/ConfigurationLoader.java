@@ -4,21 +4,46 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
 
 /**
  * Класс для загрузки и управления конфигурационными свойствами.
  * Реализует паттерн Singleton для обеспечения одного экземпляра.
+ * По умолчанию читает файл {@code migrations.properties} из рабочей директории;
+ * другой путь можно указать системным свойством {@code migrations.config}.
+ * <p>
+ * Значения из файла переопределяются переменными окружения (ключ в верхнем регистре с заменой точек
+ * на подчёркивания, например {@code DB_URL}) и системными свойствами с тем же ключом.
+ * Конфигурация разбирается и проверяется один раз в {@link MigrationConfig}.
+ * Встраивающее приложение может задать конфигурацию программно через {@link #configure(MigrationConfig)},
+ * тогда файл не читается.
  */
 @Slf4j
 public class ConfigurationLoader {
-    private static ConfigurationLoader instance;
-    private static String  CONFIG_FILE = "migrations.properties";
+    private static final String CONFIG_PROPERTY = "migrations.config";
+    private static final String DEFAULT_CONFIG_FILE = "migrations.properties";
+
+    private static volatile ConfigurationLoader instance;
     private final Properties properties;
+    private final MigrationConfig config;
+    private volatile boolean shared;
 
     public ConfigurationLoader() {
-        properties = new Properties();
-        loadProperties();
+        this(loadProperties(System.getenv(), System.getProperties()));
+    }
+
+    private ConfigurationLoader(Properties properties) {
+        this.properties = properties;
+        this.config = MigrationConfig.fromProperties(properties);
+    }
+
+    private ConfigurationLoader(MigrationConfig config) {
+        this.properties = config.toProperties();
+        this.config = config;
     }
 
     /**
@@ -28,23 +53,94 @@ public class ConfigurationLoader {
      * @return Экземпляр класса {@link ConfigurationLoader}.
      */
     public static ConfigurationLoader getInstance() {
-        if (instance == null) {
+        ConfigurationLoader current = instance;
+        if (current == null) {
             synchronized (ConfigurationLoader.class) {
-                if (instance == null) {
-                    instance = new ConfigurationLoader();
+                current = instance;
+                if (current == null) {
+                    current = new ConfigurationLoader();
+                    instance = current;
                 }
             }
         }
-        return instance;
+        return current;
     }
 
-    private void loadProperties() {
-        try (FileInputStream input = new FileInputStream(CONFIG_FILE)) {
-            properties.load(input);
-        } catch (IOException e) {
-            log.error("Не удалось загрузить файл конфигурации '{}': {}", CONFIG_FILE, e.getMessage(), e);
-            throw new RuntimeException("Failed to load configuration file: " + CONFIG_FILE, e);
+    /**
+     * Устанавливает конфигурацию программно вместо чтения файла.
+     * Должен вызываться до первого обращения к компонентам, создаваемым по общей конфигурации.
+     *
+     * @param config Конфигурация инструмента.
+     * @throws IllegalStateException если текущая конфигурация уже используется общим пулом соединений
+     *                               или метриками (см. {@link #getSharedConfig()}).
+     */
+    public static synchronized void configure(MigrationConfig config) {
+        ConfigurationLoader current = instance;
+        if (current != null && current.shared) {
+            log.error("Конфигурация уже используется пулом соединений или метриками и не может быть заменена.");
+            throw new IllegalStateException("Configuration is already in use by the connection pool or metrics; "
+                    + "call ConfigurationLoader.configure(...) before the first migration run.");
         }
+        instance = new ConfigurationLoader(config);
+        log.info("Конфигурация задана программно, путь к миграциям: {}", config.getMigrationPath());
+    }
+
+    /**
+     * Возвращает разобранную и проверенную конфигурацию.
+     *
+     * @return Конфигурация инструмента.
+     */
+    public MigrationConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Возвращает конфигурацию для общих компонентов, которые создаются по ней один раз на процесс:
+     * пула соединений и получателей метрик. После этого конфигурацию нельзя заменить через {@link #configure(MigrationConfig)}.
+     *
+     * @return Конфигурация инструмента.
+     */
+    public MigrationConfig getSharedConfig() {
+        shared = true;
+        return config;
+    }
+
+    /**
+     * Собирает свойства из файла конфигурации, переменных окружения и системных свойств.
+     * Файл по умолчанию необязателен: в контейнере все параметры можно передать через окружение.
+     * Файл, явно указанный в {@code migrations.config}, должен существовать.
+     */
+    static Properties loadProperties(Map<String, String> environment, Properties systemProperties) {
+        String explicitFile = systemProperties.getProperty(CONFIG_PROPERTY);
+        String configFile = explicitFile != null ? explicitFile : DEFAULT_CONFIG_FILE;
+
+        Properties properties = new Properties();
+        if (explicitFile != null || Files.exists(Paths.get(configFile))) {
+            try (FileInputStream input = new FileInputStream(configFile)) {
+                properties.load(input);
+            } catch (IOException e) {
+                log.error("Не удалось загрузить файл конфигурации '{}': {}", configFile, e.getMessage(), e);
+                throw new RuntimeException("Failed to load configuration file: " + configFile, e);
+            }
+        } else {
+            log.info("Файл конфигурации '{}' не найден, используются переменные окружения и системные свойства.", configFile);
+        }
+
+        for (String key : MigrationConfig.KEYS) {
+            String value = environment.get(toEnvironmentName(key));
+            if (value != null) {
+                properties.setProperty(key, value);
+            }
+            value = systemProperties.getProperty(key);
+            if (value != null) {
+                properties.setProperty(key, value);
+            }
+        }
+        return properties;
+    }
+
+    private static String toEnvironmentName(String key) {
+        return key.replace('.', '_').toUpperCase(Locale.ROOT);
     }
 
     /**
@@ -61,7 +157,6 @@ public class ConfigurationLoader {
             log.error("Свойство '{}' не найдено в конфигурации.", key);
             throw new RuntimeException("Property '" + key + "' not found in configuration.");
         }
-        log.debug("Получено свойство '{}' со значением '{}'.", key, value);
         return value;
     }
 }
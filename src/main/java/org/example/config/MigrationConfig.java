@@ -0,0 +1,711 @@
+package org.example.config;
+
+import lombok.Getter;
+import org.example.migration.TransactionMode;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Неизменяемая типизированная конфигурация инструмента миграций.
+ * <p>
+ * Значения разбираются и проверяются один раз при создании, после чего компоненты читают готовые поля.
+ * Экземпляр создаётся либо из свойств через {@link #fromProperties(Properties)}
+ * (так делает {@link ConfigurationLoader}), либо программно через {@link #builder()} без обращения к диску.
+ */
+@Getter
+public final class MigrationConfig {
+
+    /**
+     * Ключи всех поддерживаемых свойств конфигурации.
+     */
+    public static final List<String> KEYS = List.of(
+            "db.url", "db.username", "db.password", "db.driver",
+            "db.pool.size", "db.pool.idle.timeout", "db.pool.borrow.timeout", "db.pool.validation.timeout",
+            "migration.path", "migration.batch.size", "migration.transaction.mode", "migration.transaction.group.size",
+            "migration.parallel.threads", "migration.reader.threads", "migration.reader.lazy.threshold",
+            "migration.statement.cache.size", "migration.prepare.threshold",
+            "migration.manifest.enabled", "migration.manifest.path", "migration.manifest.strict",
+            "migration.lock.enabled", "migration.lock.key", "migration.lock.wait",
+            "migration.online.lock.timeout", "migration.online.statement.timeout",
+            "migration.online.retries", "migration.online.retry.delay",
+            "migration.metrics.jmx", "migration.metrics.report",
+            "migration.fanout.threads", "migration.fanout.connections",
+            "migration.plan.rows.per.second", "migration.plan.bytes.per.second",
+            "migration.backfill.chunk.size", "migration.backfill.rows.per.second", "migration.backfill.max.replication.lag",
+            "migration.baseline.enabled", "migration.watch.debounce", "migration.watch.reapply");
+
+    private final String dbUrl;
+    private final String dbUsername;
+    private final String dbPassword;
+    private final String dbDriver;
+    private final int poolSize;
+    private final int poolIdleTimeoutMs;
+    private final int poolBorrowTimeoutMs;
+    private final int poolValidationTimeoutSec;
+
+    private final String migrationPath;
+    private final int batchSize;
+    private final TransactionMode transactionMode;
+    private final int transactionGroupSize;
+    private final int parallelThreads;
+    private final int readerThreads;
+    private final long readerLazyThresholdBytes;
+    private final int statementCacheSize;
+    private final int prepareThreshold;
+
+    private final boolean manifestEnabled;
+    private final String manifestPath;
+    private final boolean manifestStrict;
+
+    private final boolean lockEnabled;
+    private final long lockKey;
+    private final long lockWaitMs;
+
+    private final int onlineLockTimeoutMs;
+    private final int onlineStatementTimeoutMs;
+    private final int onlineRetries;
+    private final int onlineRetryDelayMs;
+
+    private final boolean metricsJmx;
+    private final String metricsReport;
+
+    private final int fanOutThreads;
+    private final int fanOutConnections;
+
+    private final long planRowsPerSecond;
+    private final long planBytesPerSecond;
+
+    private final int backfillChunkSize;
+    private final long backfillRowsPerSecond;
+    private final long backfillMaxReplicationLagMs;
+
+    private final boolean baselineEnabled;
+
+    private final long watchDebounceMs;
+    private final boolean watchReapply;
+
+    private MigrationConfig(Builder builder) {
+        this.dbUrl = builder.dbUrl;
+        this.dbUsername = builder.dbUsername;
+        this.dbPassword = builder.dbPassword;
+        this.dbDriver = builder.dbDriver;
+        this.poolSize = builder.poolSize;
+        this.poolIdleTimeoutMs = builder.poolIdleTimeoutMs;
+        this.poolBorrowTimeoutMs = builder.poolBorrowTimeoutMs;
+        this.poolValidationTimeoutSec = builder.poolValidationTimeoutSec;
+        this.migrationPath = builder.migrationPath;
+        this.batchSize = builder.batchSize;
+        this.transactionMode = builder.transactionMode;
+        this.transactionGroupSize = builder.transactionGroupSize;
+        this.parallelThreads = builder.parallelThreads;
+        this.readerThreads = builder.readerThreads;
+        this.readerLazyThresholdBytes = builder.readerLazyThresholdBytes;
+        this.statementCacheSize = builder.statementCacheSize;
+        this.prepareThreshold = builder.prepareThreshold;
+        this.manifestEnabled = builder.manifestEnabled;
+        this.manifestPath = builder.manifestPath;
+        this.manifestStrict = builder.manifestStrict;
+        this.lockEnabled = builder.lockEnabled;
+        this.lockKey = builder.lockKey;
+        this.lockWaitMs = builder.lockWaitMs;
+        this.onlineLockTimeoutMs = builder.onlineLockTimeoutMs;
+        this.onlineStatementTimeoutMs = builder.onlineStatementTimeoutMs;
+        this.onlineRetries = builder.onlineRetries;
+        this.onlineRetryDelayMs = builder.onlineRetryDelayMs;
+        this.metricsJmx = builder.metricsJmx;
+        this.metricsReport = builder.metricsReport;
+        this.fanOutThreads = builder.fanOutThreads;
+        this.fanOutConnections = builder.fanOutConnections;
+        this.planRowsPerSecond = builder.planRowsPerSecond;
+        this.planBytesPerSecond = builder.planBytesPerSecond;
+        this.backfillChunkSize = builder.backfillChunkSize;
+        this.backfillRowsPerSecond = builder.backfillRowsPerSecond;
+        this.backfillMaxReplicationLagMs = builder.backfillMaxReplicationLagMs;
+        this.baselineEnabled = builder.baselineEnabled;
+        this.watchDebounceMs = builder.watchDebounceMs;
+        this.watchReapply = builder.watchReapply;
+    }
+
+    /**
+     * Создаёт построитель конфигурации со значениями по умолчанию.
+     *
+     * @return Новый построитель.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Создаёт построитель, заполненный значениями этой конфигурации.
+     * Используется, чтобы получить изменённую копию, например для другой базы данных.
+     *
+     * @return Новый построитель.
+     */
+    public Builder toBuilder() {
+        return new Builder()
+                .dbUrl(dbUrl).dbUsername(dbUsername).dbPassword(dbPassword).dbDriver(dbDriver)
+                .poolSize(poolSize).poolIdleTimeoutMs(poolIdleTimeoutMs)
+                .poolBorrowTimeoutMs(poolBorrowTimeoutMs).poolValidationTimeoutSec(poolValidationTimeoutSec)
+                .migrationPath(migrationPath).batchSize(batchSize)
+                .transactionMode(transactionMode).transactionGroupSize(transactionGroupSize)
+                .parallelThreads(parallelThreads).readerThreads(readerThreads)
+                .readerLazyThresholdBytes(readerLazyThresholdBytes)
+                .statementCacheSize(statementCacheSize).prepareThreshold(prepareThreshold)
+                .manifestEnabled(manifestEnabled).manifestPath(manifestPath).manifestStrict(manifestStrict)
+                .lockEnabled(lockEnabled).lockKey(lockKey).lockWaitMs(lockWaitMs)
+                .onlineLockTimeoutMs(onlineLockTimeoutMs).onlineStatementTimeoutMs(onlineStatementTimeoutMs)
+                .onlineRetries(onlineRetries).onlineRetryDelayMs(onlineRetryDelayMs)
+                .metricsJmx(metricsJmx).metricsReport(metricsReport)
+                .fanOutThreads(fanOutThreads).fanOutConnections(fanOutConnections)
+                .planRowsPerSecond(planRowsPerSecond).planBytesPerSecond(planBytesPerSecond)
+                .backfillChunkSize(backfillChunkSize).backfillRowsPerSecond(backfillRowsPerSecond)
+                .backfillMaxReplicationLagMs(backfillMaxReplicationLagMs)
+                .baselineEnabled(baselineEnabled)
+                .watchDebounceMs(watchDebounceMs)
+                .watchReapply(watchReapply);
+    }
+
+    /**
+     * Разбирает конфигурацию из набора свойств.
+     * Отсутствующие необязательные свойства получают значения по умолчанию.
+     *
+     * @param properties Свойства конфигурации.
+     * @return Проверенная конфигурация.
+     * @throws IllegalArgumentException если обязательное свойство не задано или значение некорректно.
+     */
+    public static MigrationConfig fromProperties(Properties properties) {
+        PropertyReader reader = new PropertyReader(properties);
+        Builder builder = new Builder();
+        return builder
+                .dbUrl(reader.required("db.url"))
+                .dbUsername(reader.required("db.username"))
+                .dbPassword(reader.required("db.password"))
+                .dbDriver(reader.string("db.driver", builder.dbDriver))
+                .poolSize(reader.integer("db.pool.size", builder.poolSize))
+                .poolIdleTimeoutMs(reader.integer("db.pool.idle.timeout", builder.poolIdleTimeoutMs))
+                .poolBorrowTimeoutMs(reader.integer("db.pool.borrow.timeout", builder.poolBorrowTimeoutMs))
+                .poolValidationTimeoutSec(reader.integer("db.pool.validation.timeout", builder.poolValidationTimeoutSec))
+                .migrationPath(reader.required("migration.path"))
+                .batchSize(reader.integer("migration.batch.size", builder.batchSize))
+                .transactionMode(reader.transactionMode("migration.transaction.mode", builder.transactionMode))
+                .transactionGroupSize(reader.integer("migration.transaction.group.size", builder.transactionGroupSize))
+                .parallelThreads(reader.integer("migration.parallel.threads", builder.parallelThreads))
+                .readerThreads(reader.integer("migration.reader.threads", builder.readerThreads))
+                .readerLazyThresholdBytes(reader.longInteger("migration.reader.lazy.threshold", builder.readerLazyThresholdBytes))
+                .statementCacheSize(reader.integer("migration.statement.cache.size", builder.statementCacheSize))
+                .prepareThreshold(reader.integer("migration.prepare.threshold", builder.prepareThreshold))
+                .manifestEnabled(reader.bool("migration.manifest.enabled", builder.manifestEnabled))
+                .manifestPath(reader.string("migration.manifest.path", builder.manifestPath))
+                .manifestStrict(reader.bool("migration.manifest.strict", builder.manifestStrict))
+                .lockEnabled(reader.bool("migration.lock.enabled", builder.lockEnabled))
+                .lockKey(reader.longInteger("migration.lock.key", builder.lockKey))
+                .lockWaitMs(reader.longInteger("migration.lock.wait", builder.lockWaitMs))
+                .onlineLockTimeoutMs(reader.integer("migration.online.lock.timeout", builder.onlineLockTimeoutMs))
+                .onlineStatementTimeoutMs(reader.integer("migration.online.statement.timeout", builder.onlineStatementTimeoutMs))
+                .onlineRetries(reader.integer("migration.online.retries", builder.onlineRetries))
+                .onlineRetryDelayMs(reader.integer("migration.online.retry.delay", builder.onlineRetryDelayMs))
+                .metricsJmx(reader.bool("migration.metrics.jmx", builder.metricsJmx))
+                .metricsReport(reader.string("migration.metrics.report", builder.metricsReport))
+                .fanOutThreads(reader.integer("migration.fanout.threads", builder.fanOutThreads))
+                .fanOutConnections(reader.integer("migration.fanout.connections", builder.fanOutConnections))
+                .planRowsPerSecond(reader.longInteger("migration.plan.rows.per.second", builder.planRowsPerSecond))
+                .planBytesPerSecond(reader.longInteger("migration.plan.bytes.per.second", builder.planBytesPerSecond))
+                .backfillChunkSize(reader.integer("migration.backfill.chunk.size", builder.backfillChunkSize))
+                .backfillRowsPerSecond(reader.longInteger("migration.backfill.rows.per.second", builder.backfillRowsPerSecond))
+                .backfillMaxReplicationLagMs(reader.longInteger("migration.backfill.max.replication.lag", builder.backfillMaxReplicationLagMs))
+                .baselineEnabled(reader.bool("migration.baseline.enabled", builder.baselineEnabled))
+                .watchDebounceMs(reader.longInteger("migration.watch.debounce", builder.watchDebounceMs))
+                .watchReapply(reader.bool("migration.watch.reapply", builder.watchReapply))
+                .build();
+    }
+
+    /**
+     * Преобразует конфигурацию в набор свойств с ключами из {@link #KEYS}.
+     * Незаданные необязательные значения в результат не попадают.
+     *
+     * @return Свойства конфигурации.
+     */
+    public Properties toProperties() {
+        Properties properties = new Properties();
+        putIfSet(properties, "db.url", dbUrl);
+        putIfSet(properties, "db.username", dbUsername);
+        putIfSet(properties, "db.password", dbPassword);
+        putIfSet(properties, "db.driver", dbDriver);
+        putIfSet(properties, "db.pool.size", poolSize);
+        putIfSet(properties, "db.pool.idle.timeout", poolIdleTimeoutMs);
+        putIfSet(properties, "db.pool.borrow.timeout", poolBorrowTimeoutMs);
+        putIfSet(properties, "db.pool.validation.timeout", poolValidationTimeoutSec);
+        putIfSet(properties, "migration.path", migrationPath);
+        putIfSet(properties, "migration.batch.size", batchSize);
+        putIfSet(properties, "migration.transaction.mode", transactionMode.name().toLowerCase(Locale.ROOT).replace('_', '-'));
+        putIfSet(properties, "migration.transaction.group.size", transactionGroupSize);
+        putIfSet(properties, "migration.parallel.threads", parallelThreads);
+        putIfSet(properties, "migration.reader.threads", readerThreads);
+        putIfSet(properties, "migration.reader.lazy.threshold", readerLazyThresholdBytes);
+        putIfSet(properties, "migration.statement.cache.size", statementCacheSize);
+        putIfSet(properties, "migration.prepare.threshold", prepareThreshold);
+        putIfSet(properties, "migration.manifest.enabled", manifestEnabled);
+        putIfSet(properties, "migration.manifest.path", manifestPath);
+        putIfSet(properties, "migration.manifest.strict", manifestStrict);
+        putIfSet(properties, "migration.lock.enabled", lockEnabled);
+        putIfSet(properties, "migration.lock.key", lockKey);
+        putIfSet(properties, "migration.lock.wait", lockWaitMs);
+        putIfSet(properties, "migration.online.lock.timeout", onlineLockTimeoutMs);
+        putIfSet(properties, "migration.online.statement.timeout", onlineStatementTimeoutMs);
+        putIfSet(properties, "migration.online.retries", onlineRetries);
+        putIfSet(properties, "migration.online.retry.delay", onlineRetryDelayMs);
+        putIfSet(properties, "migration.metrics.jmx", metricsJmx);
+        putIfSet(properties, "migration.metrics.report", metricsReport);
+        putIfSet(properties, "migration.fanout.threads", fanOutThreads);
+        putIfSet(properties, "migration.fanout.connections", fanOutConnections);
+        putIfSet(properties, "migration.plan.rows.per.second", planRowsPerSecond);
+        putIfSet(properties, "migration.plan.bytes.per.second", planBytesPerSecond);
+        putIfSet(properties, "migration.backfill.chunk.size", backfillChunkSize);
+        putIfSet(properties, "migration.backfill.rows.per.second", backfillRowsPerSecond);
+        putIfSet(properties, "migration.backfill.max.replication.lag", backfillMaxReplicationLagMs);
+        putIfSet(properties, "migration.baseline.enabled", baselineEnabled);
+        putIfSet(properties, "migration.watch.debounce", watchDebounceMs);
+        putIfSet(properties, "migration.watch.reapply", watchReapply);
+        return properties;
+    }
+
+    private static void putIfSet(Properties properties, String key, Object value) {
+        if (value != null) {
+            properties.setProperty(key, String.valueOf(value));
+        }
+    }
+
+    /**
+     * Построитель {@link MigrationConfig}.
+     * Поля заполнены значениями по умолчанию; проверка выполняется в {@link #build()}.
+     */
+    public static final class Builder {
+        private String dbUrl;
+        private String dbUsername;
+        private String dbPassword;
+        private String dbDriver;
+        private int poolSize = 10;
+        private int poolIdleTimeoutMs = 600_000;
+        private int poolBorrowTimeoutMs = 30_000;
+        private int poolValidationTimeoutSec = 5;
+
+        private String migrationPath;
+        private int batchSize = 1000;
+        private TransactionMode transactionMode = TransactionMode.ALL;
+        private int transactionGroupSize = 10;
+        private int parallelThreads = 1;
+        private int readerThreads = Math.min(4, Runtime.getRuntime().availableProcessors());
+        private long readerLazyThresholdBytes = 8 * 1024 * 1024;
+        private int statementCacheSize = 256;
+        private int prepareThreshold = 1;
+
+        private boolean manifestEnabled = true;
+        private String manifestPath;
+        private boolean manifestStrict;
+
+        private boolean lockEnabled = true;
+        private long lockKey = "applied_migrations".hashCode();
+        private long lockWaitMs = 300_000;
+
+        private int onlineLockTimeoutMs = 5_000;
+        private int onlineStatementTimeoutMs;
+        private int onlineRetries = 10;
+        private int onlineRetryDelayMs = 500;
+
+        private boolean metricsJmx = true;
+        private String metricsReport;
+
+        private int fanOutThreads = 16;
+        private int fanOutConnections = 32;
+
+        private long planRowsPerSecond = 50_000;
+        private long planBytesPerSecond = 50L * 1024 * 1024;
+
+        private int backfillChunkSize = 10_000;
+        private long backfillRowsPerSecond;
+        private long backfillMaxReplicationLagMs;
+
+        private boolean baselineEnabled = true;
+
+        private long watchDebounceMs = 200;
+        private boolean watchReapply = true;
+
+        private Builder() {
+        }
+
+        public Builder dbUrl(String dbUrl) {
+            this.dbUrl = dbUrl;
+            return this;
+        }
+
+        public Builder dbUsername(String dbUsername) {
+            this.dbUsername = dbUsername;
+            return this;
+        }
+
+        public Builder dbPassword(String dbPassword) {
+            this.dbPassword = dbPassword;
+            return this;
+        }
+
+        /**
+         * Класс JDBC-драйвера. Если не задан, драйвер должен регистрироваться сам (JDBC 4).
+         */
+        public Builder dbDriver(String dbDriver) {
+            this.dbDriver = dbDriver;
+            return this;
+        }
+
+        public Builder poolSize(int poolSize) {
+            this.poolSize = poolSize;
+            return this;
+        }
+
+        public Builder poolIdleTimeoutMs(int poolIdleTimeoutMs) {
+            this.poolIdleTimeoutMs = poolIdleTimeoutMs;
+            return this;
+        }
+
+        public Builder poolBorrowTimeoutMs(int poolBorrowTimeoutMs) {
+            this.poolBorrowTimeoutMs = poolBorrowTimeoutMs;
+            return this;
+        }
+
+        public Builder poolValidationTimeoutSec(int poolValidationTimeoutSec) {
+            this.poolValidationTimeoutSec = poolValidationTimeoutSec;
+            return this;
+        }
+
+        public Builder migrationPath(String migrationPath) {
+            this.migrationPath = migrationPath;
+            return this;
+        }
+
+        public Builder batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        public Builder transactionMode(TransactionMode transactionMode) {
+            this.transactionMode = transactionMode;
+            return this;
+        }
+
+        public Builder transactionGroupSize(int transactionGroupSize) {
+            this.transactionGroupSize = transactionGroupSize;
+            return this;
+        }
+
+        public Builder parallelThreads(int parallelThreads) {
+            this.parallelThreads = parallelThreads;
+            return this;
+        }
+
+        public Builder readerThreads(int readerThreads) {
+            this.readerThreads = readerThreads;
+            return this;
+        }
+
+        public Builder readerLazyThresholdBytes(long readerLazyThresholdBytes) {
+            this.readerLazyThresholdBytes = readerLazyThresholdBytes;
+            return this;
+        }
+
+        /**
+         * Количество форм DML-операторов, для которых на соединении хранятся подготовленные запросы;
+         * {@code 0} — операторы выполняются как есть.
+         */
+        public Builder statementCacheSize(int statementCacheSize) {
+            this.statementCacheSize = statementCacheSize;
+            return this;
+        }
+
+        /**
+         * Количество выполнений подготовленного запроса, после которого драйвер PostgreSQL
+         * подготавливает его на сервере; {@code 0} — не подготавливать.
+         */
+        public Builder prepareThreshold(int prepareThreshold) {
+            this.prepareThreshold = prepareThreshold;
+            return this;
+        }
+
+        public Builder manifestEnabled(boolean manifestEnabled) {
+            this.manifestEnabled = manifestEnabled;
+            return this;
+        }
+
+        /**
+         * Путь к файлу манифеста. Если не задан, используется файл во временной папке, имя которого зависит от папки миграций.
+         */
+        public Builder manifestPath(String manifestPath) {
+            this.manifestPath = manifestPath;
+            return this;
+        }
+
+        public Builder manifestStrict(boolean manifestStrict) {
+            this.manifestStrict = manifestStrict;
+            return this;
+        }
+
+        public Builder lockEnabled(boolean lockEnabled) {
+            this.lockEnabled = lockEnabled;
+            return this;
+        }
+
+        public Builder lockKey(long lockKey) {
+            this.lockKey = lockKey;
+            return this;
+        }
+
+        public Builder lockWaitMs(long lockWaitMs) {
+            this.lockWaitMs = lockWaitMs;
+            return this;
+        }
+
+        public Builder onlineLockTimeoutMs(int onlineLockTimeoutMs) {
+            this.onlineLockTimeoutMs = onlineLockTimeoutMs;
+            return this;
+        }
+
+        public Builder onlineStatementTimeoutMs(int onlineStatementTimeoutMs) {
+            this.onlineStatementTimeoutMs = onlineStatementTimeoutMs;
+            return this;
+        }
+
+        public Builder onlineRetries(int onlineRetries) {
+            this.onlineRetries = onlineRetries;
+            return this;
+        }
+
+        public Builder onlineRetryDelayMs(int onlineRetryDelayMs) {
+            this.onlineRetryDelayMs = onlineRetryDelayMs;
+            return this;
+        }
+
+        public Builder metricsJmx(boolean metricsJmx) {
+            this.metricsJmx = metricsJmx;
+            return this;
+        }
+
+        /**
+         * Путь к JSON-отчёту о запуске. Если не задан, отчёт не сохраняется.
+         */
+        public Builder metricsReport(String metricsReport) {
+            this.metricsReport = metricsReport;
+            return this;
+        }
+
+        /**
+         * Количество баз данных, обрабатываемых одновременно в режиме нескольких баз.
+         */
+        public Builder fanOutThreads(int fanOutThreads) {
+            this.fanOutThreads = fanOutThreads;
+            return this;
+        }
+
+        /**
+         * Общий лимит соединений со всеми базами данных в режиме нескольких баз.
+         */
+        public Builder fanOutConnections(int fanOutConnections) {
+            this.fanOutConnections = fanOutConnections;
+            return this;
+        }
+
+        /**
+         * Оценочная скорость изменения строк DML-операторами, используемая планировщиком.
+         */
+        public Builder planRowsPerSecond(long planRowsPerSecond) {
+            this.planRowsPerSecond = planRowsPerSecond;
+            return this;
+        }
+
+        /**
+         * Оценочная скорость чтения и перезаписи таблиц, используемая планировщиком.
+         */
+        public Builder planBytesPerSecond(long planBytesPerSecond) {
+            this.planBytesPerSecond = planBytesPerSecond;
+            return this;
+        }
+
+        /**
+         * Количество строк в одной части backfill-миграции, если оно не задано в заголовке.
+         */
+        public Builder backfillChunkSize(int backfillChunkSize) {
+            this.backfillChunkSize = backfillChunkSize;
+            return this;
+        }
+
+        /**
+         * Ограничение скорости backfill-миграций в строках в секунду; {@code 0} — без ограничения.
+         */
+        public Builder backfillRowsPerSecond(long backfillRowsPerSecond) {
+            this.backfillRowsPerSecond = backfillRowsPerSecond;
+            return this;
+        }
+
+        /**
+         * Допустимое отставание реплик в миллисекундах, при превышении которого backfill приостанавливается;
+         * {@code 0} — не проверять.
+         */
+        public Builder backfillMaxReplicationLagMs(long backfillMaxReplicationLagMs) {
+            this.backfillMaxReplicationLagMs = backfillMaxReplicationLagMs;
+            return this;
+        }
+
+        /**
+         * Применять базовую схему из папки {@code baseline} к пустой базе вместо истории миграций.
+         */
+        public Builder baselineEnabled(boolean baselineEnabled) {
+            this.baselineEnabled = baselineEnabled;
+            return this;
+        }
+
+        /**
+         * Время в миллисекундах, в течение которого в режиме наблюдения собираются изменения файлов
+         * перед их применением.
+         */
+        public Builder watchDebounceMs(long watchDebounceMs) {
+            this.watchDebounceMs = watchDebounceMs;
+            return this;
+        }
+
+        /**
+         * Откатывать и заново применять в режиме наблюдения изменённую последнюю миграцию со скриптом отката.
+         */
+        public Builder watchReapply(boolean watchReapply) {
+            this.watchReapply = watchReapply;
+            return this;
+        }
+
+        /**
+         * Проверяет значения и создаёт неизменяемую конфигурацию.
+         *
+         * @return Конфигурация.
+         * @throws IllegalArgumentException если обязательное значение не задано или значение некорректно.
+         */
+        public MigrationConfig build() {
+            requireSet("db.url", dbUrl);
+            requireSet("db.username", dbUsername);
+            if (dbPassword == null) {
+                throw new IllegalArgumentException("Property 'db.password' not found in configuration.");
+            }
+            requireSet("migration.path", migrationPath);
+            if (transactionMode == null) {
+                throw new IllegalArgumentException("Property 'migration.transaction.mode' must be set.");
+            }
+            requirePositive("db.pool.size", poolSize);
+            requirePositive("migration.batch.size", batchSize);
+            requirePositive("migration.transaction.group.size", transactionGroupSize);
+            requirePositive("migration.parallel.threads", parallelThreads);
+            requirePositive("migration.reader.threads", readerThreads);
+            requirePositive("migration.online.retries", onlineRetries);
+            requirePositive("migration.fanout.threads", fanOutThreads);
+            requirePositive("migration.fanout.connections", fanOutConnections);
+            requirePositive("migration.plan.rows.per.second", planRowsPerSecond);
+            requirePositive("migration.plan.bytes.per.second", planBytesPerSecond);
+            requirePositive("migration.backfill.chunk.size", backfillChunkSize);
+            requireNonNegative("migration.backfill.rows.per.second", backfillRowsPerSecond);
+            requireNonNegative("migration.backfill.max.replication.lag", backfillMaxReplicationLagMs);
+            requireNonNegative("db.pool.idle.timeout", poolIdleTimeoutMs);
+            requireNonNegative("db.pool.borrow.timeout", poolBorrowTimeoutMs);
+            requireNonNegative("db.pool.validation.timeout", poolValidationTimeoutSec);
+            requireNonNegative("migration.reader.lazy.threshold", readerLazyThresholdBytes);
+            requireNonNegative("migration.statement.cache.size", statementCacheSize);
+            requireNonNegative("migration.prepare.threshold", prepareThreshold);
+            requireNonNegative("migration.lock.wait", lockWaitMs);
+            requireNonNegative("migration.online.lock.timeout", onlineLockTimeoutMs);
+            requireNonNegative("migration.online.statement.timeout", onlineStatementTimeoutMs);
+            requireNonNegative("migration.online.retry.delay", onlineRetryDelayMs);
+            requireNonNegative("migration.watch.debounce", watchDebounceMs);
+            if (parallelThreads > 1 && lockEnabled && parallelThreads >= poolSize) {
+                throw new IllegalArgumentException("Property 'db.pool.size' (" + poolSize
+                        + ") must be greater than 'migration.parallel.threads' (" + parallelThreads
+                        + ") while the migration lock is enabled.");
+            }
+            return new MigrationConfig(this);
+        }
+
+        private static void requireSet(String key, String value) {
+            if (value == null || value.isBlank()) {
+                throw new IllegalArgumentException("Property '" + key + "' not found in configuration.");
+            }
+        }
+
+        private static void requirePositive(String key, long value) {
+            if (value < 1) {
+                throw new IllegalArgumentException("Property '" + key + "' must be positive: " + value);
+            }
+        }
+
+        private static void requireNonNegative(String key, long value) {
+            if (value < 0) {
+                throw new IllegalArgumentException("Property '" + key + "' must not be negative: " + value);
+            }
+        }
+    }
+
+    /**
+     * Чтение типизированных значений из {@link Properties} с понятными сообщениями об ошибках.
+     */
+    private record PropertyReader(Properties properties) {
+
+        String required(String key) {
+            String value = properties.getProperty(key);
+            if (value == null) {
+                throw new IllegalArgumentException("Property '" + key + "' not found in configuration.");
+            }
+            return value;
+        }
+
+        String string(String key, String defaultValue) {
+            String value = properties.getProperty(key);
+            return value == null || value.isBlank() ? defaultValue : value.trim();
+        }
+
+        int integer(String key, int defaultValue) {
+            String value = properties.getProperty(key);
+            if (value == null || value.isBlank()) {
+                return defaultValue;
+            }
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Property '" + key + "' must be an integer: " + value, e);
+            }
+        }
+
+        long longInteger(String key, long defaultValue) {
+            String value = properties.getProperty(key);
+            if (value == null || value.isBlank()) {
+                return defaultValue;
+            }
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Property '" + key + "' must be an integer: " + value, e);
+            }
+        }
+
+        boolean bool(String key, boolean defaultValue) {
+            String value = properties.getProperty(key);
+            if (value == null || value.isBlank()) {
+                return defaultValue;
+            }
+            String trimmed = value.trim();
+            if (trimmed.equalsIgnoreCase("true")) {
+                return true;
+            }
+            if (trimmed.equalsIgnoreCase("false")) {
+                return false;
+            }
+            throw new IllegalArgumentException("Property '" + key + "' must be true or false: " + value);
+        }
+
+        TransactionMode transactionMode(String key, TransactionMode defaultValue) {
+            String value = properties.getProperty(key);
+            return value == null || value.isBlank() ? defaultValue : TransactionMode.fromProperty(value);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.example.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Получатель метрик, накапливающий их для публикации через JMX
+ * под именем {@value MetricsRegistry#JMX_OBJECT_NAME}.
+ */
+public class JmxMetricsListener implements MigrationMetricsListener, MigrationMetricsMXBean {
+    private final AtomicLong migrationsApplied = new AtomicLong();
+    private final AtomicLong migrationsFailed = new AtomicLong();
+    private final AtomicLong lastMigrationDurationNanos = new AtomicLong();
+    private final AtomicLong totalMigrationDurationNanos = new AtomicLong();
+    private final AtomicLong statementsExecuted = new AtomicLong();
+    private final AtomicLong rowsAffected = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong lockWaitNanos = new AtomicLong();
+    private final AtomicLong connectionsAcquired = new AtomicLong();
+    private final AtomicLong connectionAcquireNanos = new AtomicLong();
+    private final LatencyHistogram roundTripLatency = new LatencyHistogram();
+
+    @Override
+    public void onConnectionAcquired(long nanos) {
+        connectionsAcquired.incrementAndGet();
+        connectionAcquireNanos.addAndGet(nanos);
+    }
+
+    @Override
+    public void onStatementExecuted(String fileName, int statementCount, long nanos, long rows) {
+        statementsExecuted.addAndGet(statementCount);
+        rowsAffected.addAndGet(rows);
+        roundTripLatency.record(nanos);
+    }
+
+    @Override
+    public void onLockWait(long nanos) {
+        lockWaitNanos.addAndGet(nanos);
+    }
+
+    @Override
+    public void onMigrationApplied(MigrationMetrics metrics) {
+        migrationsApplied.incrementAndGet();
+        lastMigrationDurationNanos.set(metrics.getDurationNanos());
+        totalMigrationDurationNanos.addAndGet(metrics.getDurationNanos());
+        bytesRead.addAndGet(metrics.getBytesRead());
+    }
+
+    @Override
+    public void onMigrationFailed(String fileName, Throwable error) {
+        migrationsFailed.incrementAndGet();
+    }
+
+    @Override
+    public long getMigrationsApplied() {
+        return migrationsApplied.get();
+    }
+
+    @Override
+    public long getMigrationsFailed() {
+        return migrationsFailed.get();
+    }
+
+    @Override
+    public long getLastMigrationDurationMs() {
+        return lastMigrationDurationNanos.get() / 1_000_000;
+    }
+
+    @Override
+    public long getTotalMigrationDurationMs() {
+        return totalMigrationDurationNanos.get() / 1_000_000;
+    }
+
+    @Override
+    public long getStatementsExecuted() {
+        return statementsExecuted.get();
+    }
+
+    @Override
+    public long getRowsAffected() {
+        return rowsAffected.get();
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    @Override
+    public long getLockWaitMs() {
+        return lockWaitNanos.get() / 1_000_000;
+    }
+
+    @Override
+    public long getConnectionsAcquired() {
+        return connectionsAcquired.get();
+    }
+
+    @Override
+    public long getConnectionAcquireTimeMs() {
+        return connectionAcquireNanos.get() / 1_000_000;
+    }
+
+    @Override
+    public long[] getRoundTripLatencyBucketBoundsMicros() {
+        return roundTripLatency.getBucketBoundsMicros();
+    }
+
+    @Override
+    public long[] getRoundTripLatencyBucketCounts() {
+        return roundTripLatency.getBucketCounts();
+    }
+}
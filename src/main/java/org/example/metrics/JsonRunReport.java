@@ -0,0 +1,164 @@
+package org.example.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Получатель метрик, сохраняющий отчёт о запуске миграций в JSON-файл.
+ * Отчёт содержит показатели каждой применённой миграции, гистограмму задержек её обращений к базе данных
+ * (пакет операторов считается одним обращением) и список миграций, завершившихся ошибкой. Файл перезаписывается по окончании каждого запуска.
+ */
+@Slf4j
+public class JsonRunReport implements MigrationMetricsListener {
+    private final Path reportPath;
+    private final List<MigrationMetrics> applied = new ArrayList<>();
+    private final Map<String, String> failed = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+    private final AtomicLong lockWaitNanos = new AtomicLong();
+    private final AtomicLong connectionAcquireNanos = new AtomicLong();
+    private volatile Instant startedAt = Instant.now();
+    private volatile int pendingCount;
+
+    /**
+     * Конструктор для {@link JsonRunReport}.
+     *
+     * @param reportPath Путь к файлу отчёта.
+     */
+    public JsonRunReport(Path reportPath) {
+        this.reportPath = reportPath;
+    }
+
+    @Override
+    public synchronized void onRunStarted(int pendingCount) {
+        this.startedAt = Instant.now();
+        this.pendingCount = pendingCount;
+        applied.clear();
+        failed.clear();
+        latencies.clear();
+        lockWaitNanos.set(0);
+        connectionAcquireNanos.set(0);
+    }
+
+    @Override
+    public void onConnectionAcquired(long nanos) {
+        connectionAcquireNanos.addAndGet(nanos);
+    }
+
+    @Override
+    public void onStatementExecuted(String fileName, int statementCount, long nanos, long rowsAffected) {
+        latencies.computeIfAbsent(fileName, name -> new LatencyHistogram()).record(nanos);
+    }
+
+    @Override
+    public void onLockWait(long nanos) {
+        lockWaitNanos.addAndGet(nanos);
+    }
+
+    @Override
+    public synchronized void onMigrationApplied(MigrationMetrics metrics) {
+        applied.add(metrics);
+    }
+
+    @Override
+    public void onMigrationFailed(String fileName, Throwable error) {
+        failed.put(fileName, String.valueOf(error.getMessage()));
+    }
+
+    @Override
+    public synchronized void onRunFinished(boolean success) {
+        try (Writer writer = Files.newBufferedWriter(reportPath)) {
+            writer.write(toJson(success));
+            log.info("Отчёт о миграциях сохранён в '{}'", reportPath);
+        } catch (IOException e) {
+            log.warn("Не удалось сохранить отчёт о миграциях в '{}': {}", reportPath, e.getMessage());
+        }
+    }
+
+    private String toJson(boolean success) {
+        StringBuilder json = new StringBuilder("{\n");
+        json.append("  \"startedAt\": \"").append(startedAt).append("\",\n");
+        json.append("  \"finishedAt\": \"").append(Instant.now()).append("\",\n");
+        json.append("  \"success\": ").append(success).append(",\n");
+        json.append("  \"pending\": ").append(pendingCount).append(",\n");
+        json.append("  \"lockWaitMs\": ").append(lockWaitNanos.get() / 1_000_000).append(",\n");
+        json.append("  \"connectionAcquireMs\": ").append(connectionAcquireNanos.get() / 1_000_000).append(",\n");
+
+        json.append("  \"applied\": [");
+        for (int i = 0; i < applied.size(); i++) {
+            MigrationMetrics metrics = applied.get(i);
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append("    {\"fileName\": ").append(quote(metrics.getFileName()))
+                    .append(", \"durationMs\": ").append(metrics.getDurationMillis())
+                    .append(", \"statements\": ").append(metrics.getStatementCount())
+                    .append(", \"rowsAffected\": ").append(metrics.getRowsAffected())
+                    .append(", \"bytesRead\": ").append(metrics.getBytesRead())
+                    .append(", \"lockWaitMs\": ").append(metrics.getLockWaitMillis())
+                    .append(", \"roundTripLatencyMicros\": ").append(histogramJson(latencies.get(metrics.getFileName())))
+                    .append('}');
+        }
+        json.append(applied.isEmpty() ? "],\n" : "\n  ],\n");
+
+        json.append("  \"failed\": [");
+        List<Map.Entry<String, String>> failures = new ArrayList<>(failed.entrySet());
+        for (int i = 0; i < failures.size(); i++) {
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append("    {\"fileName\": ").append(quote(failures.get(i).getKey()))
+                    .append(", \"error\": ").append(quote(failures.get(i).getValue())).append('}');
+        }
+        json.append(failures.isEmpty() ? "]\n" : "\n  ]\n");
+        return json.append("}\n").toString();
+    }
+
+    /**
+     * Представляет непустые интервалы гистограммы в виде объекта «верхняя граница в мкс → количество».
+     */
+    private static String histogramJson(LatencyHistogram histogram) {
+        if (histogram == null) {
+            return "{}";
+        }
+        long[] bounds = histogram.getBucketBoundsMicros();
+        long[] counts = histogram.getBucketCounts();
+        StringBuilder json = new StringBuilder("{");
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                continue;
+            }
+            if (json.length() > 1) {
+                json.append(", ");
+            }
+            json.append('"').append(bounds[i] == Long.MAX_VALUE ? "+Inf" : String.valueOf(bounds[i])).append("\": ").append(counts[i]);
+        }
+        return json.append('}').toString();
+    }
+
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (char ch : value.toCharArray()) {
+            switch (ch) {
+                case '"' -> quoted.append("\\\"");
+                case '\\' -> quoted.append("\\\\");
+                case '\n' -> quoted.append("\\n");
+                case '\r' -> quoted.append("\\r");
+                case '\t' -> quoted.append("\\t");
+                default -> {
+                    if (ch < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) ch));
+                    } else {
+                        quoted.append(ch);
+                    }
+                }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
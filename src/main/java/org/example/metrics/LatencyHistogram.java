@@ -0,0 +1,53 @@
+package org.example.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Потокобезопасная гистограмма задержек с экспоненциальными границами интервалов.
+ * Верхние границы интервалов — степени двойки в микросекундах от 1 мкс до ~16 с;
+ * последний интервал учитывает все более долгие значения.
+ */
+public class LatencyHistogram {
+    private static final int BUCKETS = 26;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Учитывает значение задержки.
+     *
+     * @param nanos Задержка в наносекундах.
+     */
+    public void record(long nanos) {
+        long micros = Math.max(nanos / 1_000, 1);
+        int bucket = 64 - Long.numberOfLeadingZeros(micros - 1);
+        counts.incrementAndGet(Math.min(bucket, BUCKETS - 1));
+    }
+
+    /**
+     * Возвращает верхние границы интервалов в микросекундах.
+     * Для последнего интервала граница равна {@link Long#MAX_VALUE}.
+     *
+     * @return Границы интервалов.
+     */
+    public long[] getBucketBoundsMicros() {
+        long[] bounds = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS - 1; i++) {
+            bounds[i] = 1L << i;
+        }
+        bounds[BUCKETS - 1] = Long.MAX_VALUE;
+        return bounds;
+    }
+
+    /**
+     * Возвращает количество значений в каждом интервале.
+     *
+     * @return Счётчики интервалов.
+     */
+    public long[] getBucketCounts() {
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+        }
+        return snapshot;
+    }
+}
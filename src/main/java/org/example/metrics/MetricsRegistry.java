@@ -0,0 +1,168 @@
+package org.example.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.config.ConfigurationLoader;
+import org.example.config.MigrationConfig;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Реестр получателей метрик миграций.
+ * <p>
+ * При первом обращении подключает получателей, найденных через {@link ServiceLoader},
+ * публикует {@link JmxMetricsListener} в JMX (свойство {@code migration.metrics.jmx}, по умолчанию включено)
+ * и, если задано свойство {@code migration.metrics.report}, сохраняет отчёт о запуске в JSON-файл.
+ */
+@Slf4j
+public final class MetricsRegistry {
+    /**
+     * Имя, под которым метрики публикуются в JMX.
+     */
+    public static final String JMX_OBJECT_NAME = "org.example.migration:type=MigrationMetrics";
+
+    private static final List<MigrationMetricsListener> listeners = new CopyOnWriteArrayList<>();
+    private static final MigrationMetricsListener composite = new CompositeListener(listeners);
+    private static volatile boolean defaultsLoaded;
+
+    private MetricsRegistry() {
+    }
+
+    /**
+     * Регистрирует получателя метрик.
+     *
+     * @param listener Получатель метрик.
+     */
+    public static void register(MigrationMetricsListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Отменяет регистрацию получателя метрик.
+     *
+     * @param listener Получатель метрик.
+     */
+    public static void unregister(MigrationMetricsListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Возвращает получателя, передающего события всем зарегистрированным получателям.
+     * Ошибки отдельных получателей записываются в лог и не прерывают миграцию.
+     *
+     * @return Составной получатель метрик.
+     */
+    public static MigrationMetricsListener listener() {
+        if (!defaultsLoaded) {
+            loadDefaults();
+        }
+        return composite;
+    }
+
+    /**
+     * Возвращает получателя, передающего события всем зарегистрированным получателям и дополнительным
+     * получателям одного запуска, которые не регистрируются глобально.
+     *
+     * @param extra Дополнительные получатели метрик.
+     * @return Составной получатель метрик.
+     */
+    public static MigrationMetricsListener listener(MigrationMetricsListener... extra) {
+        List<MigrationMetricsListener> targets = new ArrayList<>(extra.length + 1);
+        targets.add(listener());
+        targets.addAll(List.of(extra));
+        return new CompositeListener(targets);
+    }
+
+    private static synchronized void loadDefaults() {
+        if (defaultsLoaded) {
+            return;
+        }
+        defaultsLoaded = true;
+
+        ServiceLoader.load(MigrationMetricsListener.class).forEach(listeners::add);
+
+        MigrationConfig config = ConfigurationLoader.getInstance().getSharedConfig();
+        if (config.isMetricsJmx()) {
+            registerJmx();
+        }
+        if (config.getMetricsReport() != null) {
+            listeners.add(new JsonRunReport(Paths.get(config.getMetricsReport())));
+        }
+    }
+
+    private static void registerJmx() {
+        JmxMetricsListener jmx = new JmxMetricsListener();
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(JMX_OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(jmx, name);
+                listeners.add(jmx);
+                log.debug("Метрики миграций опубликованы в JMX: {}", JMX_OBJECT_NAME);
+            }
+        } catch (JMException e) {
+            log.warn("Не удалось опубликовать метрики миграций в JMX: {}", e.getMessage());
+        }
+    }
+
+    private static class CompositeListener implements MigrationMetricsListener {
+        private final List<MigrationMetricsListener> targets;
+
+        CompositeListener(List<MigrationMetricsListener> targets) {
+            this.targets = targets;
+        }
+
+        private void forEach(Consumer<MigrationMetricsListener> event) {
+            for (MigrationMetricsListener listener : targets) {
+                try {
+                    event.accept(listener);
+                } catch (RuntimeException e) {
+                    log.warn("Ошибка в получателе метрик {}: {}", listener.getClass().getName(), e.getMessage(), e);
+                }
+            }
+        }
+
+        @Override
+        public void onRunStarted(int pendingCount) {
+            forEach(listener -> listener.onRunStarted(pendingCount));
+        }
+
+        @Override
+        public void onConnectionAcquired(long nanos) {
+            forEach(listener -> listener.onConnectionAcquired(nanos));
+        }
+
+        @Override
+        public void onStatementExecuted(String fileName, int statementCount, long nanos, long rowsAffected) {
+            forEach(listener -> listener.onStatementExecuted(fileName, statementCount, nanos, rowsAffected));
+        }
+
+        @Override
+        public void onLockWait(long nanos) {
+            forEach(listener -> listener.onLockWait(nanos));
+        }
+
+        @Override
+        public void onMigrationApplied(MigrationMetrics metrics) {
+            forEach(listener -> listener.onMigrationApplied(metrics));
+        }
+
+        @Override
+        public void onMigrationFailed(String fileName, Throwable error) {
+            forEach(listener -> listener.onMigrationFailed(fileName, error));
+        }
+
+        @Override
+        public void onRunFinished(boolean success) {
+            forEach(listener -> listener.onRunFinished(success));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.example.metrics;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Показатели применения одной миграции.
+ */
+@Getter
+@AllArgsConstructor
+public class MigrationMetrics {
+    /**
+     * Имя файла миграции.
+     */
+    private final String fileName;
+    /**
+     * Длительность применения миграции в наносекундах.
+     */
+    private final long durationNanos;
+    /**
+     * Количество выполненных операторов.
+     */
+    private final int statementCount;
+    /**
+     * Количество затронутых строк по данным драйвера.
+     */
+    private final long rowsAffected;
+    /**
+     * Количество байт, прочитанных с диска.
+     */
+    private final long bytesRead;
+    /**
+     * Время ожидания блокировок в наносекундах.
+     */
+    private final long lockWaitNanos;
+
+    /**
+     * Возвращает длительность применения миграции в миллисекундах.
+     *
+     * @return Длительность в миллисекундах.
+     */
+    public long getDurationMillis() {
+        return durationNanos / 1_000_000;
+    }
+
+    /**
+     * Возвращает время ожидания блокировок в миллисекундах.
+     *
+     * @return Время ожидания в миллисекундах.
+     */
+    public long getLockWaitMillis() {
+        return lockWaitNanos / 1_000_000;
+    }
+}
@@ -0,0 +1,75 @@
+package org.example.metrics;
+
+/**
+ * Интерфейс получателя метрик процесса миграции.
+ * <p>
+ * Реализации подключаются через {@link MetricsRegistry#register(MigrationMetricsListener)} или
+ * через {@link java.util.ServiceLoader}: для этого имя класса указывается в файле
+ * {@code META-INF/services/org.example.metrics.MigrationMetricsListener}.
+ * Методы могут вызываться из нескольких потоков одновременно и не должны выполнять долгих операций.
+ * Все методы имеют пустую реализацию по умолчанию.
+ */
+public interface MigrationMetricsListener {
+
+    /**
+     * Вызывается перед применением миграций.
+     *
+     * @param pendingCount Количество ожидающих миграций.
+     */
+    default void onRunStarted(int pendingCount) {
+    }
+
+    /**
+     * Вызывается после получения соединения с базой данных.
+     *
+     * @param nanos Время получения соединения в наносекундах.
+     */
+    default void onConnectionAcquired(long nanos) {
+    }
+
+    /**
+     * Вызывается после каждого обращения к базе данных при применении миграции.
+     * Для пакета операторов вызывается один раз на пакет.
+     *
+     * @param fileName       Имя файла миграции.
+     * @param statementCount Количество операторов в обращении.
+     * @param nanos          Длительность обращения в наносекундах.
+     * @param rowsAffected   Количество затронутых строк.
+     */
+    default void onStatementExecuted(String fileName, int statementCount, long nanos, long rowsAffected) {
+    }
+
+    /**
+     * Вызывается после ожидания блокировки: межпроцессной блокировки миграций
+     * или блокировки таблицы при выполнении неблокирующей миграции.
+     *
+     * @param nanos Время ожидания в наносекундах.
+     */
+    default void onLockWait(long nanos) {
+    }
+
+    /**
+     * Вызывается после успешного применения миграции.
+     *
+     * @param metrics Показатели миграции.
+     */
+    default void onMigrationApplied(MigrationMetrics metrics) {
+    }
+
+    /**
+     * Вызывается при ошибке применения миграции.
+     *
+     * @param fileName Имя файла миграции.
+     * @param error    Ошибка.
+     */
+    default void onMigrationFailed(String fileName, Throwable error) {
+    }
+
+    /**
+     * Вызывается после завершения применения миграций.
+     *
+     * @param success {@code true}, если все миграции применены успешно.
+     */
+    default void onRunFinished(boolean success) {
+    }
+}
@@ -0,0 +1,31 @@
+package org.example.metrics;
+
+/**
+ * Управляемый интерфейс JMX с накопленными метриками миграций.
+ */
+public interface MigrationMetricsMXBean {
+
+    long getMigrationsApplied();
+
+    long getMigrationsFailed();
+
+    long getLastMigrationDurationMs();
+
+    long getTotalMigrationDurationMs();
+
+    long getStatementsExecuted();
+
+    long getRowsAffected();
+
+    long getBytesRead();
+
+    long getLockWaitMs();
+
+    long getConnectionsAcquired();
+
+    long getConnectionAcquireTimeMs();
+
+    long[] getRoundTripLatencyBucketBoundsMicros();
+
+    long[] getRoundTripLatencyBucketCounts();
+}
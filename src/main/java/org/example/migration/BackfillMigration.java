@@ -0,0 +1,365 @@
+package org.example.migration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.config.MigrationConfig;
+import org.example.metrics.MigrationMetricsListener;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Применение миграций, обрабатывающих большую таблицу частями (заголовок {@code -- @backfill: <таблица>}).
+ * <p>
+ * Таблица обходится по ключу {@code @key} (по умолчанию {@code id}) страницами по {@code @chunk} строк.
+ * Для каждой страницы операторы миграции выполняются с параметрами {@code :from} и {@code :to} —
+ * наименьшим и наибольшим ключом страницы включительно:
+ * <pre>
+ * -- @backfill: public.orders
+ * -- @key: id
+ * -- @chunk: 5000
+ * UPDATE public.orders SET total_cents = total * 100 WHERE id BETWEEN :from AND :to AND total_cents IS NULL;
+ * </pre>
+ * Каждая страница выполняется в своей транзакции вместе с сохранением контрольной точки
+ * в таблице {@code applied_migrations_backfill}, поэтому после сбоя обработка продолжается со следующей страницы.
+ * Скорость ограничивается заголовком {@code @rate} или свойством {@code migration.backfill.rows.per.second},
+ * а при отставании реплик больше {@code migration.backfill.max.replication.lag} обработка приостанавливается.
+ * <p>
+ * Операторы выполняются повторно для страниц, не успевших зафиксироваться, поэтому они должны быть идемпотентными.
+ */
+@Slf4j
+class BackfillMigration {
+    private static final String DEFAULT_KEY = "id";
+    private static final Pattern PARAMETER_PATTERN = Pattern.compile("(?<![:\\w]):(from|to)\\b");
+    private static final long LAG_POLL_INTERVAL_MS = 1_000;
+
+    private static final String SELECT_CHECKPOINT_SQL =
+            "SELECT last_key, rows_processed FROM applied_migrations_backfill WHERE file_name = ?";
+    private static final String INSERT_CHECKPOINT_SQL =
+            "INSERT INTO applied_migrations_backfill (file_name, rows_processed, updated_at) VALUES (?, 0, CURRENT_TIMESTAMP)";
+    private static final String UPDATE_CHECKPOINT_SQL =
+            "UPDATE applied_migrations_backfill SET last_key = ?, rows_processed = ?, updated_at = CURRENT_TIMESTAMP WHERE file_name = ?";
+    private static final String REPLICATION_LAG_SQL =
+            "SELECT COALESCE(MAX(EXTRACT(EPOCH FROM replay_lag)) * 1000, 0) FROM pg_stat_replication";
+
+    private final int defaultChunkSize;
+    private final long defaultRowsPerSecond;
+    private final long maxReplicationLagMs;
+
+    /**
+     * Конструктор для {@link BackfillMigration}.
+     * Параметры по умолчанию берутся из свойств {@code migration.backfill.*}.
+     *
+     * @param config Конфигурация инструмента.
+     */
+    BackfillMigration(MigrationConfig config) {
+        this.defaultChunkSize = config.getBackfillChunkSize();
+        this.defaultRowsPerSecond = config.getBackfillRowsPerSecond();
+        this.maxReplicationLagMs = config.getBackfillMaxReplicationLagMs();
+    }
+
+    /**
+     * Проверяет, является ли миграция backfill-миграцией.
+     *
+     * @param migration Миграция.
+     * @return {@code true}, если в заголовке миграции есть {@code @backfill}.
+     */
+    static boolean isBackfill(MigrationFile migration) {
+        return migration.getHeaders().containsKey(MigrationHeaders.BACKFILL);
+    }
+
+    /**
+     * Обрабатывает таблицу частями, начиная с последней сохранённой контрольной точки.
+     * Соединение должно находиться в режиме ручной фиксации; каждая часть фиксируется отдельно.
+     *
+     * @param connection Соединение с базой данных.
+     * @param migration  Backfill-миграция.
+     * @param metrics    Получатель показателей выполнения частей.
+     * @return Итог выполнения: количество операторов миграции и затронутых строк.
+     * @throws SQLException если заголовок некорректен или часть не удалось обработать.
+     */
+    ExecutionSummary apply(Connection connection, MigrationFile migration, MigrationMetricsListener metrics) throws SQLException {
+        String table = migration.getHeaders().get(MigrationHeaders.BACKFILL);
+        if (table == null || table.isBlank()) {
+            throw new SQLException("Backfill migration " + migration.getFileName() + " has no '-- @backfill: <table>' header.");
+        }
+        String key = migration.getHeaders().getOrDefault(MigrationHeaders.KEY, DEFAULT_KEY);
+        if (key.isBlank()) {
+            key = DEFAULT_KEY;
+        }
+        int chunkSize = (int) headerNumber(migration, MigrationHeaders.CHUNK, defaultChunkSize);
+        long rowsPerSecond = headerNumber(migration, MigrationHeaders.RATE, defaultRowsPerSecond);
+
+        List<ChunkStatement> statements = readStatements(migration);
+        String firstChunkSql = "SELECT MIN(" + key + "), MAX(" + key + ") FROM (SELECT " + key + " FROM " + table
+                + " ORDER BY " + key + " LIMIT " + chunkSize + ") chunk";
+        String nextChunkSql = "SELECT MIN(" + key + "), MAX(" + key + ") FROM (SELECT " + key + " FROM " + table
+                + " WHERE " + key + " > ? ORDER BY " + key + " LIMIT " + chunkSize + ") chunk";
+
+        Checkpoint checkpoint = loadCheckpoint(connection, migration.getFileName());
+        if (checkpoint.lastKey() != null) {
+            log.info("Продолжаем backfill {} с ключа {} (уже обработано строк: {})",
+                    migration.getFileName(), checkpoint.lastKey(), checkpoint.rowsProcessed());
+        }
+
+        String lastKey = checkpoint.lastKey();
+        long rowsProcessed = checkpoint.rowsProcessed();
+        long rowsThisRun = 0;
+        int chunks = 0;
+        long startedAt = System.nanoTime();
+
+        // Операторы подготавливаются один раз и переиспользуются для всех частей
+        List<PreparedStatement> prepared = new ArrayList<>(statements.size());
+        try (PreparedStatement firstChunk = connection.prepareStatement(firstChunkSql);
+             PreparedStatement nextChunk = connection.prepareStatement(nextChunkSql);
+             PreparedStatement saveCheckpoint = connection.prepareStatement(UPDATE_CHECKPOINT_SQL)) {
+            for (ChunkStatement statement : statements) {
+                prepared.add(connection.prepareStatement(statement.sql()));
+            }
+            while (true) {
+                String[] bounds = lastKey == null ? queryBounds(firstChunk) : queryBounds(bind(nextChunk, lastKey));
+                if (bounds == null) {
+                    connection.commit();
+                    break;
+                }
+
+                long chunkStartedAt = System.nanoTime();
+                long rows = 0;
+                for (int i = 0; i < statements.size(); i++) {
+                    rows += statements.get(i).execute(prepared.get(i), bounds[0], bounds[1]);
+                }
+                lastKey = bounds[1];
+                rowsProcessed += rows;
+                saveCheckpoint.setString(1, lastKey);
+                saveCheckpoint.setLong(2, rowsProcessed);
+                saveCheckpoint.setString(3, migration.getFileName());
+                saveCheckpoint.executeUpdate();
+                connection.commit();
+
+                chunks++;
+                rowsThisRun += rows;
+                metrics.onStatementExecuted(migration.getFileName(), statements.size(), System.nanoTime() - chunkStartedAt, rows);
+                log.debug("Backfill {}: часть {} до ключа {}, строк: {}", migration.getFileName(), chunks, lastKey, rows);
+
+                throttle(rowsPerSecond, rowsThisRun, startedAt);
+                waitForReplicas(connection, migration.getFileName());
+            }
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            closeAll(prepared);
+        }
+
+        log.info("Backfill {} завершён: частей {}, строк {} (всего с учётом прошлых запусков: {})",
+                migration.getFileName(), chunks, rowsThisRun, rowsProcessed);
+        return new ExecutionSummary(statements.size(), rowsThisRun, 0);
+    }
+
+    private static void closeAll(List<PreparedStatement> statements) {
+        for (PreparedStatement statement : statements) {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                log.warn("Не удалось закрыть подготовленный запрос backfill-миграции: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static List<ChunkStatement> readStatements(MigrationFile migration) throws SQLException {
+        List<ChunkStatement> statements = new ArrayList<>();
+        try (SqlStatementSplitter splitter = new SqlStatementSplitter(migration.openReader())) {
+            SqlStatement sql;
+            while ((sql = splitter.next()) != null) {
+                statements.add(ChunkStatement.parse(sql.getSql()));
+            }
+        } catch (IOException e) {
+            throw new SQLException("Failed to read migration " + migration.getFileName(), e);
+        }
+        if (statements.isEmpty()) {
+            throw new SQLException("Backfill migration " + migration.getFileName() + " has no statements.");
+        }
+        return statements;
+    }
+
+    private static Checkpoint loadCheckpoint(Connection connection, String fileName) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement(SELECT_CHECKPOINT_SQL)) {
+            select.setString(1, fileName);
+            try (ResultSet resultSet = select.executeQuery()) {
+                if (resultSet.next()) {
+                    Checkpoint checkpoint = new Checkpoint(resultSet.getString(1), resultSet.getLong(2));
+                    connection.commit();
+                    return checkpoint;
+                }
+            }
+        }
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_CHECKPOINT_SQL)) {
+            insert.setString(1, fileName);
+            insert.executeUpdate();
+        }
+        connection.commit();
+        return new Checkpoint(null, 0);
+    }
+
+    private static String[] queryBounds(PreparedStatement statement) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery()) {
+            if (resultSet.next() && resultSet.getString(2) != null) {
+                return new String[]{resultSet.getString(1), resultSet.getString(2)};
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Привязывает значение ключа как текст без указания типа: PostgreSQL выводит тип из столбца,
+     * поэтому ключ может быть числом, строкой, UUID или датой.
+     */
+    private static PreparedStatement bind(PreparedStatement statement, String... keys) throws SQLException {
+        for (int i = 0; i < keys.length; i++) {
+            statement.setObject(i + 1, keys[i], Types.OTHER);
+        }
+        return statement;
+    }
+
+    private static void throttle(long rowsPerSecond, long rows, long startedAt) throws SQLException {
+        if (rowsPerSecond <= 0) {
+            return;
+        }
+        long expectedNanos = rows * 1_000_000_000L / rowsPerSecond;
+        long aheadMillis = (expectedNanos - (System.nanoTime() - startedAt)) / 1_000_000;
+        if (aheadMillis > 0) {
+            sleep(aheadMillis);
+        }
+    }
+
+    private void waitForReplicas(Connection connection, String fileName) throws SQLException {
+        if (maxReplicationLagMs <= 0) {
+            return;
+        }
+        while (true) {
+            long lag;
+            try (PreparedStatement statement = connection.prepareStatement(REPLICATION_LAG_SQL);
+                 ResultSet resultSet = statement.executeQuery()) {
+                lag = resultSet.next() ? resultSet.getLong(1) : 0;
+            }
+            connection.commit();
+            if (lag <= maxReplicationLagMs) {
+                return;
+            }
+            log.info("Backfill {} приостановлен: отставание реплик {} мс больше допустимых {} мс.",
+                    fileName, lag, maxReplicationLagMs);
+            sleep(LAG_POLL_INTERVAL_MS);
+        }
+    }
+
+    private static long headerNumber(MigrationFile migration, String header, long defaultValue) throws SQLException {
+        String value = migration.getHeaders().get(header);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            long number = Long.parseLong(value.trim());
+            if (number < 1) {
+                throw new NumberFormatException();
+            }
+            return number;
+        } catch (NumberFormatException e) {
+            throw new SQLException("Header '@" + header + "' of migration " + migration.getFileName()
+                    + " must be a positive integer: " + value, e);
+        }
+    }
+
+    private static void sleep(long millis) throws SQLException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while throttling a backfill migration.", e);
+        }
+    }
+
+    /**
+     * Контрольная точка backfill-миграции.
+     *
+     * @param lastKey       Наибольший ключ последней зафиксированной части или {@code null}, если частей ещё не было.
+     * @param rowsProcessed Количество строк, обработанных во всех запусках.
+     */
+    private record Checkpoint(String lastKey, long rowsProcessed) {
+    }
+
+    /**
+     * Оператор backfill-миграции с параметрами {@code :from} и {@code :to}, заменёнными на {@code ?}.
+     *
+     * @param sql        Текст оператора для {@link PreparedStatement}.
+     * @param parameters Имена параметров в порядке их появления в тексте.
+     */
+    record ChunkStatement(String sql, List<String> parameters) {
+
+        /**
+         * Заменяет параметры {@code :from} и {@code :to} на {@code ?}.
+         * Строки, идентификаторы в кавычках, комментарии и dollar-quoting копируются как есть,
+         * приведения типов {@code ::} параметрами не считаются.
+         */
+        static ChunkStatement parse(String sql) {
+            List<String> parameters = new ArrayList<>();
+            StringBuilder result = new StringBuilder(sql.length());
+            Matcher matcher = PARAMETER_PATTERN.matcher(sql).useTransparentBounds(true);
+            int length = sql.length();
+            int i = 0;
+            while (i < length) {
+                char c = sql.charAt(i);
+                char next = i + 1 < length ? sql.charAt(i + 1) : 0;
+                int end;
+                if (c == '\'') {
+                    end = StatementShape.skipString(sql, i, isEscapeString(sql, i));
+                } else if (c == '"') {
+                    end = sql.indexOf('"', i + 1);
+                    end = end < 0 ? length : end + 1;
+                } else if (c == '-' && next == '-') {
+                    end = sql.indexOf('\n', i);
+                    end = end < 0 ? length : end;
+                } else if (c == '/' && next == '*') {
+                    end = StatementShape.skipBlockComment(sql, i);
+                } else if (c == '$') {
+                    end = StatementShape.skipDollarQuoted(sql, i);
+                } else if (c == ':' && matcher.region(i, length).lookingAt()) {
+                    parameters.add(matcher.group(1));
+                    result.append('?');
+                    i = matcher.end();
+                    continue;
+                } else {
+                    end = i + 1;
+                }
+                result.append(sql, i, end);
+                i = end;
+            }
+            return new ChunkStatement(result.toString(), List.copyOf(parameters));
+        }
+
+        private static boolean isEscapeString(String sql, int quote) {
+            return quote > 0 && (sql.charAt(quote - 1) == 'E' || sql.charAt(quote - 1) == 'e')
+                    && (quote == 1 || (!Character.isLetterOrDigit(sql.charAt(quote - 2)) && sql.charAt(quote - 2) != '_'));
+        }
+
+        /**
+         * Выполняет оператор для части с ключами от {@code from} до {@code to} включительно.
+         *
+         * @param statement Запрос, подготовленный по {@link #sql()}.
+         */
+        long execute(PreparedStatement statement, String from, String to) throws SQLException {
+            String[] values = new String[parameters.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = parameters.get(i).equals("from") ? from : to;
+            }
+            bind(statement, values);
+            return Math.max(statement.executeUpdate(), 0);
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package org.example.migration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.config.MigrationConfig;
+import org.example.metrics.MetricsRegistry;
+import org.example.metrics.MigrationMetrics;
+import org.example.metrics.MigrationMetricsListener;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Базовые схемы (baseline): один скрипт вместо истории миграций до заданной версии.
+ * <p>
+ * {@link #squash(long, DataSource)} строит скрипт по схеме базы, в которой применены миграции
+ * ровно до этой версии, и сохраняет его в {@code <migration.path>/baseline/<версия>_baseline.sql}.
+ * {@link #bootstrap(DataSource, MigrationManager)} применяет последний такой скрипт к пустой базе и одним пакетом отмечает
+ * все покрытые им файлы миграций как выполненные; более новые миграции затем применяются как обычно.
+ * Сама базовая схема тоже записывается в {@code applied_migrations}, поэтому база считается инициализированной
+ * и после удаления покрытых файлов. Базы, где миграции уже применялись, продолжают работать по истории,
+ * поэтому старые файлы можно удалить только после обновления всех таких баз.
+ * <p>
+ * Базовая схема переносит только схему, поэтому миграции, изменяющие данные, свернуть нельзя.
+ */
+@Slf4j
+public class BaselineManager {
+    /**
+     * Папка базовых схем внутри папки миграций. Файлы в ней не считаются миграциями.
+     */
+    public static final String BASELINE_FOLDER = "baseline";
+
+    private static final Pattern BASELINE_PATTERN = Pattern.compile("\\d{14}_baseline\\.sql");
+    private static final String APPLIED_SQL = "SELECT file_name, version FROM applied_migrations";
+    private static final String ANY_APPLIED_SQL = "SELECT EXISTS (SELECT 1 FROM applied_migrations)";
+    private static final Set<String> DATA_KEYWORDS = Set.of("INSERT", "UPDATE", "DELETE", "MERGE", "COPY");
+
+    private final MigrationFileReader migrationFileReader;
+    private final MigrationFileReader baselineReader;
+    private final MigrationExecutor migrationExecutor;
+    private final MigrationMetricsListener metrics = MetricsRegistry.listener();
+
+    /**
+     * Конструктор для {@link BaselineManager}.
+     *
+     * @param migrationFileReader Экземпляр {@link MigrationFileReader} папки миграций.
+     * @param config              Конфигурация инструмента.
+     */
+    public BaselineManager(MigrationFileReader migrationFileReader, MigrationConfig config) {
+        this.migrationFileReader = migrationFileReader;
+        this.baselineReader = new MigrationFileReader(getBaselineFolder().toString(), 1, config.getReaderLazyThresholdBytes());
+        this.migrationExecutor = new MigrationExecutor(config);
+    }
+
+    /**
+     * Возвращает путь к папке базовых схем.
+     *
+     * @return Путь к папке {@code baseline} внутри папки миграций.
+     */
+    public Path getBaselineFolder() {
+        return migrationFileReader.getMigrationFolder().resolve(BASELINE_FOLDER);
+    }
+
+    /**
+     * Строит базовую схему по базе, в которой применены все миграции до заданной версии включительно и ни одной более новой.
+     *
+     * @param upToVersion Последняя версия (временная метка), которую покрывает базовая схема.
+     * @param dataSource  Источник соединений с базой данных.
+     * @return Путь к созданному файлу.
+     * @throws IOException           если не удаётся прочитать миграции или записать файл.
+     * @throws IllegalStateException если миграции до этой версии изменяют данные, состояние базы не соответствует
+     *                               версии или не удаётся прочитать схему.
+     */
+    public Path squash(long upToVersion, DataSource dataSource) throws IOException {
+        List<Path> covered = coveredFiles(migrationFileReader.scanMigrationFiles(), upToVersion);
+        if (covered.isEmpty()) {
+            throw new IllegalStateException("No migration files up to version " + upToVersion + " to squash.");
+        }
+
+        List<String> dataMigrations = findDataMigrations(covered);
+        if (!dataMigrations.isEmpty()) {
+            log.error("Миграции {} изменяют данные, которые не переносятся в базовую схему.", dataMigrations);
+            throw new IllegalStateException("Cannot squash migrations up to " + upToVersion
+                    + ": data changes are not part of a schema baseline: " + dataMigrations);
+        }
+
+        List<String> statements;
+        try (Connection connection = dataSource.getConnection()) {
+            verifyAppliedUpTo(connection, upToVersion, covered);
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            try {
+                statements = SchemaIntrospector.introspect(connection);
+            } finally {
+                connection.rollback();
+                connection.setReadOnly(false);
+            }
+        } catch (SQLException e) {
+            log.error("Ошибка при чтении схемы базы данных: {}", e.getMessage(), e);
+            throw new IllegalStateException("Failed to introspect database schema: " + e.getMessage(), e);
+        }
+
+        Path file = getBaselineFolder().resolve(upToVersion + "_baseline.sql");
+        Files.createDirectories(file.getParent());
+        StringBuilder script = new StringBuilder()
+                .append("-- Базовая схема: миграции до версии ").append(upToVersion).append(" включительно (")
+                .append(covered.size()).append(" файлов).\n")
+                .append("-- Создана ").append(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+                .append(" по схеме базы данных, не редактируйте вручную.\n\n");
+        for (String statement : statements) {
+            script.append(statement).append(";\n\n");
+        }
+        Files.writeString(file, script);
+
+        log.info("Базовая схема {} создана: {} операторов, покрывает {} миграций.", file, statements.size(), covered.size());
+        return file;
+    }
+
+    /**
+     * Читает последнюю базовую схему.
+     *
+     * @return Базовая схема с наибольшей версией или пустое значение, если папки {@code baseline} нет.
+     * @throws IOException если не удаётся прочитать файл.
+     */
+    public Optional<MigrationFile> readBaseline() throws IOException {
+        if (!Files.isDirectory(getBaselineFolder())) {
+            return Optional.empty();
+        }
+        List<Path> baselines = baselineReader.scanMigrationFiles().stream()
+                .filter(path -> BASELINE_PATTERN.matcher(path.getFileName().toString()).matches())
+                .toList();
+        if (baselines.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(baselineReader.loadMigrationFiles(List.of(baselines.get(baselines.size() - 1))).get(0));
+    }
+
+    /**
+     * Применяет последнюю базовую схему, если в базе ещё не применено ни одной миграции,
+     * и записывает покрытые ею файлы в манифест контрольных сумм, чтобы следующий запуск не читал их заново.
+     *
+     * @param dataSource       Источник соединений с базой данных.
+     * @param migrationManager Экземпляр {@link MigrationManager}, ведущий манифест папки миграций.
+     * @return {@code true}, если базовая схема была применена.
+     * @throws IOException если не удаётся прочитать файлы.
+     */
+    public boolean bootstrap(DataSource dataSource, MigrationManager migrationManager) throws IOException {
+        Optional<MigrationFile> baseline = readBaseline();
+        if (baseline.isEmpty()) {
+            return false;
+        }
+        List<Path> files = migrationFileReader.scanMigrationFiles();
+        List<String> fileNames = files.stream().map(path -> path.getFileName().toString()).toList();
+        if (!bootstrap(baseline.get(), fileNames, dataSource)) {
+            return false;
+        }
+        migrationManager.recordAppliedFiles(coveredFiles(files, MigrationManager.extractTimestamp(baseline.get().getFileName())));
+        return true;
+    }
+
+    /**
+     * Применяет базовую схему, если в базе ещё не применено ни одной миграции.
+     * Скрипт, запись о самой базовой схеме и записи о покрытых миграциях фиксируются в одной транзакции.
+     * Запись о базовой схеме остаётся в таблице, даже если покрытых файлов в папке уже нет,
+     * и следующий запуск не применяет схему повторно.
+     *
+     * @param baseline   Базовая схема.
+     * @param fileNames  Имена файлов миграций в папке.
+     * @param dataSource Источник соединений с базой данных.
+     * @return {@code true}, если базовая схема была применена.
+     * @throws IllegalStateException если не удаётся применить базовую схему.
+     */
+    public boolean bootstrap(MigrationFile baseline, List<String> fileNames, DataSource dataSource) {
+        long version = MigrationManager.extractTimestamp(baseline.getFileName());
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement bookkeeping = connection.prepareStatement(MigrationExecutor.INSERT_MIGRATION_SQL)) {
+            if (hasApplied(connection)) {
+                return false;
+            }
+
+            log.info("База данных пуста, применяем базовую схему {}...", baseline.getFileName());
+            List<MigrationMetrics> covered = new ArrayList<>();
+            for (String fileName : fileNames) {
+                if (MigrationManager.extractTimestamp(fileName) <= version) {
+                    covered.add(new MigrationMetrics(fileName, 0, 0, 0, 0, 0));
+                }
+            }
+
+            connection.setAutoCommit(false);
+            try {
+                MigrationMetrics applied = migrationExecutor.applyMigration(connection, baseline);
+                List<MigrationMetrics> records = new ArrayList<>(covered.size() + 1);
+                records.add(applied);
+                records.addAll(covered);
+                migrationExecutor.logMigrationsAsExecuted(bookkeeping, records);
+                connection.commit();
+                metrics.onMigrationApplied(applied);
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+            log.info("Базовая схема {} применена, миграций отмечено как выполненные: {}", baseline.getFileName(), covered.size());
+            return true;
+        } catch (SQLException e) {
+            log.error("Ошибка при применении базовой схемы {}: {}", baseline.getFileName(), e.getMessage(), e);
+            throw new IllegalStateException("Failed to apply baseline " + baseline.getFileName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static List<Path> coveredFiles(List<Path> files, long upToVersion) {
+        return files.stream()
+                .filter(path -> MigrationManager.extractTimestamp(path.getFileName().toString()) <= upToVersion)
+                .toList();
+    }
+
+    /**
+     * Находит миграции, изменяющие данные: файлы {@code .copy} и SQL-миграции с операторами
+     * INSERT, UPDATE, DELETE, MERGE или COPY.
+     */
+    private List<String> findDataMigrations(List<Path> covered) throws IOException {
+        List<String> dataMigrations = new ArrayList<>();
+        for (MigrationFile migration : migrationFileReader.loadMigrationFiles(covered)) {
+            if (CopyMigration.isCopyMigration(migration.getFileName()) || changesData(migration)) {
+                dataMigrations.add(migration.getFileName());
+            }
+        }
+        return dataMigrations;
+    }
+
+    private static boolean changesData(MigrationFile migration) throws IOException {
+        try (SqlStatementSplitter splitter = new SqlStatementSplitter(migration.openReader())) {
+            SqlStatement sql;
+            while ((sql = splitter.next()) != null) {
+                if (DATA_KEYWORDS.contains(sql.getKeyword())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Проверяет, что схема базы соответствует версии: применены все локальные миграции до неё и ни одной после.
+     */
+    private static void verifyAppliedUpTo(Connection connection, long upToVersion, List<Path> covered) throws SQLException {
+        List<String> newer = new ArrayList<>();
+        Set<String> applied = new HashSet<>();
+        try (PreparedStatement statement = connection.prepareStatement(APPLIED_SQL);
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                String fileName = resultSet.getString(1);
+                long version = resultSet.getLong(2);
+                if (resultSet.wasNull()) {
+                    version = MigrationManager.extractTimestamp(fileName);
+                }
+                (version > upToVersion ? newer : applied).add(fileName);
+            }
+        }
+        if (!newer.isEmpty()) {
+            throw new IllegalStateException("Database has migrations newer than " + upToVersion + " applied: " + newer);
+        }
+        List<String> missing = covered.stream().map(path -> path.getFileName().toString())
+                .filter(fileName -> !applied.contains(fileName))
+                .toList();
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("Migrations up to " + upToVersion + " are not applied to the database: " + missing);
+        }
+    }
+
+    private static boolean hasApplied(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(ANY_APPLIED_SQL);
+             ResultSet resultSet = statement.executeQuery()) {
+            return resultSet.next() && resultSet.getBoolean(1);
+        }
+    }
+}
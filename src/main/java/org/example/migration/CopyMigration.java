@@ -0,0 +1,103 @@
+package org.example.migration;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Применение миграций данных в формате {@code .copy} через {@code COPY ... FROM STDIN}.
+ * <p>
+ * Файл начинается с заголовка, за которым сразу следуют данные:
+ * <pre>
+ * -- @copy: public.users (id, name, email)
+ * -- @options: FORMAT csv, HEADER true
+ * id,name,email
+ * 1,Alice,alice@example.com
+ * </pre>
+ * Заголовок {@code @options} необязателен, по умолчанию используется {@code FORMAT csv}.
+ * Данные передаются драйверу потоком прямо с диска, поэтому расход памяти не зависит от размера файла.
+ */
+final class CopyMigration {
+    /**
+     * Расширение файлов миграций данных.
+     */
+    static final String EXTENSION = ".copy";
+
+    private static final String DEFAULT_OPTIONS = "FORMAT csv";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private CopyMigration() {
+    }
+
+    /**
+     * Загружает данные миграции в таблицу.
+     *
+     * @param connection Соединение с базой данных PostgreSQL.
+     * @param migration  Миграция данных.
+     * @return Количество загруженных строк.
+     * @throws SQLException если заголовок некорректен или загрузка завершилась ошибкой.
+     */
+    static long apply(Connection connection, MigrationFile migration) throws SQLException {
+        String sql = buildCopySql(migration);
+        CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+
+        try (InputStream data = openData(migration)) {
+            return copyManager.copyIn(sql, data, BUFFER_SIZE);
+        } catch (IOException e) {
+            throw new SQLException("Failed to stream data of migration " + migration.getFileName(), e);
+        }
+    }
+
+    /**
+     * Проверяет, является ли файл миграцией данных.
+     *
+     * @param fileName Имя файла миграции.
+     * @return {@code true}, если файл имеет расширение {@code .copy}.
+     */
+    static boolean isCopyMigration(String fileName) {
+        return fileName.endsWith(EXTENSION);
+    }
+
+    private static String buildCopySql(MigrationFile migration) throws SQLException {
+        String target = migration.getHeaders().get(MigrationHeaders.COPY);
+        if (target == null || target.isBlank()) {
+            throw new SQLException("Data migration " + migration.getFileName() + " has no '-- @copy: <table> (<columns>)' header.");
+        }
+        String options = migration.getHeaders().getOrDefault(MigrationHeaders.OPTIONS, DEFAULT_OPTIONS);
+        return "COPY " + target + " FROM STDIN WITH (" + options + ")";
+    }
+
+    /**
+     * Открывает поток данных миграции, пропуская заголовок.
+     * Граница заголовка определяется {@link MigrationHeaders#headerLength(InputStream)} так же, как при его разборе.
+     */
+    static InputStream openData(MigrationFile migration) throws IOException {
+        long headerLength;
+        try (InputStream header = openRaw(migration)) {
+            headerLength = MigrationHeaders.headerLength(header);
+        }
+
+        InputStream input = new BufferedInputStream(openRaw(migration), BUFFER_SIZE);
+        try {
+            input.skipNBytes(headerLength);
+            return input;
+        } catch (IOException e) {
+            input.close();
+            throw e;
+        }
+    }
+
+    private static InputStream openRaw(MigrationFile migration) throws IOException {
+        return migration.getPath() != null
+                ? Files.newInputStream(migration.getPath())
+                : new ByteArrayInputStream(migration.getContent().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,166 @@
+package org.example.migration;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Классификация DDL-операторов по захватываемой блокировке и объёму работы с таблицей.
+ * Разбор выполняется регулярными выражениями и покрывает типичные операторы миграций;
+ * для неизвестных операторов возвращается {@link LockMode#ACCESS_EXCLUSIVE} без обработки данных,
+ * чтобы планировщик не занижал риск.
+ */
+final class DdlClassifier {
+    private static final int FLAGS = Pattern.CASE_INSENSITIVE | Pattern.DOTALL;
+    private static final String NAME = "((?:\"[^\"]+\"|[\\w$]+)(?:\\.(?:\"[^\"]+\"|[\\w$]+))?)";
+
+    private static final Pattern CREATE_INDEX = Pattern.compile(
+            "^CREATE\\s+(?:UNIQUE\\s+)?INDEX\\s+(CONCURRENTLY\\s+)?.*?\\bON\\s+(?:ONLY\\s+)?" + NAME, FLAGS);
+    private static final Pattern REINDEX = Pattern.compile(
+            "^REINDEX\\s+(?:\\(.*?\\)\\s+)?(INDEX|TABLE)\\s+(CONCURRENTLY\\s+)?" + NAME, FLAGS);
+    private static final Pattern VACUUM_FULL = Pattern.compile(
+            "^VACUUM\\s+(?:FULL\\b|\\([^)]*\\bFULL\\b[^)]*\\))(?:\\s+(?:VERBOSE|ANALYZE|FREEZE)\\b)*\\s*" + NAME + "?", FLAGS);
+    private static final Pattern CLUSTER = Pattern.compile("^CLUSTER\\s+(?:VERBOSE\\s+)?" + NAME, FLAGS);
+    private static final Pattern TRUNCATE = Pattern.compile("^TRUNCATE\\s+(?:TABLE\\s+)?(?:ONLY\\s+)?" + NAME, FLAGS);
+    private static final Pattern DROP_TABLE = Pattern.compile("^DROP\\s+TABLE\\s+(?:IF\\s+EXISTS\\s+)?" + NAME, FLAGS);
+    private static final Pattern DROP_INDEX = Pattern.compile("^DROP\\s+INDEX\\s+(CONCURRENTLY\\s+)?", FLAGS);
+    private static final Pattern REFRESH_VIEW = Pattern.compile(
+            "^REFRESH\\s+MATERIALIZED\\s+VIEW\\s+(CONCURRENTLY\\s+)?" + NAME, FLAGS);
+    private static final Pattern ALTER_TABLE = Pattern.compile(
+            "^ALTER\\s+TABLE\\s+(?:IF\\s+EXISTS\\s+)?(?:ONLY\\s+)?" + NAME + "\\s+(.*)$", FLAGS);
+    private static final Pattern CREATE_OBJECT = Pattern.compile("^(?:CREATE|COMMENT|GRANT|REVOKE)\\b", FLAGS);
+
+    private static final Pattern ALTER_TYPE = Pattern.compile("\\bALTER\\s+(?:COLUMN\\s+)?\\S+\\s+(?:SET\\s+DATA\\s+)?TYPE\\b", FLAGS);
+    private static final Pattern VOLATILE_DEFAULT = Pattern.compile(
+            "\\bADD\\s+(?:COLUMN\\s+)?.*?(?:\\bDEFAULT\\s+.*?\\b(?:CLOCK_TIMESTAMP|RANDOM|GEN_RANDOM_UUID|UUID_GENERATE_V[14]|NEXTVAL|TIMEOFDAY)\\s*\\("
+                    + "|\\b(?:SMALL|BIG)?SERIAL\\b|\\bGENERATED\\b)", FLAGS);
+    private static final Pattern REWRITE_OPTION = Pattern.compile("\\bSET\\s+(?:TABLESPACE|LOGGED|UNLOGGED|ACCESS\\s+METHOD)\\b", FLAGS);
+    private static final Pattern SET_NOT_NULL = Pattern.compile("\\bSET\\s+NOT\\s+NULL\\b", FLAGS);
+    private static final Pattern ADD_CHECK = Pattern.compile("\\bADD\\s+(?:CONSTRAINT\\s+\\S+\\s+)?CHECK\\b", FLAGS);
+    private static final Pattern ADD_FOREIGN_KEY = Pattern.compile(
+            "\\bADD\\s+(?:CONSTRAINT\\s+\\S+\\s+)?FOREIGN\\s+KEY\\b|\\bREFERENCES\\b", FLAGS);
+    private static final Pattern ADD_UNIQUE = Pattern.compile(
+            "\\bADD\\s+(?:CONSTRAINT\\s+\\S+\\s+)?(?:PRIMARY\\s+KEY|UNIQUE)\\b(?!.*\\bUSING\\s+INDEX\\b)", FLAGS);
+    private static final Pattern NOT_VALID = Pattern.compile("\\bNOT\\s+VALID\\b", FLAGS);
+    private static final Pattern VALIDATE_CONSTRAINT = Pattern.compile("\\bVALIDATE\\s+CONSTRAINT\\b", FLAGS);
+
+    private DdlClassifier() {
+    }
+
+    /**
+     * Объём работы оператора с данными таблицы.
+     */
+    enum TableWork {
+        /**
+         * Данные таблицы не читаются, меняется только каталог.
+         */
+        NONE(0),
+        /**
+         * Таблица читается целиком, например при проверке ограничения.
+         */
+        SCAN(1),
+        /**
+         * Строится индекс: чтение таблицы и сортировка.
+         */
+        INDEX_BUILD(2),
+        /**
+         * Таблица и все её индексы переписываются заново.
+         */
+        REWRITE(3);
+
+        private final int passes;
+
+        TableWork(int passes) {
+            this.passes = passes;
+        }
+
+        /**
+         * Количество проходов по данным таблицы, используемое для оценки длительности.
+         */
+        int passes() {
+            return passes;
+        }
+    }
+
+    /**
+     * Результат классификации оператора.
+     *
+     * @param lockMode Захватываемая блокировка.
+     * @param work     Объём работы с данными таблицы.
+     * @param table    Затрагиваемая таблица или {@code null}, если её не удалось определить.
+     */
+    record Classification(LockMode lockMode, TableWork work, String table) {
+    }
+
+    /**
+     * Классифицирует DDL-оператор.
+     *
+     * @param sql Текст оператора.
+     * @return Блокировка, объём работы и затрагиваемая таблица.
+     */
+    static Classification classify(String sql) {
+        String statement = sql.strip();
+        Matcher matcher;
+
+        if ((matcher = CREATE_INDEX.matcher(statement)).find()) {
+            boolean concurrently = matcher.group(1) != null;
+            return new Classification(concurrently ? LockMode.SHARE_UPDATE_EXCLUSIVE : LockMode.SHARE,
+                    TableWork.INDEX_BUILD, matcher.group(2));
+        }
+        if ((matcher = REINDEX.matcher(statement)).find()) {
+            boolean concurrently = matcher.group(2) != null;
+            String table = matcher.group(1).equalsIgnoreCase("TABLE") ? matcher.group(3) : null;
+            return new Classification(concurrently ? LockMode.SHARE_UPDATE_EXCLUSIVE : LockMode.SHARE,
+                    TableWork.INDEX_BUILD, table);
+        }
+        if ((matcher = VACUUM_FULL.matcher(statement)).find()) {
+            return new Classification(LockMode.ACCESS_EXCLUSIVE, TableWork.REWRITE, matcher.group(1));
+        }
+        if ((matcher = CLUSTER.matcher(statement)).find()) {
+            return new Classification(LockMode.ACCESS_EXCLUSIVE, TableWork.REWRITE, matcher.group(1));
+        }
+        if ((matcher = REFRESH_VIEW.matcher(statement)).find()) {
+            boolean concurrently = matcher.group(1) != null;
+            return new Classification(concurrently ? LockMode.SHARE_ROW_EXCLUSIVE : LockMode.ACCESS_EXCLUSIVE,
+                    TableWork.REWRITE, matcher.group(2));
+        }
+        if ((matcher = TRUNCATE.matcher(statement)).find()) {
+            return new Classification(LockMode.ACCESS_EXCLUSIVE, TableWork.NONE, matcher.group(1));
+        }
+        if ((matcher = DROP_TABLE.matcher(statement)).find()) {
+            return new Classification(LockMode.ACCESS_EXCLUSIVE, TableWork.NONE, matcher.group(1));
+        }
+        if ((matcher = DROP_INDEX.matcher(statement)).find()) {
+            boolean concurrently = matcher.group(1) != null;
+            return new Classification(concurrently ? LockMode.SHARE_UPDATE_EXCLUSIVE : LockMode.ACCESS_EXCLUSIVE,
+                    TableWork.NONE, null);
+        }
+        if ((matcher = ALTER_TABLE.matcher(statement)).find()) {
+            return classifyAlterTable(matcher.group(1), matcher.group(2));
+        }
+        if (CREATE_OBJECT.matcher(statement).find()) {
+            return new Classification(LockMode.NONE, TableWork.NONE, null);
+        }
+        return new Classification(LockMode.ACCESS_EXCLUSIVE, TableWork.NONE, null);
+    }
+
+    private static Classification classifyAlterTable(String table, String actions) {
+        if (ALTER_TYPE.matcher(actions).find() || VOLATILE_DEFAULT.matcher(actions).find()
+                || REWRITE_OPTION.matcher(actions).find()) {
+            return new Classification(LockMode.ACCESS_EXCLUSIVE, TableWork.REWRITE, table);
+        }
+        if (ADD_UNIQUE.matcher(actions).find()) {
+            return new Classification(LockMode.ACCESS_EXCLUSIVE, TableWork.INDEX_BUILD, table);
+        }
+        boolean notValid = NOT_VALID.matcher(actions).find();
+        if (ADD_FOREIGN_KEY.matcher(actions).find()) {
+            return new Classification(LockMode.SHARE_ROW_EXCLUSIVE, notValid ? TableWork.NONE : TableWork.SCAN, table);
+        }
+        if (SET_NOT_NULL.matcher(actions).find() || (ADD_CHECK.matcher(actions).find() && !notValid)) {
+            return new Classification(LockMode.ACCESS_EXCLUSIVE, TableWork.SCAN, table);
+        }
+        if (VALIDATE_CONSTRAINT.matcher(actions).find()) {
+            return new Classification(LockMode.SHARE_UPDATE_EXCLUSIVE, TableWork.SCAN, table);
+        }
+        return new Classification(LockMode.ACCESS_EXCLUSIVE, TableWork.NONE, table);
+    }
+}
@@ -0,0 +1,11 @@
+package org.example.migration;
+
+/**
+ * Итог выполнения миграции вне общей транзакции.
+ *
+ * @param statementCount Количество операторов миграции.
+ * @param rowsAffected   Количество затронутых строк.
+ * @param lockWaitNanos  Время ожидания блокировок в наносекундах.
+ */
+record ExecutionSummary(int statementCount, long rowsAffected, long lockWaitNanos) {
+}
@@ -0,0 +1,48 @@
+package org.example.migration;
+
+/**
+ * Уровень табличной блокировки PostgreSQL, которую захватывает оператор миграции.
+ * Перечислены только уровни, которые встречаются в миграциях, от самого слабого к самому сильному.
+ */
+public enum LockMode {
+    /**
+     * Оператор не блокирует существующие таблицы, например создаёт новый объект.
+     */
+    NONE(false, false),
+    /**
+     * Обычная блокировка DML-операторов; не мешает чтению и записи.
+     */
+    ROW_EXCLUSIVE(false, false),
+    /**
+     * Блокирует только обслуживание и изменения схемы; чтение и запись продолжаются.
+     */
+    SHARE_UPDATE_EXCLUSIVE(false, false),
+    /**
+     * Блокирует запись, чтение продолжается.
+     */
+    SHARE(false, true),
+    /**
+     * Блокирует запись, чтение продолжается.
+     */
+    SHARE_ROW_EXCLUSIVE(false, true),
+    /**
+     * Блокирует и чтение, и запись.
+     */
+    ACCESS_EXCLUSIVE(true, true);
+
+    private final boolean blocksReads;
+    private final boolean blocksWrites;
+
+    LockMode(boolean blocksReads, boolean blocksWrites) {
+        this.blocksReads = blocksReads;
+        this.blocksWrites = blocksWrites;
+    }
+
+    public boolean blocksReads() {
+        return blocksReads;
+    }
+
+    public boolean blocksWrites() {
+        return blocksWrites;
+    }
+}
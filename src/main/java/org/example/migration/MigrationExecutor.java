@@ -1,11 +1,20 @@
 package org.example.migration;
 
 import lombok.extern.slf4j.Slf4j;
+import org.example.config.ConfigurationLoader;
+import org.example.config.MigrationConfig;
+import org.example.metrics.MetricsRegistry;
+import org.example.metrics.MigrationMetrics;
+import org.example.metrics.MigrationMetricsListener;
 import org.example.util.ConnectionManager;
 
+import java.io.IOException;
+import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -14,43 +23,172 @@ import java.util.List;
 @Slf4j
 public class MigrationExecutor {
 
-    private static final String INSERT_MIGRATION_SQL = "INSERT INTO applied_migrations (file_name, applied_at) VALUES (?, CURRENT_TIMESTAMP)";
+    static final String INSERT_MIGRATION_SQL = """
+            INSERT INTO applied_migrations
+                (file_name, version, applied_at, duration_ms, statement_count, rows_affected, bytes_read, lock_wait_ms)
+            VALUES (?, ?, CURRENT_TIMESTAMP, ?, ?, ?, ?, ?)
+            """;
+    private static final int DEFAULT_GROUP_SIZE = 10;
+
+    private final int batchSize;
+    private final TransactionMode transactionMode;
+    private final int groupSize;
+    private final OnlineMigration onlineMigration;
+    private final BackfillMigration backfillMigration;
+    private final int statementCacheSize;
+    private final int prepareThreshold;
+    private final MigrationMetricsListener metrics;
+
+    /**
+     * Конструктор для {@link MigrationExecutor}.
+     * Размер пакета DML-операторов берётся из свойства {@code migration.batch.size},
+     * стратегия транзакций — из свойств {@code migration.transaction.mode} и {@code migration.transaction.group.size}.
+     */
+    public MigrationExecutor() {
+        this(ConfigurationLoader.getInstance().getConfig());
+    }
+
+    /**
+     * Конструктор для {@link MigrationExecutor} с заданной конфигурацией.
+     *
+     * @param config Конфигурация инструмента.
+     */
+    public MigrationExecutor(MigrationConfig config) {
+        this(config, MetricsRegistry.listener());
+    }
 
     /**
-     * Выполняет список миграций в одной транзакции.
-     * Каждая миграция выполняется в контексте соединения с базой данных.
-     * При возникновении ошибки транзакция откатывается.
+     * Конструктор для {@link MigrationExecutor} с заданной конфигурацией и получателем метрик.
+     *
+     * @param config  Конфигурация инструмента.
+     * @param metrics Получатель событий о применении миграций вместо {@link MetricsRegistry#listener()}.
+     */
+    public MigrationExecutor(MigrationConfig config, MigrationMetricsListener metrics) {
+        this(config.getBatchSize(), config.getTransactionMode(), config.getTransactionGroupSize(), config, metrics);
+    }
+
+    /**
+     * Конструктор для {@link MigrationExecutor} с явным размером пакета.
+     * Все миграции выполняются в одной транзакции.
+     *
+     * @param batchSize Максимальное количество DML-операторов в одном пакете.
+     */
+    public MigrationExecutor(int batchSize) {
+        this(batchSize, TransactionMode.ALL, DEFAULT_GROUP_SIZE);
+    }
+
+    /**
+     * Конструктор для {@link MigrationExecutor} с явными параметрами.
+     *
+     * @param batchSize       Максимальное количество DML-операторов в одном пакете.
+     * @param transactionMode Стратегия разбиения миграций на транзакции.
+     * @param groupSize       Количество миграций в одной транзакции для режима {@link TransactionMode#GROUPED}.
+     */
+    public MigrationExecutor(int batchSize, TransactionMode transactionMode, int groupSize) {
+        this(batchSize, transactionMode, groupSize, ConfigurationLoader.getInstance().getConfig(), MetricsRegistry.listener());
+    }
+
+    private MigrationExecutor(int batchSize, TransactionMode transactionMode, int groupSize, MigrationConfig config,
+                              MigrationMetricsListener metrics) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        if (groupSize < 1) {
+            throw new IllegalArgumentException("Transaction group size must be positive: " + groupSize);
+        }
+        this.batchSize = batchSize;
+        this.transactionMode = transactionMode;
+        this.groupSize = groupSize;
+        this.onlineMigration = new OnlineMigration(config);
+        this.backfillMigration = new BackfillMigration(config);
+        this.statementCacheSize = config.getStatementCacheSize();
+        this.prepareThreshold = config.getPrepareThreshold();
+        this.metrics = metrics;
+    }
+
+    /**
+     * Выполняет список миграций согласно стратегии транзакций.
+     * Каждая транзакция включает применение своих миграций и их запись в таблицу {@code applied_migrations}.
+     * При возникновении ошибки откатывается только текущая транзакция; ранее зафиксированные миграции
+     * остаются применёнными, и следующий запуск продолжит с места сбоя.
+     * Миграции, помеченные {@code @online}, выполняются вне транзакции, а миграции {@code @backfill} — частями
+     * в отдельных транзакциях; перед ними текущая транзакция фиксируется.
+     * Если поток прерван, следующая миграция не начинается, а текущая транзакция откатывается.
      *
      * @param migrations Список миграций, которые необходимо выполнить.
-     * @throws SQLException если возникает ошибка при выполнении миграций.
+     * @throws IllegalStateException если возникает ошибка при выполнении миграций.
      */
     public void executeMigrations(List<MigrationFile> migrations) {
+        executeMigrations(migrations, ConnectionManager.getDataSource());
+    }
+
+    /**
+     * Выполняет список миграций в базе заданного источника соединений.
+     *
+     * @param migrations Список миграций, которые необходимо выполнить.
+     * @param dataSource Источник соединений с базой данных.
+     * @throws IllegalStateException если возникает ошибка при выполнении миграций.
+     * @see #executeMigrations(List)
+     */
+    public void executeMigrations(List<MigrationFile> migrations, DataSource dataSource) {
         if (migrations.isEmpty()) {
             log.warn("Нет новых миграций для применения.");
             return;
         }
 
-        try(Connection connection = ConnectionManager.getConnection()) {
+        int migrationsPerTransaction = switch (transactionMode) {
+            case ALL -> migrations.size();
+            case PER_MIGRATION -> 1;
+            case GROUPED -> groupSize;
+        };
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement bookkeeping = connection.prepareStatement(INSERT_MIGRATION_SQL);
+             StatementShapeCache shapes = newShapeCache(connection)) {
             connection.setAutoCommit(false);
-            log.info("Начинаем выполнение миграций...");
+            log.info("Начинаем выполнение миграций (режим транзакций: {})...", transactionMode);
 
+            int committed = 0;
+            List<MigrationMetrics> uncommitted = new ArrayList<>();
+            MigrationFile current = null;
             try {
                 for (MigrationFile migration : migrations) {
-                    applyMigration(connection, migration);
-                }
+                    if (Thread.currentThread().isInterrupted()) {
+                        current = null;
+                        throw new SQLException("Interrupted before migration " + migration.getFileName() + ".");
+                    }
+                    current = migration;
+                    if (OnlineMigration.isOnline(migration)) {
+                        committed += commit(connection, bookkeeping, uncommitted);
+                        applyOnlineMigration(connection, bookkeeping, migration);
+                        committed++;
+                        continue;
+                    }
+                    if (BackfillMigration.isBackfill(migration)) {
+                        committed += commit(connection, bookkeeping, uncommitted);
+                        applyBackfillMigration(connection, bookkeeping, migration);
+                        committed++;
+                        continue;
+                    }
 
-                for (MigrationFile migration : migrations) {
-                    logMigrationAsExecuted(connection, migration.getFileName());
+                    uncommitted.add(applyMigration(connection, migration, shapes));
+                    if (uncommitted.size() == migrationsPerTransaction) {
+                        committed += commit(connection, bookkeeping, uncommitted);
+                    }
                 }
-
-                connection.commit();
-                log.info("Все миграции успешно применены.");
-
+                committed += commit(connection, bookkeeping, uncommitted);
             } catch (SQLException e) {
-                connection.rollback();
-                log.error("Ошибка при выполнении миграции. Транзакция отменена: {}", e.getMessage(), e);
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                }
+                if (current != null) {
+                    metrics.onMigrationFailed(current.getFileName(), e);
+                }
+                log.error("Ошибка при выполнении миграции. Транзакция отменена, ранее зафиксировано миграций: {}: {}",
+                        committed, e.getMessage(), e);
                 throw new SQLException("An error occurred while executing migration. The transaction was cancelled.", e);
             }
+            log.info("Все миграции успешно применены.");
 
         } catch (SQLException e) {
             log.error("Не удалось выполнить миграции: {}", e.getMessage(), e);
@@ -58,39 +196,264 @@ public class MigrationExecutor {
         }
     }
 
+    /**
+     * Фиксирует текущую транзакцию вместе с записями о выполненных в ней миграциях.
+     *
+     * @return Количество зафиксированных миграций.
+     */
+    private int commit(Connection connection, PreparedStatement bookkeeping, List<MigrationMetrics> uncommitted) throws SQLException {
+        if (uncommitted.isEmpty()) {
+            return 0;
+        }
+        logMigrationsAsExecuted(bookkeeping, uncommitted);
+        connection.commit();
+        uncommitted.forEach(metrics::onMigrationApplied);
+        int count = uncommitted.size();
+        uncommitted.clear();
+        return count;
+    }
+
+    /**
+     * Применяет миграцию, помеченную {@code @online}, вне транзакции и сразу отмечает её как выполненную.
+     * Соединение временно переводится в режим автоматической фиксации.
+     *
+     * @param connection  Соединение с базой данных.
+     * @param bookkeeping Подготовленный запрос {@link #INSERT_MIGRATION_SQL}.
+     * @param migration   Миграция, которую нужно применить.
+     * @throws SQLException если возникает ошибка при выполнении миграции.
+     */
+    void applyOnlineMigration(Connection connection, PreparedStatement bookkeeping, MigrationFile migration) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(true);
+        try {
+            long startedAt = System.nanoTime();
+            ExecutionSummary result = onlineMigration.apply(connection, migration, metrics);
+            MigrationMetrics applied = new MigrationMetrics(migration.getFileName(), System.nanoTime() - startedAt,
+                    result.statementCount(), result.rowsAffected(), bytesRead(migration), result.lockWaitNanos());
+            logMigrationsAsExecuted(bookkeeping, List.of(applied));
+            metrics.onMigrationApplied(applied);
+            log.info("Применена миграция вне транзакции: {} (операторов: {}, {} мс, ожидание блокировок: {} мс)",
+                    migration.getFileName(), applied.getStatementCount(), applied.getDurationMillis(), applied.getLockWaitMillis());
+        } catch (SQLException e) {
+            log.error("Ошибка при применении миграции {} вне транзакции: {}", migration.getFileName(), e.getMessage(), e);
+            throw e; // Пробрасываем исключение дальше
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Применяет миграцию, помеченную {@code @backfill}: таблица обрабатывается частями, каждая часть
+     * фиксируется вместе с контрольной точкой. Запись в {@code applied_migrations} делается отдельной транзакцией
+     * после того, как зафиксирована последняя часть. Прерванная миграция при следующем запуске продолжится
+     * с контрольной точки; если прервана была только запись, повторный запуск не найдёт необработанных строк
+     * и сразу отметит миграцию как выполненную.
+     *
+     * @param connection  Соединение с базой данных.
+     * @param bookkeeping Подготовленный запрос {@link #INSERT_MIGRATION_SQL}.
+     * @param migration   Миграция, которую нужно применить.
+     * @throws SQLException если возникает ошибка при выполнении миграции.
+     */
+    void applyBackfillMigration(Connection connection, PreparedStatement bookkeeping, MigrationFile migration) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            long startedAt = System.nanoTime();
+            ExecutionSummary result = backfillMigration.apply(connection, migration, metrics);
+            MigrationMetrics applied = new MigrationMetrics(migration.getFileName(), System.nanoTime() - startedAt,
+                    result.statementCount(), result.rowsAffected(), bytesRead(migration), result.lockWaitNanos());
+            logMigrationsAsExecuted(bookkeeping, List.of(applied));
+            connection.commit();
+            metrics.onMigrationApplied(applied);
+            log.info("Применена backfill-миграция: {} (операторов: {}, строк: {}, {} мс)",
+                    migration.getFileName(), applied.getStatementCount(), applied.getRowsAffected(), applied.getDurationMillis());
+        } catch (SQLException e) {
+            connection.rollback();
+            log.error("Ошибка при применении backfill-миграции {}: {}", migration.getFileName(), e.getMessage(), e);
+            throw e; // Пробрасываем исключение дальше
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Применяет одну миграцию с отдельным кэшем подготовленных запросов.
+     *
+     * @param connection Соединение с базой данных.
+     * @param migration Миграция, которую нужно применить.
+     * @return Показатели применения миграции.
+     * @throws SQLException если возникает ошибка при выполнении миграции.
+     * @see #applyMigration(Connection, MigrationFile, StatementShapeCache)
+     */
+    MigrationMetrics applyMigration(Connection connection, MigrationFile migration) throws SQLException {
+        try (StatementShapeCache shapes = newShapeCache(connection)) {
+            return applyMigration(connection, migration, shapes);
+        }
+    }
+
     /**
      * Применяет одну миграцию.
-     * Выполняет SQL-запрос для применения изменений в базе данных.
+     * Скрипт разбивается на отдельные операторы; подряд идущие простые DML-операторы
+     * отправляются пакетами через {@link Statement#executeBatch()}, остальные выполняются по одному.
+     * Повторяющиеся DML-операторы, отличающиеся только литералами, выполняются общим подготовленным запросом
+     * из {@code shapes}; пакет отправляется при смене запроса, поэтому порядок операторов сохраняется.
      *
      * @param connection Соединение с базой данных.
      * @param migration Миграция, которую нужно применить.
+     * @param shapes    Кэш подготовленных запросов соединения или {@code null}, если он отключён.
+     * @return Показатели применения миграции.
      * @throws SQLException если возникает ошибка при выполнении миграции.
      */
-    private void applyMigration(Connection connection, MigrationFile migration) throws SQLException {
-        try (PreparedStatement statement = connection.prepareStatement(migration.getContent())) {
-            statement.executeUpdate();
-            log.info("Применена миграция: {}", migration.getFileName());
+    MigrationMetrics applyMigration(Connection connection, MigrationFile migration, StatementShapeCache shapes) throws SQLException {
+        if (CopyMigration.isCopyMigration(migration.getFileName())) {
+            return applyCopyMigration(connection, migration);
+        }
+
+        long startedAt = System.nanoTime();
+        int statementCount = 0;
+        int roundTrips = 0;
+        long rowsAffected = 0;
+
+        try (SqlStatementSplitter splitter = new SqlStatementSplitter(migration.openReader());
+             Statement statement = connection.createStatement()) {
+            Statement batch = statement;
+            int batched = 0;
+            SqlStatement sql;
+            while ((sql = splitter.next()) != null) {
+                statementCount++;
+                if (sql.isBatchable()) {
+                    PreparedStatement prepared = shapes != null ? shapes.bind(sql.getSql()) : null;
+                    Statement target = prepared != null ? prepared : statement;
+                    if (batched > 0 && target != batch) {
+                        rowsAffected += executeBatch(batch, migration, batched);
+                        roundTrips++;
+                        batched = 0;
+                    }
+                    batch = target;
+                    if (prepared != null) {
+                        prepared.addBatch();
+                    } else {
+                        statement.addBatch(sql.getSql());
+                    }
+                    if (++batched == batchSize) {
+                        rowsAffected += executeBatch(batch, migration, batched);
+                        roundTrips++;
+                        batched = 0;
+                    }
+                    continue;
+                }
+                if (batched > 0) {
+                    rowsAffected += executeBatch(batch, migration, batched);
+                    roundTrips++;
+                    batched = 0;
+                }
+                rowsAffected += execute(statement, migration, sql.getSql());
+                roundTrips++;
+            }
+            if (batched > 0) {
+                rowsAffected += executeBatch(batch, migration, batched);
+                roundTrips++;
+            }
+        } catch (IOException e) {
+            log.error("Ошибка при чтении миграции {}: {}", migration.getFileName(), e.getMessage(), e);
+            throw new SQLException("Failed to read migration " + migration.getFileName(), e);
         } catch (SQLException e) {
             log.error("Ошибка при применении миграции {}: {}", migration.getFileName(), e.getMessage(), e);
             throw e; // Пробрасываем исключение дальше
         }
+
+        long duration = System.nanoTime() - startedAt;
+        double seconds = Math.max(duration, 1) / 1_000_000_000.0;
+        log.info("Применена миграция: {} (операторов: {}, обращений к БД: {}, {} операторов/с)",
+                migration.getFileName(), statementCount, roundTrips, Math.round(statementCount / seconds));
+        return new MigrationMetrics(migration.getFileName(), duration, statementCount, rowsAffected, bytesRead(migration), 0);
     }
 
     /**
-     * Отмечает миграцию как выполненную в базе данных.
-     * Добавляет запись в таблицу {@code applied_migrations}.
+     * Применяет миграцию данных, загружая файл потоком через {@code COPY ... FROM STDIN}.
      *
      * @param connection Соединение с базой данных.
-     * @param fileName Имя файла миграции.
+     * @param migration Миграция данных.
+     * @return Показатели применения миграции.
+     * @throws SQLException если возникает ошибка при загрузке данных.
+     */
+    private MigrationMetrics applyCopyMigration(Connection connection, MigrationFile migration) throws SQLException {
+        long startedAt = System.nanoTime();
+        try {
+            long rows = CopyMigration.apply(connection, migration);
+            long duration = System.nanoTime() - startedAt;
+            metrics.onStatementExecuted(migration.getFileName(), 1, duration, rows);
+            double seconds = Math.max(duration, 1) / 1_000_000_000.0;
+            log.info("Применена миграция данных: {} (строк: {}, {} строк/с)",
+                    migration.getFileName(), rows, Math.round(rows / seconds));
+            return new MigrationMetrics(migration.getFileName(), duration, 1, rows, bytesRead(migration), 0);
+        } catch (SQLException e) {
+            log.error("Ошибка при загрузке данных миграции {}: {}", migration.getFileName(), e.getMessage(), e);
+            throw e; // Пробрасываем исключение дальше
+        }
+    }
+
+    private long executeBatch(Statement statement, MigrationFile migration, int statementCount) throws SQLException {
+        long startedAt = System.nanoTime();
+        int[] results = statement.executeBatch();
+        long rows = 0;
+        for (int result : results) {
+            rows += Math.max(result, 0);
+        }
+        metrics.onStatementExecuted(migration.getFileName(), statementCount, System.nanoTime() - startedAt, rows);
+        return rows;
+    }
+
+    private long execute(Statement statement, MigrationFile migration, String sql) throws SQLException {
+        long startedAt = System.nanoTime();
+        boolean hasResultSet = statement.execute(sql);
+        long rows = hasResultSet ? 0 : Math.max(statement.getUpdateCount(), 0);
+        metrics.onStatementExecuted(migration.getFileName(), 1, System.nanoTime() - startedAt, rows);
+        return rows;
+    }
+
+    /**
+     * Возвращает получателя событий о применении миграций.
+     *
+     * @return Получатель метрик.
+     */
+    MigrationMetricsListener getMetrics() {
+        return metrics;
+    }
+
+    private StatementShapeCache newShapeCache(Connection connection) {
+        return statementCacheSize > 0 ? new StatementShapeCache(connection, statementCacheSize, prepareThreshold) : null;
+    }
+
+    private static long bytesRead(MigrationFile migration) {
+        return migration.getPath() != null ? migration.getSize() : 0;
+    }
+
+    /**
+     * Отмечает миграции как выполненные в базе данных.
+     * Записи добавляются в таблицу {@code applied_migrations} одним пакетом через переиспользуемый запрос.
+     * Вместе с записью сохраняются показатели применения миграции.
+     *
+     * @param statement  Подготовленный запрос {@link #INSERT_MIGRATION_SQL}.
+     * @param migrations Показатели выполненных миграций.
      * @throws SQLException если возникает ошибка при записи в таблицу.
      */
-    private void logMigrationAsExecuted(Connection connection, String fileName) throws SQLException {
-        try (PreparedStatement statement = connection.prepareStatement(INSERT_MIGRATION_SQL)) {
-            statement.setString(1, fileName);
-            statement.executeUpdate();
-            log.info("Миграция {} отмечена как выполненная.", fileName);
+    void logMigrationsAsExecuted(PreparedStatement statement, List<MigrationMetrics> migrations) throws SQLException {
+        try {
+            for (MigrationMetrics migration : migrations) {
+                statement.setString(1, migration.getFileName());
+                statement.setLong(2, MigrationManager.extractTimestamp(migration.getFileName()));
+                statement.setLong(3, migration.getDurationMillis());
+                statement.setInt(4, migration.getStatementCount());
+                statement.setLong(5, migration.getRowsAffected());
+                statement.setLong(6, migration.getBytesRead());
+                statement.setLong(7, migration.getLockWaitMillis());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            migrations.forEach(migration -> log.info("Миграция {} отмечена как выполненная.", migration.getFileName()));
         } catch (SQLException e) {
-            log.error("Ошибка при записи миграции {} в таблицу выполненных: {}", fileName, e.getMessage(), e);
+            log.error("Ошибка при записи миграций в таблицу выполненных: {}", e.getMessage(), e);
             throw e; // Пробрасываем исключение дальше
         }
     }
@@ -1,23 +1,150 @@
 package org.example.migration;
 
-import lombok.AllArgsConstructor;
 import lombok.Getter;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Класс, представляющий миграционный файл.
- * Содержит имя файла и его содержимое.
+ * Содержит имя файла и его содержимое. Содержимое больших файлов не хранится в памяти:
+ * оно читается с диска при каждом обращении через {@link #openReader()}.
  */
 @Getter
-@AllArgsConstructor
 public class MigrationFile {
     /**
      * Имя миграционного файла.
      */
     private final String fileName;
     /**
-     * Содержимое миграционного файла.
+     * Путь к файлу на диске или {@code null}, если миграция создана из строки.
+     */
+    private final Path path;
+    /**
+     * Размер файла в байтах.
      */
+    private final long size;
+    /**
+     * Содержимое миграционного файла или {@code null}, если файл читается лениво.
+     */
+    @Getter(lombok.AccessLevel.NONE)
     private final String content;
+    /**
+     * Значения заголовка миграции, см. {@link MigrationHeaders}.
+     */
+    private final Map<String, String> headers;
+
+    /**
+     * Создаёт миграцию с уже загруженным содержимым.
+     *
+     * @param fileName Имя миграционного файла.
+     * @param content  Содержимое миграционного файла.
+     */
+    public MigrationFile(String fileName, String content) {
+        this(fileName, null, content.length(), content, MigrationHeaders.parse(content));
+    }
+
+    /**
+     * Создаёт миграцию, содержимое которой будет читаться с диска по требованию.
+     *
+     * @param fileName Имя миграционного файла.
+     * @param path     Путь к файлу.
+     * @param size     Размер файла в байтах.
+     * @param headers  Значения заголовка миграции.
+     */
+    public MigrationFile(String fileName, Path path, long size, Map<String, String> headers) {
+        this(fileName, path, size, null, headers);
+    }
+
+    /**
+     * Создаёт миграцию, прочитанную с диска.
+     *
+     * @param fileName Имя миграционного файла.
+     * @param path     Путь к файлу.
+     * @param size     Размер файла в байтах.
+     * @param content  Содержимое файла или {@code null}, если файл читается лениво.
+     * @param headers  Значения заголовка миграции.
+     */
+    public MigrationFile(String fileName, Path path, long size, String content, Map<String, String> headers) {
+        this.fileName = fileName;
+        this.path = path;
+        this.size = size;
+        this.content = content;
+        this.headers = Map.copyOf(headers);
+    }
+
+    /**
+     * Возвращает группу (схему) миграции из заголовка {@code @group}.
+     *
+     * @return Имя группы или {@code null}, если группа не указана.
+     */
+    public String getGroup() {
+        String group = headers.get(MigrationHeaders.GROUP);
+        return group == null || group.isEmpty() ? null : group;
+    }
+
+    /**
+     * Возвращает явные зависимости миграции из заголовка {@code @depends}.
+     *
+     * @return Имена файлов миграций, которые должны быть применены раньше.
+     */
+    public List<String> getDependencies() {
+        String depends = headers.get(MigrationHeaders.DEPENDS);
+        if (depends == null || depends.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(depends.split(","))
+                .map(String::strip)
+                .filter(name -> !name.isEmpty())
+                .toList();
+    }
+
+    /**
+     * Возвращает содержимое миграции.
+     * Для лениво читаемых файлов содержимое каждый раз читается с диска целиком,
+     * поэтому для больших файлов следует использовать {@link #openReader()}.
+     *
+     * @return Содержимое миграционного файла.
+     */
+    public String getContent() {
+        if (content != null) {
+            return content;
+        }
+        try {
+            return Files.readString(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read migration file: " + fileName, e);
+        }
+    }
+
+    /**
+     * Проверяет, хранится ли содержимое миграции в памяти.
+     *
+     * @return {@code true}, если содержимое уже загружено.
+     */
+    public boolean isLoaded() {
+        return content != null;
+    }
+
+    /**
+     * Открывает поток для последовательного чтения содержимого миграции.
+     *
+     * @return Поток символов с содержимым миграции.
+     * @throws IOException Если не удаётся открыть файл.
+     */
+    public Reader openReader() throws IOException {
+        if (content != null) {
+            return new StringReader(content);
+        }
+        return Files.newBufferedReader(path);
+    }
 
     /**
      * Возвращает строковое представление объекта {@link MigrationFile}.
@@ -28,7 +155,7 @@ public class MigrationFile {
     public String toString() {
         return "MigrationFile{" +
                 "fileName='" + fileName + '\'' +
-                ", content='" + content + '\'' +
+                ", content='" + (content != null ? content : "<" + size + " bytes on disk>") + '\'' +
                 '}';
     }
 }
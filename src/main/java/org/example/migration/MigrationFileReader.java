@@ -2,31 +2,83 @@ package org.example.migration;
 
 import lombok.extern.slf4j.Slf4j;
 import org.example.config.ConfigurationLoader;
+import org.example.config.MigrationConfig;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
 
 /**
  * Класс для чтения миграционных файлов из указанной директории.
+ * Директория сканируется один раз, а содержимое файлов читается параллельно
+ * и только для тех файлов, которые действительно нужны.
+ * Наряду со SQL-скриптами ({@code .sql}) поддерживаются миграции данных ({@code .copy}),
+ * содержимое которых никогда не загружается в память. Скрипты отката ({@code .down.sql}) миграциями не считаются.
  */
 @Slf4j
 public class MigrationFileReader {
-    private static final String FILE_PATTERN = "\\d{14}_.*\\.sql";
+    /**
+     * Суффикс скрипта отката миграции: {@code <имя миграции без .sql>.down.sql}.
+     */
+    static final String DOWN_SUFFIX = ".down.sql";
+
+    private static final Pattern FILE_PATTERN = Pattern.compile("\\d{14}_.*(?<!\\.down)\\.(sql|copy)");
+
     private final String migrationFolderPath;
+    private final int readThreads;
+    private final long lazyThresholdBytes;
 
     /**
      * Конструктор для {@link MigrationFileReader}.
-     * Инициализирует путь к папке миграций.
+     * Инициализирует путь к папке миграций и параметры чтения из общей конфигурации.
      */
     public MigrationFileReader() {
-        this.migrationFolderPath = ConfigurationLoader.getInstance().getProperty("migration.path");
+        this(ConfigurationLoader.getInstance().getConfig());
+    }
+
+    /**
+     * Конструктор для {@link MigrationFileReader} с заданной конфигурацией.
+     *
+     * @param config Конфигурация инструмента.
+     */
+    public MigrationFileReader(MigrationConfig config) {
+        this(config.getMigrationPath(), config.getReaderThreads(), config.getReaderLazyThresholdBytes());
+    }
+
+    /**
+     * Конструктор для {@link MigrationFileReader} с явными параметрами.
+     *
+     * @param migrationFolderPath Путь к папке миграций.
+     * @param readThreads         Количество потоков для параллельного чтения файлов.
+     * @param lazyThresholdBytes  Размер файла, начиная с которого содержимое не загружается в память.
+     */
+    public MigrationFileReader(String migrationFolderPath, int readThreads, long lazyThresholdBytes) {
+        this.migrationFolderPath = migrationFolderPath;
+        this.readThreads = Math.max(1, readThreads);
+        this.lazyThresholdBytes = lazyThresholdBytes;
         log.info("Путь к папке миграций: {}", migrationFolderPath);
     }
 
+    /**
+     * Возвращает путь к папке миграций.
+     *
+     * @return Путь к папке миграций.
+     */
+    public Path getMigrationFolder() {
+        return Paths.get(migrationFolderPath);
+    }
+
     /**
      * Читает все миграционные файлы из указанной папки и возвращает их в виде списка объектов {@link MigrationFile}.
      * Файлы сортируются по имени.
@@ -35,25 +87,93 @@ public class MigrationFileReader {
      * @throws IOException Если не удаётся прочитать файлы.
      */
     public List<MigrationFile> readMigrationFiles() throws IOException {
+        return loadMigrationFiles(scanMigrationFiles());
+    }
+
+    /**
+     * Сканирует папку миграций и возвращает пути к файлам миграций, отсортированные по имени.
+     * Содержимое файлов не читается.
+     *
+     * @return Отсортированный список путей к файлам миграций.
+     * @throws IOException Если не удаётся прочитать директорию.
+     */
+    public List<Path> scanMigrationFiles() throws IOException {
         Path migrationPath = Paths.get(migrationFolderPath);
         log.info("Начинаем чтение миграций из папки '{}'", migrationPath);
 
-        if (!Files.exists(migrationPath) || !Files.isDirectory(migrationPath)) {
+        if (!Files.isDirectory(migrationPath)) {
             log.error("Папка миграций '{}' не существует или не является директорией.", migrationPath);
             throw new IllegalArgumentException("Migration folder does not exist or is not a directory: " + migrationPath);
         }
 
-        List<Path> files = Files.list(migrationPath)
-                .filter(path -> path.getFileName().toString().matches(FILE_PATTERN))
-                .sorted()
-                .toList();
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(migrationPath)) {
+            for (Path path : stream) {
+                if (isMigrationFile(path.getFileName().toString())) {
+                    files.add(path);
+                }
+            }
+        }
+        files.sort(Comparator.comparing(path -> path.getFileName().toString()));
 
         log.info("Найдено {} файлов миграций в папке '{}'", files.size(), migrationFolderPath);
+        return files;
+    }
 
-        return files.stream()
-                .map(this::parseMigrationFile)
-                .sorted(Comparator.comparing(MigrationFile::getFileName))
-                .toList();
+    /**
+     * Проверяет, является ли файл с таким именем файлом миграции.
+     *
+     * @param fileName Имя файла.
+     * @return {@code true} для файлов {@code <временная метка>_<описание>.sql} и {@code .copy}, кроме скриптов отката.
+     */
+    static boolean isMigrationFile(String fileName) {
+        return FILE_PATTERN.matcher(fileName).matches();
+    }
+
+    /**
+     * Загружает указанные файлы миграций, сохраняя их порядок.
+     * Файлы читаются параллельно на ограниченном пуле потоков; файлы больше
+     * порога {@code migration.reader.lazy.threshold} не загружаются в память и читаются при применении.
+     *
+     * @param files Пути к файлам миграций.
+     * @return Список миграционных файлов в том же порядке.
+     * @throws IOException Если не удаётся прочитать один из файлов.
+     */
+    public List<MigrationFile> loadMigrationFiles(List<Path> files) throws IOException {
+        if (files.size() < 2 || readThreads == 1) {
+            List<MigrationFile> migrations = new ArrayList<>(files.size());
+            for (Path path : files) {
+                migrations.add(parseMigrationFile(path));
+            }
+            return migrations;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(readThreads, files.size()));
+        try {
+            List<Future<MigrationFile>> futures = new ArrayList<>(files.size());
+            for (Path path : files) {
+                futures.add(executor.submit(() -> parseMigrationFile(path)));
+            }
+
+            List<MigrationFile> migrations = new ArrayList<>(files.size());
+            for (Future<MigrationFile> future : futures) {
+                migrations.add(future.get());
+            }
+            return migrations;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading migration files.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException("Failed to read migration files.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
     }
 
     /**
@@ -61,18 +181,26 @@ public class MigrationFileReader {
      *
      * @param path Путь к файлу миграции.
      * @return Объект {@link MigrationFile} с содержимым файла.
+     * @throws IOException Если не удаётся прочитать файл.
      */
-    private MigrationFile parseMigrationFile(Path path) {
+    private MigrationFile parseMigrationFile(Path path) throws IOException {
         String fileName = path.getFileName().toString();
         log.debug("Читаем файл миграции: {}", fileName);
 
         try {
+            long size = Files.size(path);
+            if (size > lazyThresholdBytes || CopyMigration.isCopyMigration(fileName)) {
+                log.debug("Файл '{}' размером {} байт будет прочитан при применении.", fileName, size);
+                try (BufferedReader reader = Files.newBufferedReader(path)) {
+                    return new MigrationFile(fileName, path, size, MigrationHeaders.parse(reader));
+                }
+            }
             String content = Files.readString(path);
             log.debug("Файл '{}' успешно прочитан, длина содержимого: {} символов", fileName, content.length());
-            return new MigrationFile(fileName, content);
+            return new MigrationFile(fileName, path, size, content, MigrationHeaders.parse(content));
         } catch (IOException e) {
             log.error("Не удалось прочитать файл миграции: {}", fileName, e);
-            throw new RuntimeException("Failed to read migration file: " + fileName, e);
+            throw new IOException("Failed to read migration file: " + fileName, e);
         }
     }
 }
@@ -0,0 +1,177 @@
+package org.example.migration;
+
+import lombok.Getter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Граф зависимостей между ожидающими миграциями.
+ * <p>
+ * Миграции одной группы ({@code @group}) выполняются строго по порядку временных меток,
+ * миграции разных групп друг от друга не зависят. Миграция без группы считается барьером:
+ * она выполняется после всех предыдущих миграций, а все последующие — после неё.
+ * Явные зависимости задаются заголовком {@code @depends}. Зависимость от миграции, которой нет среди ожидающих,
+ * допустима, только если эта миграция уже применена: опечатка в имени не должна молча снимать ограничение порядка.
+ */
+class MigrationGraph {
+
+    @Getter
+    private final List<Node> nodes;
+
+    private MigrationGraph(List<Node> nodes) {
+        this.nodes = nodes;
+    }
+
+    /**
+     * Строит граф зависимостей.
+     *
+     * @param migrations Ожидающие миграции, отсортированные по временной метке.
+     * @param applied    Имена применённых миграций среди {@link #externalDependencies внешних зависимостей}.
+     * @return Граф зависимостей.
+     * @throws IllegalStateException если зависимости образуют цикл или ссылаются на неизвестную миграцию.
+     */
+    static MigrationGraph build(List<MigrationFile> migrations, Set<String> applied) {
+        Map<String, Node> byName = new LinkedHashMap<>();
+        Map<String, Node> lastInGroup = new HashMap<>();
+        List<Node> sinceBarrier = new ArrayList<>();
+        Node lastBarrier = null;
+
+        for (MigrationFile migration : migrations) {
+            Node node = new Node(migration);
+            byName.put(migration.getFileName(), node);
+
+            String group = migration.getGroup();
+            if (group == null) {
+                sinceBarrier.forEach(previous -> previous.addDependent(node));
+                if (sinceBarrier.isEmpty() && lastBarrier != null) {
+                    lastBarrier.addDependent(node);
+                }
+                lastBarrier = node;
+                sinceBarrier.clear();
+                lastInGroup.clear();
+            } else {
+                Node previous = lastInGroup.get(group);
+                if (previous != null) {
+                    previous.addDependent(node);
+                } else if (lastBarrier != null) {
+                    lastBarrier.addDependent(node);
+                }
+                lastInGroup.put(group, node);
+                sinceBarrier.add(node);
+            }
+        }
+
+        for (Node node : byName.values()) {
+            for (String dependency : node.getMigration().getDependencies()) {
+                Node required = byName.get(dependency);
+                if (required == node) {
+                    throw new IllegalStateException("Migration depends on itself: " + dependency);
+                }
+                if (required != null) {
+                    required.addDependent(node);
+                } else if (!applied.contains(dependency)) {
+                    throw new IllegalStateException("Migration " + node.getMigration().getFileName()
+                            + " depends on " + dependency + ", which is neither pending nor applied.");
+                }
+            }
+        }
+
+        List<Node> nodes = new ArrayList<>(byName.values());
+        ensureAcyclic(nodes);
+        return new MigrationGraph(nodes);
+    }
+
+    /**
+     * Возвращает зависимости, которых нет среди ожидающих миграций: каждая из них должна быть уже применена.
+     *
+     * @param migrations Ожидающие миграции.
+     * @return Имена внешних зависимостей.
+     */
+    static Set<String> externalDependencies(List<MigrationFile> migrations) {
+        Set<String> pending = new HashSet<>();
+        migrations.forEach(migration -> pending.add(migration.getFileName()));
+        Set<String> external = new LinkedHashSet<>();
+        for (MigrationFile migration : migrations) {
+            for (String dependency : migration.getDependencies()) {
+                if (!pending.contains(dependency)) {
+                    external.add(dependency);
+                }
+            }
+        }
+        return external;
+    }
+
+    /**
+     * Возвращает количество независимых групп миграций в графе.
+     *
+     * @return Количество различных групп; миграции без группы не учитываются.
+     */
+    int countGroups() {
+        Set<String> groups = new LinkedHashSet<>();
+        nodes.forEach(node -> {
+            if (node.getMigration().getGroup() != null) {
+                groups.add(node.getMigration().getGroup());
+            }
+        });
+        return groups.size();
+    }
+
+    private static void ensureAcyclic(List<Node> nodes) {
+        Map<Node, Integer> remaining = new HashMap<>();
+        Deque<Node> ready = new ArrayDeque<>();
+        for (Node node : nodes) {
+            remaining.put(node, node.getDependencyCount());
+            if (node.getDependencyCount() == 0) {
+                ready.add(node);
+            }
+        }
+
+        int visited = 0;
+        while (!ready.isEmpty()) {
+            Node node = ready.poll();
+            visited++;
+            for (Node dependent : node.getDependents()) {
+                if (remaining.merge(dependent, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+
+        if (visited != nodes.size()) {
+            List<String> cyclic = nodes.stream()
+                    .filter(node -> remaining.get(node) > 0)
+                    .map(node -> node.getMigration().getFileName())
+                    .toList();
+            throw new IllegalStateException("Migration dependencies contain a cycle: " + cyclic);
+        }
+    }
+
+    /**
+     * Вершина графа: миграция и миграции, которые от неё зависят.
+     */
+    @Getter
+    static class Node {
+        private final MigrationFile migration;
+        private final Set<Node> dependents = new LinkedHashSet<>();
+        private int dependencyCount;
+
+        Node(MigrationFile migration) {
+            this.migration = migration;
+        }
+
+        private void addDependent(Node dependent) {
+            if (dependents.add(dependent)) {
+                dependent.dependencyCount++;
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package org.example.migration;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Разбор заголовка файла миграции.
+ * Заголовок — это комментарии в начале файла вида {@code -- @ключ: значение} или {@code -- @ключ}.
+ * Разбор прекращается на первой строке, не являющейся комментарием или пустой строкой,
+ * поэтому для больших файлов читается только их начало. Заголовок заканчивается последней строкой
+ * {@code -- @ключ} в этом блоке: следующие за ней пустые строки и комментарии к нему не относятся.
+ */
+public final class MigrationHeaders {
+    /**
+     * Группа (схема), к которой относится миграция.
+     */
+    public static final String GROUP = "group";
+    /**
+     * Список имён файлов миграций, от которых зависит миграция, через запятую.
+     */
+    public static final String DEPENDS = "depends";
+    /**
+     * Целевая таблица и столбцы миграции данных {@code .copy}.
+     */
+    public static final String COPY = "copy";
+    /**
+     * Параметры {@code COPY} для миграции данных, например {@code FORMAT csv, HEADER true}.
+     */
+    public static final String OPTIONS = "options";
+    /**
+     * Флаг неблокирующей миграции: операторы выполняются вне транзакции с ограничением ожидания блокировок.
+     */
+    public static final String ONLINE = "online";
+    /**
+     * Таблица, которую миграция обрабатывает частями (backfill), каждая часть — в своей транзакции.
+     */
+    public static final String BACKFILL = "backfill";
+    /**
+     * Столбец ключа для постраничного обхода таблицы в backfill-миграции; по умолчанию {@code id}.
+     */
+    public static final String KEY = "key";
+    /**
+     * Количество строк в одной части backfill-миграции.
+     */
+    public static final String CHUNK = "chunk";
+    /**
+     * Ограничение скорости backfill-миграции в строках в секунду.
+     */
+    public static final String RATE = "rate";
+
+    private static final Pattern HEADER_PATTERN = Pattern.compile("--\\s*@([\\w.-]+)\\s*(?::\\s*(.*))?");
+
+    private MigrationHeaders() {
+    }
+
+    /**
+     * Читает заголовок миграции из потока.
+     *
+     * @param reader Поток с содержимым миграции. Поток не закрывается.
+     * @return Значения заголовка; ключи приведены к нижнему регистру, у флагов без значения — пустая строка.
+     * @throws IOException Если не удаётся прочитать поток.
+     */
+    public static Map<String, String> parse(Reader reader) throws IOException {
+        BufferedReader lines = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader);
+        Map<String, String> headers = new LinkedHashMap<>();
+
+        String line;
+        while ((line = lines.readLine()) != null && inHeaderBlock(line)) {
+            Matcher matcher = HEADER_PATTERN.matcher(line.strip());
+            if (matcher.matches()) {
+                String value = matcher.group(2);
+                headers.put(matcher.group(1).toLowerCase(Locale.ROOT), value == null ? "" : value.strip());
+            }
+        }
+        return headers;
+    }
+
+    /**
+     * Возвращает длину заголовка в байтах: от начала файла до конца последней строки {@code -- @ключ}
+     * в блоке пустых строк и комментариев, который разбирает {@link #parse(Reader)}.
+     *
+     * @param input Поток с содержимым миграции в UTF-8. Поток не закрывается.
+     * @return Количество байт, которые нужно пропустить, чтобы перейти к телу миграции.
+     * @throws IOException Если не удаётся прочитать поток.
+     */
+    static long headerLength(InputStream input) throws IOException {
+        InputStream bytes = input instanceof BufferedInputStream ? input : new BufferedInputStream(input);
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        long offset = 0;
+        long length = 0;
+        while (true) {
+            line.reset();
+            int c;
+            while ((c = bytes.read()) != -1 && c != '\n') {
+                line.write(c);
+            }
+            if (c == -1 && line.size() == 0) {
+                return length;
+            }
+            String text = line.toString(StandardCharsets.UTF_8);
+            if (!inHeaderBlock(text)) {
+                return length;
+            }
+            offset += line.size() + (c == -1 ? 0 : 1);
+            if (HEADER_PATTERN.matcher(text.strip()).matches()) {
+                length = offset;
+            }
+            if (c == -1) {
+                return length;
+            }
+        }
+    }
+
+    private static boolean inHeaderBlock(String line) {
+        String trimmed = line.strip();
+        return trimmed.isEmpty() || trimmed.startsWith("--");
+    }
+
+    /**
+     * Читает заголовок миграции из строки.
+     *
+     * @param content Содержимое миграции.
+     * @return Значения заголовка.
+     */
+    public static Map<String, String> parse(String content) {
+        try {
+            return parse(new StringReader(content));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package org.example.migration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.metrics.MetricsRegistry;
+import org.example.util.ConnectionManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Межпроцессная блокировка миграций на основе advisory lock PostgreSQL.
+ * Гарантирует, что при одновременном запуске на многих узлах миграции применяет только один из них.
+ * Блокировка удерживается на уровне сессии, поэтому на всё время её действия занимается одно соединение из пула.
+ */
+@Slf4j
+public class MigrationLock implements AutoCloseable {
+    private static final String TRY_LOCK_SQL = "SELECT pg_try_advisory_lock(?)";
+    private static final String UNLOCK_SQL = "SELECT pg_advisory_unlock(?)";
+    private static final long MAX_POLL_INTERVAL_MS = 1_000;
+
+    private final Connection connection;
+    private final long key;
+
+    private MigrationLock(Connection connection, long key) {
+        this.connection = connection;
+        this.key = key;
+    }
+
+    /**
+     * Захватывает блокировку, ожидая её освобождения другим узлом не дольше заданного времени.
+     * Блокировка запрашивается через {@code pg_try_advisory_lock}, поэтому ожидающий узел
+     * не удерживает транзакцию и может прекратить ожидание по таймауту.
+     *
+     * @param key    Ключ advisory lock.
+     * @param waitMs Максимальное время ожидания в миллисекундах.
+     * @return Захваченная блокировка; освобождается вызовом {@link #close()}.
+     * @throws SQLException если блокировку не удалось захватить за отведённое время.
+     */
+    public static MigrationLock acquire(long key, long waitMs) throws SQLException {
+        return acquire(ConnectionManager.getDataSource(), key, waitMs);
+    }
+
+    /**
+     * Захватывает блокировку в базе заданного источника соединений.
+     *
+     * @param dataSource Источник соединений с базой данных.
+     * @param key        Ключ advisory lock.
+     * @param waitMs     Максимальное время ожидания в миллисекундах.
+     * @return Захваченная блокировка; освобождается вызовом {@link #close()}.
+     * @throws SQLException если блокировку не удалось захватить за отведённое время.
+     */
+    public static MigrationLock acquire(DataSource dataSource, long key, long waitMs) throws SQLException {
+        long startedAt = System.currentTimeMillis();
+        long startedAtNanos = System.nanoTime();
+        long deadline = startedAt + waitMs;
+        Connection connection = dataSource.getConnection();
+
+        try (PreparedStatement statement = connection.prepareStatement(TRY_LOCK_SQL)) {
+            statement.setLong(1, key);
+            long pollInterval = 50;
+            while (true) {
+                if (tryLock(statement)) {
+                    MetricsRegistry.listener().onLockWait(System.nanoTime() - startedAtNanos);
+                    log.info("Блокировка миграций захвачена за {} мс.", System.currentTimeMillis() - startedAt);
+                    return new MigrationLock(connection, key);
+                }
+
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    log.error("Не удалось захватить блокировку миграций за {} мс.", waitMs);
+                    throw new SQLException("Timed out waiting for migration lock after " + waitMs + " ms.");
+                }
+                log.debug("Блокировка миграций занята другим узлом, ожидаем...");
+                Thread.sleep(Math.min(remaining, pollInterval + ThreadLocalRandom.current().nextLong(pollInterval + 1)));
+                pollInterval = Math.min(pollInterval * 2, MAX_POLL_INTERVAL_MS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            connection.close();
+            throw new SQLException("Interrupted while waiting for migration lock.", e);
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Освобождает блокировку и возвращает соединение в пул.
+     * Если освободить блокировку не удалось, соединение закрывается физически через {@link Connection#abort}:
+     * блокировка принадлежит сессии, и соединение, вернувшееся в пул, удерживало бы её до своего закрытия.
+     *
+     * @throws SQLException если блокировку не удалось освободить.
+     */
+    @Override
+    public void close() throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(UNLOCK_SQL)) {
+            statement.setLong(1, key);
+            statement.execute();
+            log.info("Блокировка миграций освобождена.");
+        } catch (SQLException e) {
+            log.error("Не удалось освободить блокировку миграций, соединение будет закрыто: {}", e.getMessage());
+            abort(e);
+            throw e;
+        } finally {
+            connection.close();
+        }
+    }
+
+    /**
+     * Освобождает блокировку так же, как {@link #close()}, но не пробрасывает ошибку.
+     * Предназначен для блока {@code finally}: если освободить блокировку не удалось, сессия уже закрыта
+     * и сервер освободил блокировку сам, а исключение скрыло бы ошибку самой миграции.
+     */
+    public void release() {
+        try {
+            close();
+        } catch (SQLException e) {
+            // Ошибка уже записана в лог в close()
+        }
+    }
+
+    /**
+     * Закрывает сессию, удерживающую блокировку; сервер освобождает блокировку при завершении сессии.
+     */
+    private void abort(SQLException cause) {
+        try {
+            connection.abort(Runnable::run);
+        } catch (SQLException | RuntimeException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    private static boolean tryLock(PreparedStatement statement) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery()) {
+            return resultSet.next() && resultSet.getBoolean(1);
+        }
+    }
+}
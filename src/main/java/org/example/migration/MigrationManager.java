@@ -1,18 +1,31 @@
 package org.example.migration;
 
 import lombok.extern.slf4j.Slf4j;
+import org.example.config.ConfigurationLoader;
+import org.example.config.MigrationConfig;
 import org.example.util.ConnectionManager;
 
+import javax.sql.DataSource;
 import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Array;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.zip.CRC32C;
 
 /**
  * Класс для управления миграциями.
@@ -21,16 +34,55 @@ import java.util.stream.Collectors;
 @Slf4j
 public class MigrationManager {
 
+    private static final String MANIFEST_PREFIX = "migrations-manifest-";
+    // Записи базовых схем не соответствуют файлам в папке миграций и в сверку не входят
+    private static final String HIGH_WATER_MARK_SQL =
+            "SELECT MAX(version), COUNT(*), SUM(version) FROM applied_migrations WHERE file_name NOT LIKE '%\\_baseline.sql'";
+    private static final String COUNT_APPLIED_SQL = "SELECT COUNT(*) FROM applied_migrations WHERE file_name = ANY (?)";
+    private static final String APPLIED_NAMES_SQL = "SELECT file_name FROM applied_migrations WHERE file_name = ANY (?)";
+
     private final MigrationFileReader migrationFileReader;
+    private final Path manifestPath;
+    private final boolean failOnDrift;
+    private MigrationManifest manifest;
+    private List<String> driftedMigrations = List.of();
 
     /**
      * Конструктор для {@link MigrationManager}.
-     * Инициализирует {@link MigrationFileReader}.
+     * Инициализирует {@link MigrationFileReader} и параметры манифеста контрольных сумм из общей конфигурации.
      *
      * @param migrationFileReader Экземпляр {@link MigrationFileReader}.
      */
     public MigrationManager(MigrationFileReader migrationFileReader) {
+        this(migrationFileReader, ConfigurationLoader.getInstance().getConfig());
+    }
+
+    /**
+     * Конструктор для {@link MigrationManager} с заданной конфигурацией.
+     *
+     * @param migrationFileReader Экземпляр {@link MigrationFileReader}.
+     * @param config              Конфигурация инструмента.
+     */
+    public MigrationManager(MigrationFileReader migrationFileReader, MigrationConfig config) {
         this.migrationFileReader = migrationFileReader;
+        if (!config.isManifestEnabled()) {
+            this.manifestPath = null;
+        } else if (config.getManifestPath() != null) {
+            this.manifestPath = Paths.get(config.getManifestPath());
+        } else {
+            this.manifestPath = defaultManifestPath(migrationFileReader.getMigrationFolder());
+        }
+        this.failOnDrift = config.isManifestStrict();
+    }
+
+    /**
+     * Возвращает имена применённых миграций, содержимое которых изменилось после применения.
+     * Заполняется при вызове {@link #getPendingMigrations()}.
+     *
+     * @return Список имён изменённых миграций.
+     */
+    public List<String> getDriftedMigrations() {
+        return driftedMigrations;
     }
 
     /**
@@ -41,44 +93,233 @@ public class MigrationManager {
      * @throws IOException Если не удаётся прочитать миграции.
      */
     public List<MigrationFile> getPendingMigrations() throws IOException {
+        return getPendingMigrations(ConnectionManager.getDataSource());
+    }
+
+    /**
+     * Получает список миграций, которые ещё не были применены в базе заданного источника соединений.
+     *
+     * @param dataSource Источник соединений с базой данных.
+     * @return Список миграций, которые ещё не были выполнены.
+     * @throws IOException Если не удаётся прочитать миграции.
+     * @see #getPendingMigrations()
+     */
+    public List<MigrationFile> getPendingMigrations(DataSource dataSource) throws IOException {
+        List<MigrationFile> pendingMigrations = migrationFileReader.loadMigrationFiles(getPendingMigrationFiles(dataSource));
+
+        log.info("Количество ожидающих миграций: {}", pendingMigrations.size());
+        return pendingMigrations;
+    }
+
+    /**
+     * Получает пути к файлам миграций, которые ещё не были применены, не читая содержимое этих файлов.
+     * Применённые миграции сверяются с манифестом контрольных сумм так же, как в {@link #getPendingMigrations(DataSource)}.
+     *
+     * @param dataSource Источник соединений с базой данных.
+     * @return Пути к файлам ожидающих миграций в порядке применения.
+     * @throws IOException Если не удаётся прочитать папку миграций или манифест.
+     */
+    public List<Path> getPendingMigrationFiles(DataSource dataSource) throws IOException {
         log.info("Получаем список всех не выполненных миграций...");
-        List<MigrationFile> allMigrations = migrationFileReader.readMigrationFiles();
-        Set<String> appliedMigrations = getAppliedMigrations();
+        List<Path> allMigrations = migrationFileReader.scanMigrationFiles();
 
         if (allMigrations.isEmpty()) {
             log.error("Не найдены файлы миграций в папке. Проверьте вашу конфигурацию.");
             throw new IllegalStateException("No migration files found in the folder. Check your configuration.");
         }
 
-        List<MigrationFile> pendingMigrations = allMigrations.stream()
+        List<String> fileNames = allMigrations.stream().map(path -> path.getFileName().toString()).toList();
+        Set<String> appliedMigrations = getAppliedMigrations(fileNames, dataSource);
+
+        List<Path> pendingFiles = allMigrations.stream()
+                .filter(path -> !appliedMigrations.contains(path.getFileName().toString()))
+                .sorted(Comparator.comparing(path -> extractTimestamp(path.getFileName().toString())))
+                .collect(Collectors.toList());
+
+        if (manifestPath != null) {
+            verifyAppliedMigrations(allMigrations, appliedMigrations);
+        }
+        return pendingFiles;
+    }
+
+    /**
+     * Получает список ожидающих миграций, не изменяя ни базу данных, ни манифест контрольных сумм.
+     * Таблица миграций может быть создана предыдущей версией инструмента и ещё не обновлена:
+     * тогда имена применённых миграций читаются из неё целиком.
+     *
+     * @param dataSource Источник соединений с базой данных, в которой уже есть таблица миграций.
+     * @return Список миграций, которые ещё не были выполнены.
+     * @throws IOException Если не удаётся прочитать миграции.
+     */
+    public List<MigrationFile> previewPendingMigrations(DataSource dataSource) throws IOException {
+        List<Path> allMigrations = migrationFileReader.scanMigrationFiles();
+        List<String> fileNames = allMigrations.stream().map(path -> path.getFileName().toString()).toList();
+        Set<String> appliedMigrations = MigrationTableManager.isMigrationTableReady(dataSource)
+                ? getAppliedMigrations(fileNames, dataSource)
+                : getAllAppliedMigrations(dataSource);
+
+        List<Path> pendingFiles = allMigrations.stream()
+                .filter(path -> !appliedMigrations.contains(path.getFileName().toString()))
+                .sorted(Comparator.comparing(path -> extractTimestamp(path.getFileName().toString())))
+                .collect(Collectors.toList());
+        return migrationFileReader.loadMigrationFiles(pendingFiles);
+    }
+
+    /**
+     * Отбирает из уже прочитанных миграций те, что ещё не применены в базе заданного источника соединений.
+     * Папка миграций не сканируется повторно, а манифест контрольных сумм не используется,
+     * поэтому один список файлов можно сверять с множеством баз данных.
+     *
+     * @param migrations Миграции, отсортированные по имени.
+     * @param dataSource Источник соединений с базой данных.
+     * @return Список миграций, которые ещё не были выполнены в этой базе.
+     */
+    public List<MigrationFile> filterPendingMigrations(List<MigrationFile> migrations, DataSource dataSource) {
+        List<String> fileNames = migrations.stream().map(MigrationFile::getFileName).toList();
+        Set<String> appliedMigrations = getAppliedMigrations(fileNames, dataSource);
+        return migrations.stream()
                 .filter(migration -> !appliedMigrations.contains(migration.getFileName()))
                 .sorted(Comparator.comparing(migration -> extractTimestamp(migration.getFileName())))
                 .collect(Collectors.toList());
+    }
 
-        log.info("Количество ожидающих миграций: {}", pendingMigrations.size());
-        return pendingMigrations;
+    /**
+     * Записывает в манифест состояние успешно применённых миграций.
+     *
+     * @param migrations Применённые миграции.
+     * @throws IOException Если не удаётся прочитать файлы или сохранить манифест.
+     */
+    public void recordAppliedMigrations(List<MigrationFile> migrations) throws IOException {
+        recordAppliedFiles(migrations.stream().map(MigrationFile::getPath).filter(Objects::nonNull).toList());
     }
 
     /**
-     * Возвращает список имен миграций, которые уже были применены.
+     * Записывает в манифест состояние файлов миграций, отмеченных как выполненные.
      *
-     * @return Множество имен выполненных миграций.
+     * @param files Пути к файлам миграций.
+     * @throws IOException Если не удаётся прочитать файлы или сохранить манифест.
      */
-    private Set<String> getAppliedMigrations() {
-        log.info("Пытаемся получить выполенные миграции...");
+    public void recordAppliedFiles(List<Path> files) throws IOException {
+        if (manifestPath == null || files.isEmpty()) {
+            return;
+        }
+        MigrationManifest current = getManifest();
+        for (Path file : files) {
+            current.record(file);
+        }
+        saveManifest(current);
+    }
 
-        String query = "SELECT file_name FROM applied_migrations";
-        Set<String> appliedMigrations = new HashSet<>();
+    /**
+     * Сверяет применённые миграции с манифестом контрольных сумм.
+     * Файлы, размер и время изменения которых не поменялись, не читаются.
+     *
+     * @param allMigrations     Все файлы миграций в папке.
+     * @param appliedMigrations Имена применённых миграций.
+     * @throws IOException Если не удаётся прочитать файлы или сохранить манифест.
+     */
+    private void verifyAppliedMigrations(List<Path> allMigrations, Set<String> appliedMigrations) throws IOException {
+        MigrationManifest current = getManifest();
+        List<String> drifted = new ArrayList<>();
 
-        try(Connection connection = ConnectionManager.getConnection();
-            PreparedStatement preparedStatement = connection.prepareStatement(query);
-            ResultSet resultSet = preparedStatement.executeQuery()) {
+        for (Path path : allMigrations) {
+            String fileName = path.getFileName().toString();
+            if (appliedMigrations.contains(fileName) && !current.verify(path)) {
+                drifted.add(fileName);
+            }
+        }
+        saveManifest(current);
+        driftedMigrations = List.copyOf(drifted);
 
-            while(resultSet.next()) {
-                appliedMigrations.add(resultSet.getString("file_name"));
+        if (!drifted.isEmpty()) {
+            log.warn("Изменены уже применённые миграции: {}", drifted);
+            if (failOnDrift) {
+                throw new IllegalStateException("Applied migrations have been modified: " + drifted);
+            }
+        }
+    }
+
+    /**
+     * Сохраняет манифест. Манифест — только кэш контрольных сумм, поэтому ошибка записи
+     * (например, в папке, смонтированной только для чтения) не прерывает миграцию.
+     */
+    private void saveManifest(MigrationManifest current) {
+        try {
+            current.save();
+        } catch (IOException e) {
+            log.warn("Не удалось сохранить манифест миграций '{}': {}", manifestPath, e.getMessage());
+        }
+    }
+
+    /**
+     * Возвращает путь к манифесту по умолчанию: файл во временной папке, имя которого зависит от папки миграций.
+     * Папка миграций может быть доступна только для чтения, поэтому манифест в ней не хранится.
+     *
+     * @param migrationFolder Папка миграций.
+     * @return Путь к файлу манифеста.
+     */
+    static Path defaultManifestPath(Path migrationFolder) {
+        CRC32C crc = new CRC32C();
+        crc.update(migrationFolder.toAbsolutePath().normalize().toString().getBytes(StandardCharsets.UTF_8));
+        return Paths.get(System.getProperty("java.io.tmpdir"), MANIFEST_PREFIX + Long.toHexString(crc.getValue()));
+    }
+
+    private MigrationManifest getManifest() throws IOException {
+        if (manifest == null) {
+            manifest = MigrationManifest.load(manifestPath);
+        }
+        return manifest;
+    }
+
+    /**
+     * Возвращает имена локальных миграций, которые уже были применены.
+     * Вместо чтения всей таблицы запрашиваются наибольшая применённая версия, количество записей и сумма версий:
+     * более новые файлы заведомо ожидают применения. Если последний локальный файл не новее этой версии совпадает
+     * с ней, а количество и сумма версий таких файлов совпадают с записями в таблице, все они считаются применёнными
+     * без передачи их имён.
+     * Иначе (миграции применялись не по порядку, файл добавлен задним числом или удалён) база проверяет имена
+     * локальных файлов по уникальному индексу и возвращает количество найденных, а при расхождении — их имена.
+     *
+     * @param localFiles Имена файлов миграций в папке, отсортированные по имени.
+     * @param dataSource Источник соединений с базой данных.
+     * @return Множество имён применённых миграций.
+     */
+    private Set<String> getAppliedMigrations(List<String> localFiles, DataSource dataSource) {
+        log.info("Пытаемся получить выполенные миграции...");
+
+        try (Connection connection = dataSource.getConnection()) {
+            History history = queryHistory(connection);
+            Long highWaterMark = history.highWaterMark();
+            if (highWaterMark == null) {
+                // Пустая таблица или записи без версии
+                Set<String> appliedMigrations = queryAllAppliedNames(connection);
+                log.debug("Количество выполненных миграций: {}", appliedMigrations.size());
+                return appliedMigrations;
             }
 
-            log.debug("Количество выполненных миграций: {}", appliedMigrations.size());
+            List<String> candidates = localFiles.stream()
+                    .filter(fileName -> extractTimestamp(fileName) <= highWaterMark)
+                    .toList();
+            if (candidates.isEmpty()) {
+                return new HashSet<>();
+            }
+            if (history.matches(candidates)) {
+                log.debug("Количество выполненных миграций: {}, последняя версия: {}", candidates.size(), highWaterMark);
+                return new HashSet<>(candidates);
+            }
+            Array names = connection.createArrayOf("varchar", candidates.toArray());
+            try {
+                if (countApplied(connection, names) == candidates.size()) {
+                    log.debug("Количество выполненных миграций: {}, последняя версия: {}", candidates.size(), highWaterMark);
+                    return new HashSet<>(candidates);
+                }
+                log.info("Обнаружены пропуски в истории миграций, читаем имена применённых миграций...");
+                Set<String> appliedMigrations = queryAppliedNames(connection, names);
+                log.debug("Количество выполненных миграций: {}", appliedMigrations.size());
+                return appliedMigrations;
+            } finally {
+                names.free();
+            }
 
         } catch (SQLException e) {
             if (e.getMessage().contains("applied_migrations")) {
@@ -89,7 +330,107 @@ public class MigrationManager {
                 throw new IllegalStateException("Error while querying the database.", e);
             }
         }
+    }
+
+    private Set<String> getAllAppliedMigrations(DataSource dataSource) {
+        log.info("Таблица миграций ещё не обновлена, читаем полный список применённых миграций...");
+        try (Connection connection = dataSource.getConnection()) {
+            return queryAllAppliedNames(connection);
+        } catch (SQLException e) {
+            log.error("Ошибка при запросе к базе данных: {}", e.getMessage(), e);
+            throw new IllegalStateException("Error while querying the database.", e);
+        }
+    }
+
+    private History queryHistory(Connection connection) throws SQLException {
+        try (PreparedStatement preparedStatement = connection.prepareStatement(HIGH_WATER_MARK_SQL);
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            resultSet.next();
+            long version = resultSet.getLong(1);
+            Long highWaterMark = resultSet.wasNull() ? null : version;
+            BigDecimal versionSum = resultSet.getBigDecimal(3);
+            return new History(highWaterMark, resultSet.getLong(2), versionSum == null ? BigInteger.ZERO : versionSum.toBigInteger());
+        }
+    }
 
+    /**
+     * Сводка таблицы миграций: наибольшая применённая версия (или {@code null}, если версий нет),
+     * количество записей и сумма версий.
+     */
+    private record History(Long highWaterMark, long count, BigInteger versionSum) {
+        /**
+         * Проверяет, что записи в таблице — это в точности заданные локальные файлы.
+         */
+        boolean matches(List<String> candidates) {
+            if (count != candidates.size() || extractTimestamp(candidates.get(candidates.size() - 1)) != highWaterMark) {
+                return false;
+            }
+            BigInteger sum = BigInteger.ZERO;
+            for (String fileName : candidates) {
+                sum = sum.add(BigInteger.valueOf(extractTimestamp(fileName)));
+            }
+            return sum.equals(versionSum);
+        }
+    }
+
+    private long countApplied(Connection connection, Array names) throws SQLException {
+        try (PreparedStatement preparedStatement = connection.prepareStatement(COUNT_APPLIED_SQL)) {
+            preparedStatement.setArray(1, names);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getLong(1);
+            }
+        }
+    }
+
+    /**
+     * Отбирает из заданных имён миграций те, что уже применены.
+     *
+     * @param fileNames  Имена файлов миграций.
+     * @param dataSource Источник соединений с базой данных.
+     * @return Имена применённых миграций.
+     * @throws IllegalStateException если не удаётся выполнить запрос.
+     */
+    static Set<String> findAppliedNames(Collection<String> fileNames, DataSource dataSource) {
+        if (fileNames.isEmpty()) {
+            return new HashSet<>();
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            Array names = connection.createArrayOf("varchar", fileNames.toArray());
+            try {
+                return queryAppliedNames(connection, names);
+            } finally {
+                names.free();
+            }
+        } catch (SQLException e) {
+            log.error("Ошибка при запросе к базе данных: {}", e.getMessage(), e);
+            throw new IllegalStateException("Error while querying the database.", e);
+        }
+    }
+
+    private static Set<String> queryAppliedNames(Connection connection, Array names) throws SQLException {
+        Set<String> appliedMigrations = new HashSet<>();
+        try (PreparedStatement preparedStatement = connection.prepareStatement(APPLIED_NAMES_SQL)) {
+            preparedStatement.setArray(1, names);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    appliedMigrations.add(resultSet.getString(1));
+                }
+            }
+        }
+        return appliedMigrations;
+    }
+
+    private Set<String> queryAllAppliedNames(Connection connection) throws SQLException {
+        String query = "SELECT file_name FROM applied_migrations";
+        Set<String> appliedMigrations = new HashSet<>();
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(query);
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            while (resultSet.next()) {
+                appliedMigrations.add(resultSet.getString("file_name"));
+            }
+        }
         return appliedMigrations;
     }
 
@@ -100,7 +441,7 @@ public class MigrationManager {
      * @param fileName Имя файла миграции.
      * @return Временная метка (timestamp) из имени файла.
      */
-    private long extractTimestamp(String fileName) {
+    static long extractTimestamp(String fileName) {
         try {
             String timestampPart = fileName.split("_")[0];
             return Long.parseLong(timestampPart);
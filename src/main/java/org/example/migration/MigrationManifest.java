@@ -0,0 +1,154 @@
+package org.example.migration;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Локальный манифест контрольных сумм файлов миграций.
+ * Для каждого файла хранит размер, время изменения и контрольную сумму CRC32C,
+ * что позволяет не перечитывать неизменившиеся файлы и обнаруживать изменения в уже применённых миграциях.
+ * Манифест хранится в текстовом файле, по одной записи на строку.
+ */
+@Slf4j
+public class MigrationManifest {
+    private static final String SEPARATOR = "\t";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path manifestPath;
+    private final Map<String, Entry> entries;
+    private boolean dirty;
+
+    private MigrationManifest(Path manifestPath, Map<String, Entry> entries) {
+        this.manifestPath = manifestPath;
+        this.entries = entries;
+    }
+
+    /**
+     * Загружает манифест из файла. Если файл отсутствует или повреждён, возвращается пустой манифест.
+     *
+     * @param manifestPath Путь к файлу манифеста.
+     * @return Загруженный манифест.
+     * @throws IOException Если не удаётся прочитать файл манифеста.
+     */
+    public static MigrationManifest load(Path manifestPath) throws IOException {
+        Map<String, Entry> entries = new HashMap<>();
+        if (Files.exists(manifestPath)) {
+            List<String> lines = Files.readAllLines(manifestPath);
+            for (String line : lines) {
+                String[] parts = line.split(SEPARATOR);
+                if (parts.length != 4) {
+                    log.warn("Пропущена повреждённая запись манифеста: '{}'", line);
+                    continue;
+                }
+                try {
+                    entries.put(parts[0], new Entry(Long.parseLong(parts[1]), Long.parseLong(parts[2]),
+                            Long.parseLong(parts[3], 16)));
+                } catch (NumberFormatException e) {
+                    log.warn("Пропущена повреждённая запись манифеста: '{}'", line);
+                }
+            }
+            log.debug("Загружено {} записей манифеста из '{}'", entries.size(), manifestPath);
+        }
+        return new MigrationManifest(manifestPath, entries);
+    }
+
+    /**
+     * Проверяет, что файл не изменился с момента записи в манифест.
+     * Если размер и время изменения совпадают, файл не читается. Иначе пересчитывается контрольная сумма;
+     * при её совпадении запись обновляется. Файл, отсутствующий в манифесте, добавляется в него.
+     *
+     * @param file Путь к файлу миграции.
+     * @return {@code false}, если содержимое файла отличается от записанного в манифесте.
+     * @throws IOException Если не удаётся прочитать файл.
+     */
+    public boolean verify(Path file) throws IOException {
+        String fileName = file.getFileName().toString();
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long size = attributes.size();
+        long modified = attributes.lastModifiedTime().toMillis();
+
+        Entry entry = entries.get(fileName);
+        if (entry != null && entry.size() == size && entry.modifiedMillis() == modified) {
+            return true;
+        }
+
+        long checksum = checksum(file);
+        if (entry != null && entry.checksum() != checksum) {
+            return false;
+        }
+        entries.put(fileName, new Entry(size, modified, checksum));
+        dirty = true;
+        return true;
+    }
+
+    /**
+     * Записывает текущее состояние файла в манифест.
+     *
+     * @param file Путь к файлу миграции.
+     * @throws IOException Если не удаётся прочитать файл.
+     */
+    public void record(Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        entries.put(file.getFileName().toString(), new Entry(attributes.size(),
+                attributes.lastModifiedTime().toMillis(), checksum(file)));
+        dirty = true;
+    }
+
+    /**
+     * Сохраняет манифест на диск, если он изменился.
+     * Запись выполняется во временный файл, который затем заменяет манифест.
+     *
+     * @throws IOException Если не удаётся записать файл манифеста.
+     */
+    public void save() throws IOException {
+        if (!dirty) {
+            return;
+        }
+        Path parent = manifestPath.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(parent, ".migrations-manifest", ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp)) {
+            for (Map.Entry<String, Entry> item : entries.entrySet()) {
+                Entry entry = item.getValue();
+                writer.write(item.getKey() + SEPARATOR + entry.size() + SEPARATOR + entry.modifiedMillis()
+                        + SEPARATOR + Long.toHexString(entry.checksum()));
+                writer.newLine();
+            }
+        }
+        Files.move(temp, manifestPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        dirty = false;
+        log.debug("Манифест миграций сохранён: {} записей", entries.size());
+    }
+
+    /**
+     * Вычисляет контрольную сумму CRC32C содержимого файла.
+     *
+     * @param file Путь к файлу.
+     * @return Значение контрольной суммы.
+     * @throws IOException Если не удаётся прочитать файл.
+     */
+    public static long checksum(Path file) throws IOException {
+        CRC32C crc = new CRC32C();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream input = Files.newInputStream(file)) {
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+
+    private record Entry(long size, long modifiedMillis, long checksum) {
+    }
+}
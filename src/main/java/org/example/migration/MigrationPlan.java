@@ -0,0 +1,152 @@
+package org.example.migration;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * План применения ожидающих миграций, построенный {@link MigrationPlanner} без изменения базы данных.
+ * Содержит оценку длительности каждого оператора и захватываемые им блокировки.
+ *
+ * @param migrations      Планы отдельных миграций в порядке применения.
+ * @param transactionMode Стратегия транзакций, с которой будут применяться миграции.
+ */
+public record MigrationPlan(List<Migration> migrations, TransactionMode transactionMode) {
+
+    /**
+     * План одной миграции.
+     *
+     * @param fileName   Имя файла миграции.
+     * @param online     Миграция выполняется вне транзакции ({@code @online}).
+     * @param statements Планы операторов.
+     */
+    public record Migration(String fileName, boolean online, List<Statement> statements) {
+
+        /**
+         * @return Оценка длительности миграции в миллисекундах.
+         */
+        public long projectedMillis() {
+            return statements.stream().mapToLong(Statement::projectedMillis).sum();
+        }
+
+        /**
+         * @return Самая сильная блокировка среди операторов миграции.
+         */
+        public LockMode strongestLock() {
+            return statements.stream().map(Statement::lockMode).max(Enum::compareTo).orElse(LockMode.NONE);
+        }
+    }
+
+    /**
+     * План одного оператора.
+     *
+     * @param sql             Сокращённый текст оператора.
+     * @param kind            Вид оператора: {@code DML}, {@code DDL}, {@code COPY}, {@code FILL} (backfill) или первое ключевое слово.
+     * @param lockMode        Захватываемая табличная блокировка.
+     * @param work            Объём работы с данными таблицы для DDL: {@code NONE}, {@code SCAN},
+     *                        {@code INDEX_BUILD} или {@code REWRITE}.
+     * @param table           Затрагиваемая таблица или {@code null}.
+     * @param tableBytes      Размер таблицы с индексами в байтах или {@code -1}, если неизвестен.
+     * @param estimatedRows   Оценка числа обрабатываемых строк по {@code EXPLAIN} или {@code -1}.
+     * @param estimatedCost   Полная стоимость по {@code EXPLAIN} или {@code -1}.
+     * @param projectedMillis Оценка длительности в миллисекундах.
+     * @param note            Пояснение, например почему оценка недоступна, или {@code null}.
+     */
+    public record Statement(String sql, String kind, LockMode lockMode, String work, String table,
+                            long tableBytes, long estimatedRows, double estimatedCost,
+                            long projectedMillis, String note) {
+
+        /**
+         * @return {@code true}, если оператор блокирует запись в существующую таблицу.
+         */
+        public boolean isHeavy() {
+            return lockMode.blocksWrites();
+        }
+    }
+
+    /**
+     * @return Оценка общей длительности применения в миллисекундах.
+     */
+    public long projectedMillis() {
+        return migrations.stream().mapToLong(Migration::projectedMillis).sum();
+    }
+
+    /**
+     * @return Количество операторов, блокирующих запись в существующие таблицы.
+     */
+    public long heavyStatementCount() {
+        return migrations.stream().flatMap(migration -> migration.statements().stream()).filter(Statement::isHeavy).count();
+    }
+
+    /**
+     * Формирует текстовый отчёт: сводку по миграциям и список операторов, блокирующих запись.
+     *
+     * @return Отчёт для вывода в лог или консоль.
+     */
+    public String toReport() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, "План применения миграций: %d миграций, ожидаемая длительность %s%n",
+                migrations.size(), formatMillis(projectedMillis())));
+
+        for (Migration migration : migrations) {
+            report.append(String.format(Locale.ROOT, "  %-60s %10s  %-22s%s%n",
+                    migration.fileName(), formatMillis(migration.projectedMillis()), migration.strongestLock(),
+                    migration.online() ? "  вне транзакции" : ""));
+            for (Statement statement : migration.statements()) {
+                if (!statement.isHeavy() && statement.note() == null && statement.projectedMillis() < 1_000) {
+                    continue;
+                }
+                report.append(String.format(Locale.ROOT, "      %-4s %-22s %-11s %10s  %s%n",
+                        statement.kind(), statement.lockMode(), statement.work(),
+                        formatMillis(statement.projectedMillis()), describe(statement)));
+            }
+        }
+
+        long heavy = heavyStatementCount();
+        if (heavy > 0) {
+            report.append(String.format(Locale.ROOT, "Операторов, блокирующих запись: %d.", heavy));
+            if (transactionMode != TransactionMode.PER_MIGRATION) {
+                report.append(" Блокировки удерживаются до фиксации транзакции, а не только на время оператора.");
+            }
+            report.append(System.lineSeparator());
+        }
+        return report.toString();
+    }
+
+    private static String describe(Statement statement) {
+        StringBuilder description = new StringBuilder(statement.sql());
+        if (statement.table() != null) {
+            description.append(" [").append(statement.table());
+            if (statement.tableBytes() >= 0) {
+                description.append(", ").append(formatBytes(statement.tableBytes()));
+            }
+            description.append(']');
+        }
+        if (statement.estimatedRows() >= 0) {
+            description.append(String.format(Locale.ROOT, " [строк ≈ %d, cost %.0f]", statement.estimatedRows(), statement.estimatedCost()));
+        }
+        if (statement.note() != null) {
+            description.append(" — ").append(statement.note());
+        }
+        return description.toString();
+    }
+
+    private static String formatMillis(long millis) {
+        if (millis < 1_000) {
+            return millis + " мс";
+        }
+        if (millis < 60_000) {
+            return String.format(Locale.ROOT, "%.1f с", millis / 1_000.0);
+        }
+        return String.format(Locale.ROOT, "%.1f мин", millis / 60_000.0);
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024 * 1024) {
+            return (bytes / 1024) + " КБ";
+        }
+        if (bytes < 1024L * 1024 * 1024) {
+            return (bytes / (1024 * 1024)) + " МБ";
+        }
+        return String.format(Locale.ROOT, "%.1f ГБ", bytes / (1024.0 * 1024 * 1024));
+    }
+}
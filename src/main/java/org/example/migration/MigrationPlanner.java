@@ -0,0 +1,243 @@
+package org.example.migration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.config.ConfigurationLoader;
+import org.example.config.MigrationConfig;
+import org.example.util.ConnectionManager;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Построение плана применения миграций без изменения базы данных (режим dry-run).
+ * <p>
+ * Каждая миграция разбивается на операторы. Для DML-операторов запрашивается {@code EXPLAIN}
+ * (без {@code ANALYZE}, то есть без выполнения), из которого берутся оценки числа строк и стоимости.
+ * DDL-операторы классифицируются по захватываемой блокировке и по тому, читают ли они или переписывают
+ * таблицу; размер таблицы берётся из {@code pg_class}. Длительность оценивается по скоростям
+ * {@code migration.plan.rows.per.second} и {@code migration.plan.bytes.per.second}, поэтому это
+ * ориентир для выбора окна обслуживания, а не точный прогноз.
+ * <p>
+ * Всё выполняется в транзакции только для чтения, которая в конце откатывается.
+ * Операторы, зависящие от ещё не созданных объектов, оценить нельзя — они помечаются в отчёте.
+ */
+@Slf4j
+public class MigrationPlanner {
+    private static final Set<String> DML_KEYWORDS = Set.of("INSERT", "UPDATE", "DELETE", "MERGE", "SELECT", "WITH", "VALUES");
+    private static final Set<String> DDL_KEYWORDS = Set.of(
+            "CREATE", "ALTER", "DROP", "TRUNCATE", "CLUSTER", "VACUUM", "REINDEX", "REFRESH", "COMMENT", "GRANT", "REVOKE");
+    private static final Pattern EXPLAIN_ESTIMATE = Pattern.compile("cost=[\\d.]+\\.\\.([\\d.]+) rows=(\\d+)");
+    private static final String TABLE_SIZE_SQL = "SELECT pg_total_relation_size(c.oid) FROM pg_class c WHERE c.oid = to_regclass(?)";
+    private static final int MAX_SQL_LENGTH = 80;
+
+    private final long rowsPerSecond;
+    private final long bytesPerSecond;
+    private final TransactionMode transactionMode;
+
+    /**
+     * Конструктор для {@link MigrationPlanner}.
+     * Параметры берутся из общей конфигурации.
+     */
+    public MigrationPlanner() {
+        this(ConfigurationLoader.getInstance().getConfig());
+    }
+
+    /**
+     * Конструктор для {@link MigrationPlanner} с заданной конфигурацией.
+     *
+     * @param config Конфигурация инструмента.
+     */
+    public MigrationPlanner(MigrationConfig config) {
+        this.rowsPerSecond = config.getPlanRowsPerSecond();
+        this.bytesPerSecond = config.getPlanBytesPerSecond();
+        this.transactionMode = config.getTransactionMode();
+    }
+
+    /**
+     * Строит план применения миграций к базе по умолчанию.
+     *
+     * @param migrations Ожидающие миграции в порядке применения.
+     * @return План применения.
+     * @throws IllegalStateException если не удаётся обратиться к базе данных.
+     */
+    public MigrationPlan plan(List<MigrationFile> migrations) {
+        return plan(migrations, ConnectionManager.getDataSource());
+    }
+
+    /**
+     * Строит план применения миграций к базе заданного источника соединений.
+     *
+     * @param migrations Ожидающие миграции в порядке применения.
+     * @param dataSource Источник соединений с базой данных.
+     * @return План применения.
+     * @throws IllegalStateException если не удаётся обратиться к базе данных или прочитать миграцию.
+     */
+    public MigrationPlan plan(List<MigrationFile> migrations, DataSource dataSource) {
+        log.info("Построение плана применения {} миграций...", migrations.size());
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            try {
+                Map<String, Long> tableSizes = new HashMap<>();
+                List<MigrationPlan.Migration> plans = new ArrayList<>(migrations.size());
+                for (MigrationFile migration : migrations) {
+                    plans.add(planMigration(connection, migration, tableSizes));
+                }
+                return new MigrationPlan(List.copyOf(plans), transactionMode);
+            } finally {
+                connection.rollback();
+                connection.setReadOnly(false);
+            }
+        } catch (SQLException e) {
+            log.error("Ошибка при построении плана миграций: {}", e.getMessage(), e);
+            throw new IllegalStateException("Failed to build migration plan: " + e.getMessage(), e);
+        }
+    }
+
+    private MigrationPlan.Migration planMigration(Connection connection, MigrationFile migration,
+                                                  Map<String, Long> tableSizes) throws SQLException {
+        boolean online = OnlineMigration.isOnline(migration);
+        if (CopyMigration.isCopyMigration(migration.getFileName())) {
+            return new MigrationPlan.Migration(migration.getFileName(), online, List.of(planCopy(connection, migration, tableSizes)));
+        }
+        if (BackfillMigration.isBackfill(migration)) {
+            return new MigrationPlan.Migration(migration.getFileName(), online, List.of(planBackfill(connection, migration, tableSizes)));
+        }
+
+        List<MigrationPlan.Statement> statements = new ArrayList<>();
+        try (SqlStatementSplitter splitter = new SqlStatementSplitter(migration.openReader())) {
+            SqlStatement sql;
+            while ((sql = splitter.next()) != null) {
+                statements.add(planStatement(connection, sql, tableSizes));
+            }
+        } catch (IOException e) {
+            throw new SQLException("Failed to read migration " + migration.getFileName(), e);
+        }
+        return new MigrationPlan.Migration(migration.getFileName(), online, List.copyOf(statements));
+    }
+
+    private MigrationPlan.Statement planStatement(Connection connection, SqlStatement sql,
+                                                  Map<String, Long> tableSizes) throws SQLException {
+        String text = abbreviate(sql.getSql());
+        if (DML_KEYWORDS.contains(sql.getKeyword())) {
+            return planDml(connection, sql.getSql(), text);
+        }
+        if (!DDL_KEYWORDS.contains(sql.getKeyword())) {
+            return new MigrationPlan.Statement(text, sql.getKeyword(), LockMode.NONE, DdlClassifier.TableWork.NONE.name(),
+                    null, -1, -1, -1, 0, null);
+        }
+
+        DdlClassifier.Classification classification = DdlClassifier.classify(sql.getSql());
+        String table = classification.table();
+        long tableBytes = table != null ? tableSize(connection, table, tableSizes) : -1;
+        String note = null;
+        if (table != null && tableBytes < 0) {
+            note = "таблица ещё не существует";
+        }
+        long projected = Math.max(tableBytes, 0) * classification.work().passes() * 1_000 / bytesPerSecond;
+        return new MigrationPlan.Statement(text, "DDL", classification.lockMode(), classification.work().name(),
+                table, tableBytes, -1, -1, projected, note);
+    }
+
+    private MigrationPlan.Statement planDml(Connection connection, String sql, String text) throws SQLException {
+        Savepoint savepoint = connection.setSavepoint();
+        try (Statement statement = connection.createStatement();
+             ResultSet plan = statement.executeQuery("EXPLAIN " + sql)) {
+            double cost = -1;
+            long rows = 0;
+            while (plan.next()) {
+                Matcher matcher = EXPLAIN_ESTIMATE.matcher(plan.getString(1));
+                if (matcher.find()) {
+                    if (cost < 0) {
+                        cost = Double.parseDouble(matcher.group(1));
+                    }
+                    rows = Math.max(rows, Long.parseLong(matcher.group(2)));
+                }
+            }
+            connection.releaseSavepoint(savepoint);
+            long projected = rows * 1_000 / rowsPerSecond;
+            return new MigrationPlan.Statement(text, "DML", LockMode.ROW_EXCLUSIVE, DdlClassifier.TableWork.NONE.name(),
+                    null, -1, rows, cost, projected, null);
+        } catch (SQLException e) {
+            connection.rollback(savepoint);
+            log.debug("EXPLAIN не выполнен для оператора {}: {}", text, e.getMessage());
+            return new MigrationPlan.Statement(text, "DML", LockMode.ROW_EXCLUSIVE, DdlClassifier.TableWork.NONE.name(),
+                    null, -1, -1, -1, 0, "оценка недоступна: " + firstLine(e.getMessage()));
+        }
+    }
+
+    private MigrationPlan.Statement planCopy(Connection connection, MigrationFile migration,
+                                             Map<String, Long> tableSizes) throws SQLException {
+        String target = migration.getHeaders().get(MigrationHeaders.COPY);
+        String table = target == null ? null : target.split("\\(", 2)[0].strip();
+        long tableBytes = table == null || table.isEmpty() ? -1 : tableSize(connection, table, tableSizes);
+        long projected = migration.getSize() * 1_000 / bytesPerSecond;
+        String note = table == null || table.isEmpty() ? "нет заголовка @copy" : null;
+        return new MigrationPlan.Statement("COPY " + migration.getFileName(), "COPY", LockMode.ROW_EXCLUSIVE,
+                DdlClassifier.TableWork.NONE.name(), table, tableBytes, -1, -1, projected, note);
+    }
+
+    /**
+     * Backfill-миграцию нельзя оценить через {@code EXPLAIN}: её операторы параметризованы границами частей.
+     * Длительность оценивается как один проход по таблице, блокировки удерживаются только на время одной части.
+     */
+    private MigrationPlan.Statement planBackfill(Connection connection, MigrationFile migration,
+                                                 Map<String, Long> tableSizes) throws SQLException {
+        String table = migration.getHeaders().get(MigrationHeaders.BACKFILL);
+        boolean hasTable = table != null && !table.isBlank();
+        long tableBytes = hasTable ? tableSize(connection, table.strip(), tableSizes) : -1;
+        long projected = Math.max(tableBytes, 0) * 1_000 / bytesPerSecond;
+        String note = hasTable ? "частями, каждая часть в своей транзакции" : "нет заголовка @backfill";
+        return new MigrationPlan.Statement("BACKFILL " + migration.getFileName(), "FILL", LockMode.ROW_EXCLUSIVE,
+                DdlClassifier.TableWork.SCAN.name(), hasTable ? table.strip() : null, tableBytes, -1, -1, projected, note);
+    }
+
+    private static long tableSize(Connection connection, String table, Map<String, Long> tableSizes) throws SQLException {
+        Long cached = tableSizes.get(table);
+        if (cached != null) {
+            return cached;
+        }
+        Savepoint savepoint = connection.setSavepoint();
+        long size = -1;
+        try (PreparedStatement statement = connection.prepareStatement(TABLE_SIZE_SQL)) {
+            statement.setString(1, table);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    size = resultSet.getLong(1);
+                }
+            }
+            connection.releaseSavepoint(savepoint);
+        } catch (SQLException e) {
+            connection.rollback(savepoint);
+            log.debug("Не удалось определить размер таблицы {}: {}", table, e.getMessage());
+        }
+        tableSizes.put(table, size);
+        return size;
+    }
+
+    private static String abbreviate(String sql) {
+        String singleLine = sql.replaceAll("\\s+", " ").strip();
+        return singleLine.length() > MAX_SQL_LENGTH ? singleLine.substring(0, MAX_SQL_LENGTH - 3) + "..." : singleLine;
+    }
+
+    private static String firstLine(String message) {
+        if (message == null) {
+            return "";
+        }
+        int newLine = message.indexOf('\n');
+        return newLine < 0 ? message : message.substring(0, newLine);
+    }
+}
@@ -3,12 +3,17 @@ package org.example.migration;
 import lombok.extern.slf4j.Slf4j;
 import org.example.util.ConnectionManager;
 
+import javax.sql.DataSource;
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Locale;
 
 /**
  * Класс для управления таблицей миграций в базе данных.
+ * Вместе с ней создаётся таблица {@code applied_migrations_backfill} с контрольными точками backfill-миграций.
  */
 @Slf4j
 public class MigrationTableManager {
@@ -17,23 +22,151 @@ public class MigrationTableManager {
             CREATE TABLE IF NOT EXISTS applied_migrations (
                 id SERIAL PRIMARY KEY,
                 file_name VARCHAR(255) UNIQUE NOT NULL,
-                applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                version BIGINT,
+                applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                duration_ms BIGINT,
+                statement_count INT,
+                rows_affected BIGINT,
+                bytes_read BIGINT,
+                lock_wait_ms BIGINT
             );
     """;
 
+    private static final String CREATE_BACKFILL_TABLE_SQL = """
+            CREATE TABLE IF NOT EXISTS applied_migrations_backfill (
+                file_name VARCHAR(255) PRIMARY KEY,
+                last_key TEXT,
+                rows_processed BIGINT NOT NULL DEFAULT 0,
+                updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+            );
+    """;
+
+    private static final String ADD_VERSION_COLUMN_SQL = "ALTER TABLE applied_migrations ADD COLUMN IF NOT EXISTS version BIGINT";
+    private static final String FILL_VERSION_SQL =
+            "UPDATE applied_migrations SET version = CAST(SUBSTRING(file_name, 1, 14) AS BIGINT) WHERE version IS NULL";
+    private static final String[] ADD_METRICS_COLUMNS_SQL = {
+            "ALTER TABLE applied_migrations ADD COLUMN IF NOT EXISTS duration_ms BIGINT",
+            "ALTER TABLE applied_migrations ADD COLUMN IF NOT EXISTS statement_count INT",
+            "ALTER TABLE applied_migrations ADD COLUMN IF NOT EXISTS rows_affected BIGINT",
+            "ALTER TABLE applied_migrations ADD COLUMN IF NOT EXISTS bytes_read BIGINT",
+            "ALTER TABLE applied_migrations ADD COLUMN IF NOT EXISTS lock_wait_ms BIGINT"
+    };
+    private static final String CREATE_VERSION_INDEX_SQL =
+            "CREATE INDEX IF NOT EXISTS applied_migrations_version_idx ON applied_migrations (version)";
+
     /**
      * Проверяет наличие таблицы для хранения выполненных миграций и создаёт её при необходимости.
      */
     public static void ensureMigrationTableExists() {
+        ensureMigrationTableExists(ConnectionManager.getDataSource());
+    }
+
+    /**
+     * Проверяет наличие таблицы миграций в базе заданного источника соединений и создаёт её при необходимости.
+     *
+     * @param dataSource Источник соединений с базой данных.
+     */
+    public static void ensureMigrationTableExists(DataSource dataSource) {
         log.info("Проверка и создание таблицы для хранения применённых миграций...");
 
-        try (Connection connection = ConnectionManager.getConnection();
+        try (Connection connection = dataSource.getConnection();
              Statement statement = connection.createStatement()) {
             statement.execute(CREATE_TABLE_SQL);
+            if (!hasColumn(connection, "version")) {
+                upgradeVersionColumn(statement);
+            }
+            if (!hasColumn(connection, "lock_wait_ms")) {
+                upgradeMetricsColumns(statement);
+            }
+            statement.execute(CREATE_VERSION_INDEX_SQL);
+            statement.execute(CREATE_BACKFILL_TABLE_SQL);
             log.info("Таблица миграций успешно проверена или создана.");
         } catch (SQLException e) {
             log.error("Ошибка при проверке или создании таблицы миграций: {}", e.getMessage(), e);
             throw new IllegalStateException("Error while ensuring migration table exists: " + e.getMessage(), e);
         }
     }
+
+    /**
+     * Проверяет, что таблица миграций существует и соответствует текущей схеме.
+     * Используется для быстрого пути без захвата блокировки: если таблица готова, DDL выполнять не нужно.
+     *
+     * @return {@code true}, если таблица существует и не требует обновления.
+     */
+    public static boolean isMigrationTableReady() {
+        return isMigrationTableReady(ConnectionManager.getDataSource());
+    }
+
+    /**
+     * Проверяет, что таблица миграций в базе заданного источника соединений готова к работе.
+     *
+     * @param dataSource Источник соединений с базой данных.
+     * @return {@code true}, если таблица существует и не требует обновления.
+     */
+    public static boolean isMigrationTableReady(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection()) {
+            return hasColumn(connection, "version") && hasColumn(connection, "lock_wait_ms")
+                    && hasColumn(connection, "applied_migrations_backfill", "last_key");
+        } catch (SQLException e) {
+            log.error("Ошибка при проверке таблицы миграций: {}", e.getMessage(), e);
+            throw new IllegalStateException("Error while checking migration table: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Проверяет, что таблица миграций существует, независимо от версии её схемы.
+     *
+     * @return {@code true}, если таблица существует.
+     */
+    public static boolean migrationTableExists() {
+        try (Connection connection = ConnectionManager.getConnection()) {
+            return hasColumn(connection, "file_name");
+        } catch (SQLException e) {
+            log.error("Ошибка при проверке таблицы миграций: {}", e.getMessage(), e);
+            throw new IllegalStateException("Error while checking migration table: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Проверяет наличие столбца таблицы миграций, появившегося в одной из новых версий её схемы.
+     */
+    private static boolean hasColumn(Connection connection, String name) throws SQLException {
+        return hasColumn(connection, "applied_migrations", name);
+    }
+
+    private static boolean hasColumn(Connection connection, String tableName, String name) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        for (String table : new String[]{tableName, tableName.toUpperCase(Locale.ROOT)}) {
+            for (String column : new String[]{name, name.toUpperCase(Locale.ROOT)}) {
+                try (ResultSet columns = metaData.getColumns(null, null, table, column)) {
+                    if (columns.next()) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Переводит таблицу, созданную предыдущей версией инструмента, на новую схему:
+     * добавляет столбец {@code version} и заполняет его временной меткой из имени файла.
+     */
+    private static void upgradeVersionColumn(Statement statement) throws SQLException {
+        log.info("Обновление схемы таблицы миграций: добавление столбца version...");
+        statement.execute(ADD_VERSION_COLUMN_SQL);
+        int updated = statement.executeUpdate(FILL_VERSION_SQL);
+        log.info("Столбец version заполнен для {} записей.", updated);
+    }
+
+    /**
+     * Добавляет столбцы с показателями применения миграций.
+     * Для записей, сделанных предыдущей версией инструмента, показатели остаются пустыми.
+     */
+    private static void upgradeMetricsColumns(Statement statement) throws SQLException {
+        log.info("Обновление схемы таблицы миграций: добавление столбцов с показателями...");
+        for (String sql : ADD_METRICS_COLUMNS_SQL) {
+            statement.execute(sql);
+        }
+    }
 }
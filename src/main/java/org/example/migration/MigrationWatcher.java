@@ -0,0 +1,388 @@
+package org.example.migration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.config.MigrationConfig;
+import org.example.metrics.MetricsRegistry;
+import org.example.metrics.MigrationMetrics;
+import org.example.metrics.MigrationMetricsListener;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Режим наблюдения за папкой миграций для локальной разработки.
+ * <p>
+ * После начального применения ожидающих миграций папка отслеживается через {@link WatchService}:
+ * новые файлы применяются сразу после сохранения, без повторного сканирования папки и чтения таблицы
+ * {@code applied_migrations} — множество применённых миграций хранится в памяти, а соединения берутся из пула,
+ * который держит их открытыми между изменениями. Изменения, пришедшие в течение {@code migration.watch.debounce},
+ * обрабатываются вместе. Пустые файлы и файлы, изменявшиеся в течение этого времени, не применяются до тех пор,
+ * пока их содержимое не перестанет меняться: IDE создаёт новый файл пустым, а сохранение может ещё продолжаться.
+ * <p>
+ * Если изменена последняя применённая миграция и рядом с ней лежит скрипт отката
+ * ({@code <имя без .sql>.down.sql}), в одной транзакции выполняется откат, запись о миграции удаляется,
+ * и миграция применяется заново. Скрипт отката пишется только для ещё не выпущенной миграции, поэтому он
+ * и служит признаком того, что её можно переприменять. Изменения остальных применённых миграций только выводятся в лог.
+ */
+@Slf4j
+public class MigrationWatcher implements AutoCloseable {
+    private static final String APPLIED_SQL = "SELECT file_name FROM applied_migrations";
+    private static final String DELETE_MIGRATION_SQL = "DELETE FROM applied_migrations WHERE file_name = ?";
+
+    private final MigrationFileReader migrationFileReader;
+    private final MigrationManager migrationManager;
+    private final MigrationExecutor migrationExecutor;
+    private final MigrationConfig config;
+    private final DataSource dataSource;
+    private final MigrationMetricsListener metrics = MetricsRegistry.listener();
+
+    private final NavigableSet<String> applied = new TreeSet<>();
+    private final Map<String, Long> checksums = new HashMap<>();
+    private final Set<String> deferred = new TreeSet<>();
+    private volatile WatchService watchService;
+    private volatile boolean closed;
+
+    /**
+     * Конструктор для {@link MigrationWatcher}.
+     *
+     * @param migrationFileReader Экземпляр {@link MigrationFileReader} папки миграций.
+     * @param config              Конфигурация инструмента.
+     * @param dataSource          Источник соединений с базой данных.
+     */
+    public MigrationWatcher(MigrationFileReader migrationFileReader, MigrationConfig config, DataSource dataSource) {
+        this.migrationFileReader = migrationFileReader;
+        this.migrationManager = new MigrationManager(migrationFileReader, config);
+        this.migrationExecutor = new MigrationExecutor(config);
+        this.config = config;
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Применяет ожидающие миграции и наблюдает за папкой до вызова {@link #close()} или прерывания потока.
+     * Ошибки применения и чтения файлов выводятся в лог и не прерывают наблюдение:
+     * миграция применяется снова после исправления файла.
+     *
+     * @throws IOException если не удаётся прочитать папку миграций или начать наблюдение за ней.
+     */
+    public void watch() throws IOException {
+        Path folder = migrationFileReader.getMigrationFolder();
+        try (WatchService service = folder.getFileSystem().newWatchService()) {
+            watchService = service;
+            if (closed) {
+                return;
+            }
+            // Наблюдение начинается до чтения папки, чтобы не пропустить файлы, сохранённые во время запуска
+            folder.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            initialize();
+            log.info("Наблюдаем за папкой миграций '{}'...", folder);
+
+            while (!closed) {
+                // Отложенные файлы проверяются снова, даже если новых событий нет
+                Set<String> changed = new TreeSet<>(deferred);
+                deferred.clear();
+                WatchKey first = changed.isEmpty()
+                        ? service.take()
+                        : service.poll(config.getWatchDebounceMs(), TimeUnit.MILLISECONDS);
+                boolean overflow = first != null && drain(first, changed);
+                WatchKey key;
+                while ((key = service.poll(config.getWatchDebounceMs(), TimeUnit.MILLISECONDS)) != null) {
+                    overflow |= drain(key, changed);
+                }
+                if (overflow) {
+                    log.debug("Часть событий файловой системы потеряна, сверяем папку целиком.");
+                    migrationFileReader.scanMigrationFiles().forEach(path -> changed.add(path.getFileName().toString()));
+                }
+                try {
+                    handle(changed);
+                } catch (IOException | IllegalStateException e) {
+                    log.error("Ошибка при обработке изменений в папке миграций, продолжаем наблюдение: {}", e.getMessage(), e);
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            log.debug("Наблюдение за папкой миграций остановлено.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            watchService = null;
+        }
+        log.info("Режим наблюдения завершён.");
+    }
+
+    /**
+     * Останавливает наблюдение; {@link #watch()} завершается после обработки текущих изменений.
+     *
+     * @throws IOException если не удаётся закрыть {@link WatchService}.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        WatchService service = watchService;
+        if (service != null) {
+            service.close();
+        }
+    }
+
+    /**
+     * Проверяет таблицу миграций, читает множество применённых миграций и применяет ожидающие.
+     */
+    private void initialize() throws IOException {
+        MigrationTableManager.ensureMigrationTableExists(dataSource);
+        if (config.isBaselineEnabled()) {
+            new BaselineManager(migrationFileReader, config).bootstrap(dataSource, migrationManager);
+        }
+        reloadApplied();
+        if (!applied.isEmpty()) {
+            Path newest = migrationFileReader.getMigrationFolder().resolve(applied.last());
+            if (Files.isRegularFile(newest)) {
+                checksums.put(applied.last(), MigrationManifest.checksum(newest));
+            }
+        }
+
+        List<Path> pending = migrationFileReader.scanMigrationFiles().stream()
+                .filter(path -> !applied.contains(path.getFileName().toString()))
+                .toList();
+        if (pending.isEmpty()) {
+            log.info("Нет новых миграций для применения.");
+        } else {
+            apply(pending);
+        }
+    }
+
+    /**
+     * Собирает имена изменённых файлов из событий ключа.
+     *
+     * @return {@code true}, если часть событий потеряна.
+     */
+    private boolean drain(WatchKey key, Set<String> changed) {
+        boolean overflow = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflow = true;
+            } else {
+                changed.add(((Path) event.context()).getFileName().toString());
+            }
+        }
+        if (!key.reset()) {
+            log.error("Папка миграций '{}' больше недоступна, наблюдение остановлено.", migrationFileReader.getMigrationFolder());
+            closed = true;
+        }
+        return overflow;
+    }
+
+    /**
+     * Применяет новые миграции и переприменяет изменённую последнюю миграцию.
+     */
+    private void handle(Set<String> changed) throws IOException {
+        Path folder = migrationFileReader.getMigrationFolder();
+        List<Path> created = new ArrayList<>();
+        List<Path> modified = new ArrayList<>();
+        for (String fileName : changed) {
+            Path path = folder.resolve(fileName);
+            // Редакторы сохраняют файл через временные копии, которые к этому моменту уже удалены
+            if (!MigrationFileReader.isMigrationFile(fileName) || !isSettled(path)) {
+                continue;
+            }
+            (applied.contains(fileName) ? modified : created).add(path);
+        }
+
+        for (Path path : modified) {
+            try {
+                reapplyIfChanged(path);
+            } catch (IOException e) {
+                log.error("Не удалось прочитать изменённую миграцию {}: {}", path.getFileName(), e.getMessage());
+            }
+        }
+        if (!created.isEmpty()) {
+            if (!applied.isEmpty() && created.get(0).getFileName().toString().compareTo(applied.last()) < 0) {
+                log.warn("Миграция {} старше последней применённой {} и будет применена не по порядку.",
+                        created.get(0).getFileName(), applied.last());
+            }
+            apply(created);
+        }
+    }
+
+    /**
+     * Проверяет, что файл существует, не пуст и не изменялся дольше {@code migration.watch.debounce}.
+     * Файл, который ещё изменяется, откладывается до следующей проверки; пустой файл ждёт события об изменении.
+     */
+    private boolean isSettled(Path path) {
+        String fileName = path.getFileName().toString();
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            log.debug("Файл {} недоступен: {}", fileName, e.getMessage());
+            return false;
+        }
+        if (!attributes.isRegularFile()) {
+            return false;
+        }
+        if (attributes.size() == 0) {
+            log.debug("Файл {} пуст, ожидаем его содержимое.", fileName);
+            return false;
+        }
+        long age = System.currentTimeMillis() - attributes.lastModifiedTime().toMillis();
+        if (age >= 0 && age < config.getWatchDebounceMs()) {
+            deferred.add(fileName);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Применяет миграции и добавляет их в множество применённых.
+     * При ошибке множество перечитывается из базы: в режимах с несколькими транзакциями часть миграций могла быть зафиксирована.
+     */
+    private void apply(List<Path> files) throws IOException {
+        List<MigrationFile> migrations = migrationFileReader.loadMigrationFiles(files);
+        log.info("Применение миграций:");
+        migrations.forEach(m -> log.info(" - {}", m.getFileName()));
+
+        metrics.onRunStarted(migrations.size());
+        boolean success = false;
+        MigrationLock lock = null;
+        try {
+            lock = acquireLock();
+            migrationExecutor.executeMigrations(migrations, dataSource);
+            for (MigrationFile migration : migrations) {
+                applied.add(migration.getFileName());
+                checksums.put(migration.getFileName(), MigrationManifest.checksum(migration.getPath()));
+            }
+            migrationManager.recordAppliedMigrations(migrations);
+            success = true;
+        } catch (SQLException | IllegalStateException | IOException e) {
+            log.error("Миграции не применены, ожидаем исправления файлов: {}", e.getMessage());
+            reloadApplied();
+        } finally {
+            release(lock);
+            metrics.onRunFinished(success);
+        }
+    }
+
+    /**
+     * Откатывает и заново применяет изменённую миграцию, если она последняя применённая и у неё есть скрипт отката.
+     */
+    private void reapplyIfChanged(Path path) throws IOException {
+        String fileName = path.getFileName().toString();
+        long checksum = MigrationManifest.checksum(path);
+        Long previous = checksums.put(fileName, checksum);
+        if (previous != null && previous == checksum) {
+            return;
+        }
+
+        Path downScript = downScriptOf(path);
+        if (!config.isWatchReapply() || !fileName.equals(applied.last()) || !Files.isRegularFile(downScript)) {
+            log.warn("Изменена уже применённая миграция {}. Заново применяется только последняя миграция "
+                    + "со скриптом отката {}.", fileName, downScript.getFileName());
+            return;
+        }
+
+        MigrationFile migration = migrationFileReader.loadMigrationFiles(List.of(path)).get(0);
+        if (CopyMigration.isCopyMigration(fileName) || OnlineMigration.isOnline(migration) || BackfillMigration.isBackfill(migration)) {
+            log.warn("Миграция {} выполняется вне одной транзакции и не может быть применена заново.", fileName);
+            return;
+        }
+        MigrationFile down = new MigrationFile(downScript.getFileName().toString(), Files.readString(downScript));
+
+        log.info("Миграция {} изменена, откатываем и применяем заново...", fileName);
+        metrics.onRunStarted(1);
+        boolean success = false;
+        MigrationLock lock = null;
+        try {
+            lock = acquireLock();
+            reapply(migration, down);
+            migrationManager.recordAppliedMigrations(List.of(migration));
+            success = true;
+            log.info("Миграция {} применена заново.", fileName);
+        } catch (SQLException e) {
+            metrics.onMigrationFailed(fileName, e);
+            log.error("Не удалось применить миграцию {} заново, изменения отменены: {}", fileName, e.getMessage());
+            // Повторное сохранение того же содержимого должно снова запустить попытку
+            checksums.remove(fileName);
+            reloadApplied();
+        } finally {
+            release(lock);
+            metrics.onRunFinished(success);
+        }
+    }
+
+    /**
+     * Выполняет скрипт отката, удаляет запись о миграции и применяет её заново в одной транзакции.
+     */
+    private void reapply(MigrationFile migration, MigrationFile down) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement delete = connection.prepareStatement(DELETE_MIGRATION_SQL);
+             PreparedStatement bookkeeping = connection.prepareStatement(MigrationExecutor.INSERT_MIGRATION_SQL)) {
+            connection.setAutoCommit(false);
+            try {
+                migrationExecutor.applyMigration(connection, down);
+                delete.setString(1, migration.getFileName());
+                delete.executeUpdate();
+                MigrationMetrics reapplied = migrationExecutor.applyMigration(connection, migration);
+                migrationExecutor.logMigrationsAsExecuted(bookkeeping, List.of(reapplied));
+                connection.commit();
+                metrics.onMigrationApplied(reapplied);
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private void reloadApplied() {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(APPLIED_SQL);
+             ResultSet resultSet = statement.executeQuery()) {
+            applied.clear();
+            while (resultSet.next()) {
+                applied.add(resultSet.getString(1));
+            }
+            log.debug("Количество выполненных миграций: {}", applied.size());
+        } catch (SQLException e) {
+            log.error("Ошибка при запросе к базе данных: {}", e.getMessage(), e);
+            throw new IllegalStateException("Error while querying the database.", e);
+        }
+    }
+
+    private MigrationLock acquireLock() throws SQLException {
+        return config.isLockEnabled() ? MigrationLock.acquire(dataSource, config.getLockKey(), config.getLockWaitMs()) : null;
+    }
+
+    private static void release(MigrationLock lock) {
+        if (lock != null) {
+            lock.release();
+        }
+    }
+
+    /**
+     * Возвращает путь к скрипту отката миграции.
+     *
+     * @param migration Путь к файлу миграции.
+     * @return Путь к файлу {@code <имя без расширения>.down.sql} рядом с миграцией.
+     */
+    static Path downScriptOf(Path migration) {
+        String fileName = migration.getFileName().toString();
+        int extension = fileName.lastIndexOf('.');
+        return migration.resolveSibling(fileName.substring(0, extension) + MigrationFileReader.DOWN_SUFFIX);
+    }
+}
@@ -0,0 +1,205 @@
+package org.example.migration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.config.MigrationConfig;
+import org.example.metrics.MigrationMetricsListener;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Применение миграций в неблокирующем режиме (заголовок {@code -- @online}).
+ * <p>
+ * Операторы такой миграции выполняются вне транзакции, по одному, с ограничениями
+ * {@code lock_timeout} и {@code statement_timeout}. Это позволяет использовать {@code CREATE INDEX CONCURRENTLY}
+ * и не держать очередь запросов за блокировкой ACCESS EXCLUSIVE: если блокировку не удалось получить
+ * за отведённое время, оператор повторяется с экспоненциальной задержкой со случайным разбросом.
+ * Повторяются только временные ошибки: таймаут блокировки, взаимная блокировка и конфликт сериализации.
+ * Невалидный индекс, оставшийся после неудачного {@code CREATE INDEX CONCURRENTLY}, удаляется: перед повтором
+ * он строится заново, а при постоянной ошибке (например, дубликате ключа) удаляется один раз, и ошибка передаётся дальше.
+ * <p>
+ * Так как операторы фиксируются по отдельности, при повторном запуске после сбоя миграция выполняется
+ * с начала, поэтому её операторы должны быть идемпотентными ({@code IF NOT EXISTS} и т. п.).
+ */
+@Slf4j
+class OnlineMigration {
+    private static final String LOCK_NOT_AVAILABLE = "55P03";
+    private static final Set<String> TRANSIENT_STATES = Set.of(LOCK_NOT_AVAILABLE, "40P01", "40001");
+    private static final long MAX_RETRY_DELAY_MS = 30_000;
+    private static final Pattern CONCURRENT_INDEX_PATTERN = Pattern.compile(
+            "\\bCREATE\\s+(?:UNIQUE\\s+)?INDEX\\s+CONCURRENTLY\\s+(?:IF\\s+NOT\\s+EXISTS\\s+)?([\\w.\"]+)",
+            Pattern.CASE_INSENSITIVE);
+    private static final String INDEX_VALID_SQL = "SELECT indisvalid FROM pg_index WHERE indexrelid = to_regclass(?)";
+
+    private final int lockTimeoutMs;
+    private final int statementTimeoutMs;
+    private final int maxAttempts;
+    private final int retryDelayMs;
+
+    /**
+     * Конструктор для {@link OnlineMigration}.
+     * Параметры берутся из свойств {@code migration.online.*}.
+     *
+     * @param config Конфигурация инструмента.
+     */
+    OnlineMigration(MigrationConfig config) {
+        this.lockTimeoutMs = config.getOnlineLockTimeoutMs();
+        this.statementTimeoutMs = config.getOnlineStatementTimeoutMs();
+        this.maxAttempts = config.getOnlineRetries();
+        this.retryDelayMs = config.getOnlineRetryDelayMs();
+    }
+
+    /**
+     * Проверяет, помечена ли миграция для неблокирующего выполнения.
+     *
+     * @param migration Миграция.
+     * @return {@code true}, если в заголовке миграции есть {@code @online}.
+     */
+    static boolean isOnline(MigrationFile migration) {
+        return migration.getHeaders().containsKey(MigrationHeaders.ONLINE);
+    }
+
+    /**
+     * Выполняет операторы миграции вне транзакции.
+     * Соединение должно находиться в режиме автоматической фиксации.
+     *
+     * @param connection Соединение с базой данных.
+     * @param migration  Миграция.
+     * @param metrics    Получатель показателей выполнения операторов.
+     * @return Итог выполнения: число операторов, затронутых строк и время ожидания блокировок.
+     * @throws SQLException если оператор не удалось выполнить за отведённое число попыток.
+     */
+    ExecutionSummary apply(Connection connection, MigrationFile migration, MigrationMetricsListener metrics) throws SQLException {
+        int statementCount = 0;
+        long rowsAffected = 0;
+        long lockWaitNanos = 0;
+        try (SqlStatementSplitter splitter = new SqlStatementSplitter(migration.openReader());
+             Statement statement = connection.createStatement()) {
+            statement.execute("SET lock_timeout = " + lockTimeoutMs);
+            statement.execute("SET statement_timeout = " + statementTimeoutMs);
+            try {
+                SqlStatement sql;
+                while ((sql = splitter.next()) != null) {
+                    long startedAt = System.nanoTime();
+                    long lockWait = executeWithRetries(connection, statement, sql.getSql());
+                    long rows = Math.max(statement.getUpdateCount(), 0);
+                    metrics.onStatementExecuted(migration.getFileName(), 1, System.nanoTime() - startedAt, rows);
+                    if (lockWait > 0) {
+                        metrics.onLockWait(lockWait);
+                    }
+                    statementCount++;
+                    rowsAffected += rows;
+                    lockWaitNanos += lockWait;
+                }
+            } finally {
+                statement.execute("RESET lock_timeout");
+                statement.execute("RESET statement_timeout");
+            }
+        } catch (IOException e) {
+            throw new SQLException("Failed to read migration " + migration.getFileName(), e);
+        }
+        return new ExecutionSummary(statementCount, rowsAffected, lockWaitNanos);
+    }
+
+    /**
+     * Выполняет оператор, повторяя его при временных ошибках.
+     *
+     * @return Время в наносекундах, потраченное на неудачные попытки получить блокировку и паузы между ними.
+     */
+    private long executeWithRetries(Connection connection, Statement statement, String sql) throws SQLException {
+        String concurrentIndex = findConcurrentIndexName(sql);
+        long lockWaitNanos = 0;
+
+        for (int attempt = 1; ; attempt++) {
+            long attemptStartedAt = System.nanoTime();
+            try {
+                if (concurrentIndex != null) {
+                    dropIfInvalid(connection, statement, concurrentIndex);
+                }
+                statement.execute(sql);
+                return lockWaitNanos;
+            } catch (SQLException e) {
+                if (!TRANSIENT_STATES.contains(e.getSQLState()) || attempt >= maxAttempts) {
+                    if (concurrentIndex != null) {
+                        dropInvalidAfterFailure(connection, statement, concurrentIndex, e);
+                    }
+                    throw e;
+                }
+                boolean lockTimeout = LOCK_NOT_AVAILABLE.equals(e.getSQLState());
+                long delay = backoff(attempt);
+                log.warn("Попытка {} из {} не удалась ({}), повтор через {} мс: {}",
+                        attempt, maxAttempts, e.getMessage(), delay, abbreviate(sql));
+                sleep(delay);
+                if (lockTimeout) {
+                    lockWaitNanos += System.nanoTime() - attemptStartedAt;
+                }
+            }
+        }
+    }
+
+    private void dropIfInvalid(Connection connection, Statement statement, String indexName) throws SQLException {
+        if (isInvalidIndex(connection, indexName)) {
+            log.warn("Обнаружен невалидный индекс {}, он будет удалён и построен заново.", indexName);
+            statement.execute("DROP INDEX CONCURRENTLY IF EXISTS " + indexName);
+        }
+    }
+
+    /**
+     * Удаляет невалидный индекс, оставшийся после окончательно неудачной попытки, чтобы он не замедлял запись в таблицу.
+     * Ошибка удаления добавляется к исходной ошибке.
+     */
+    private static void dropInvalidAfterFailure(Connection connection, Statement statement, String indexName, SQLException failure) {
+        try {
+            if (isInvalidIndex(connection, indexName)) {
+                log.warn("Удаляем невалидный индекс {}, оставшийся после ошибки.", indexName);
+                statement.execute("DROP INDEX CONCURRENTLY IF EXISTS " + indexName);
+            }
+        } catch (SQLException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    private static boolean isInvalidIndex(Connection connection, String indexName) throws SQLException {
+        try (PreparedStatement query = connection.prepareStatement(INDEX_VALID_SQL)) {
+            query.setString(1, indexName);
+            try (ResultSet resultSet = query.executeQuery()) {
+                return resultSet.next() && !resultSet.getBoolean(1);
+            }
+        }
+    }
+
+    private static String findConcurrentIndexName(String sql) {
+        Matcher matcher = CONCURRENT_INDEX_PATTERN.matcher(sql);
+        if (matcher.find() && !matcher.group(1).equalsIgnoreCase("ON")) {
+            return matcher.group(1);
+        }
+        return null;
+    }
+
+    private long backoff(int attempt) {
+        long delay = Math.min(MAX_RETRY_DELAY_MS, (long) retryDelayMs << Math.min(attempt - 1, 20));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    private static void sleep(long millis) throws SQLException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting to retry a migration statement.", e);
+        }
+    }
+
+    private static String abbreviate(String sql) {
+        String singleLine = sql.replaceAll("\\s+", " ");
+        return singleLine.length() > 120 ? singleLine.substring(0, 117) + "..." : singleLine;
+    }
+}
@@ -0,0 +1,186 @@
+package org.example.migration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.metrics.MigrationMetrics;
+import org.example.metrics.MigrationMetricsListener;
+import org.example.util.ConnectionManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Класс для параллельного выполнения миграций независимых групп.
+ * Миграции упорядочиваются по графу зависимостей {@link MigrationGraph}; готовые к выполнению миграции
+ * применяются одновременно на ограниченном пуле потоков, каждая в своей транзакции и на своём соединении.
+ * Ошибка в одной ветке графа не останавливает остальные: пропускаются только зависящие от неё миграции.
+ */
+@Slf4j
+public class ParallelMigrationExecutor {
+
+    private final MigrationExecutor migrationExecutor;
+    private final int threads;
+    private final MigrationMetricsListener metrics;
+
+    /**
+     * Конструктор для {@link ParallelMigrationExecutor}.
+     *
+     * @param migrationExecutor Исполнитель, применяющий отдельные миграции.
+     * @param threads           Максимальное количество одновременно выполняемых миграций.
+     */
+    public ParallelMigrationExecutor(MigrationExecutor migrationExecutor, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive: " + threads);
+        }
+        this.migrationExecutor = migrationExecutor;
+        this.threads = threads;
+        this.metrics = migrationExecutor.getMetrics();
+    }
+
+    /**
+     * Выполняет миграции с учётом зависимостей между ними.
+     * Метод возвращает управление после завершения всех веток, которые можно было выполнить.
+     *
+     * @param migrations Список миграций, отсортированный по временной метке.
+     * @throws IllegalStateException если хотя бы одна миграция завершилась ошибкой.
+     */
+    public void executeMigrations(List<MigrationFile> migrations) {
+        executeMigrations(migrations, ConnectionManager.getDataSource());
+    }
+
+    /**
+     * Выполняет миграции с учётом зависимостей между ними в базе заданного источника соединений.
+     *
+     * @param migrations Список миграций, отсортированный по временной метке.
+     * @param dataSource Источник соединений с базой данных.
+     * @throws IllegalStateException если хотя бы одна миграция завершилась ошибкой
+     *                               или зависит от миграции, которая не ожидает применения и не применена.
+     * @see #executeMigrations(List)
+     */
+    public void executeMigrations(List<MigrationFile> migrations, DataSource dataSource) {
+        if (migrations.isEmpty()) {
+            log.warn("Нет новых миграций для применения.");
+            return;
+        }
+
+        Set<String> dependencies = MigrationGraph.externalDependencies(migrations);
+        MigrationGraph graph = MigrationGraph.build(migrations, MigrationManager.findAppliedNames(dependencies, dataSource));
+        log.info("Начинаем параллельное выполнение миграций: {} миграций, {} групп, потоков: {}",
+                migrations.size(), graph.countGroups(), threads);
+
+        Map<MigrationGraph.Node, Integer> remaining = new HashMap<>();
+        Deque<MigrationGraph.Node> ready = new ArrayDeque<>();
+        for (MigrationGraph.Node node : graph.getNodes()) {
+            remaining.put(node, node.getDependencyCount());
+            if (node.getDependencyCount() == 0) {
+                ready.add(node);
+            }
+        }
+
+        List<String> failed = new ArrayList<>();
+        Set<String> skipped = new HashSet<>();
+        int applied = 0;
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CompletionService<Outcome> completion = new ExecutorCompletionService<>(pool);
+        int running = 0;
+        try {
+            while (!ready.isEmpty() || running > 0) {
+                while (!ready.isEmpty()) {
+                    MigrationGraph.Node node = ready.poll();
+                    completion.submit(() -> applyNode(node, dataSource));
+                    running++;
+                }
+
+                Outcome outcome = completion.take().get();
+                running--;
+
+                if (outcome.error() == null) {
+                    applied++;
+                    for (MigrationGraph.Node dependent : outcome.node().getDependents()) {
+                        if (remaining.merge(dependent, -1, Integer::sum) == 0) {
+                            ready.add(dependent);
+                        }
+                    }
+                } else {
+                    failed.add(outcome.node().getMigration().getFileName());
+                    skipDependents(outcome.node(), skipped);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while executing migrations.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Unexpected error while executing migrations: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        if (!failed.isEmpty()) {
+            log.error("Применено миграций: {}, с ошибкой: {} {}, пропущено зависимых: {} {}",
+                    applied, failed.size(), failed, skipped.size(), skipped);
+            throw new IllegalStateException("Failed to apply migrations " + failed + "; skipped dependent migrations " + skipped);
+        }
+        log.info("Все миграции успешно применены.");
+    }
+
+    private Outcome applyNode(MigrationGraph.Node node, DataSource dataSource) {
+        MigrationFile migration = node.getMigration();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement bookkeeping = connection.prepareStatement(MigrationExecutor.INSERT_MIGRATION_SQL)) {
+            if (OnlineMigration.isOnline(migration)) {
+                migrationExecutor.applyOnlineMigration(connection, bookkeeping, migration);
+                return new Outcome(node, null);
+            }
+            if (BackfillMigration.isBackfill(migration)) {
+                migrationExecutor.applyBackfillMigration(connection, bookkeeping, migration);
+                return new Outcome(node, null);
+            }
+
+            connection.setAutoCommit(false);
+            try {
+                MigrationMetrics applied = migrationExecutor.applyMigration(connection, migration);
+                migrationExecutor.logMigrationsAsExecuted(bookkeeping, List.of(applied));
+                connection.commit();
+                metrics.onMigrationApplied(applied);
+                return new Outcome(node, null);
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException | RuntimeException e) {
+            log.error("Ошибка при выполнении миграции {}. Транзакция отменена: {}", migration.getFileName(), e.getMessage(), e);
+            metrics.onMigrationFailed(migration.getFileName(), e);
+            return new Outcome(node, e);
+        }
+    }
+
+    private static void skipDependents(MigrationGraph.Node failedNode, Set<String> skipped) {
+        Deque<MigrationGraph.Node> queue = new ArrayDeque<>(failedNode.getDependents());
+        while (!queue.isEmpty()) {
+            MigrationGraph.Node node = queue.poll();
+            if (skipped.add(node.getMigration().getFileName())) {
+                log.warn("Миграция {} пропущена из-за ошибки в миграции {}",
+                        node.getMigration().getFileName(), failedNode.getMigration().getFileName());
+                queue.addAll(node.getDependents());
+            }
+        }
+    }
+
+    private record Outcome(MigrationGraph.Node node, Exception error) {
+    }
+}
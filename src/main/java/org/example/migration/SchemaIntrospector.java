@@ -0,0 +1,248 @@
+package org.example.migration;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Построение DDL-скрипта текущей схемы базы PostgreSQL по системному каталогу.
+ * <p>
+ * В скрипт попадают схемы, расширения, перечисления и домены, последовательности, функции, таблицы
+ * (включая секционированные), ограничения, индексы, представления и триггеры во всех пользовательских схемах.
+ * Объекты, принадлежащие расширениям, и служебные таблицы инструмента пропускаются.
+ * Данные, права доступа и комментарии не переносятся.
+ * <p>
+ * Объекты выводятся в фиксированном порядке видов, а внутри вида — в порядке создания, поэтому
+ * нестандартные зависимости (например, функция, возвращающая строку таблицы) могут потребовать правки скрипта.
+ */
+final class SchemaIntrospector {
+    private static final String USER_SCHEMA = "n.nspname NOT LIKE 'pg\\_%' AND n.nspname <> 'information_schema'";
+    private static final String TOOL_TABLES = "('applied_migrations', 'applied_migrations_backfill')";
+
+    private static final String SCHEMAS_SQL = "SELECT quote_ident(n.nspname) FROM pg_namespace n WHERE " + USER_SCHEMA
+            + " AND n.nspname <> 'public' AND " + notFromExtension("pg_namespace", "n") + " ORDER BY n.nspname";
+    private static final String EXTENSIONS_SQL = """
+            SELECT quote_ident(e.extname), quote_ident(n.nspname)
+            FROM pg_extension e JOIN pg_namespace n ON n.oid = e.extnamespace
+            WHERE e.extname <> 'plpgsql' ORDER BY e.oid""";
+    private static final String ENUMS_SQL = """
+            SELECT format('%I.%I', n.nspname, t.typname), string_agg(quote_literal(e.enumlabel), ', ' ORDER BY e.enumsortorder)
+            FROM pg_type t JOIN pg_namespace n ON n.oid = t.typnamespace JOIN pg_enum e ON e.enumtypid = t.oid
+            WHERE\s""" + USER_SCHEMA + " AND " + notFromExtension("pg_type", "t")
+            + " GROUP BY t.oid, n.nspname, t.typname ORDER BY t.oid";
+    private static final String DOMAINS_SQL = """
+            SELECT format('%I.%I', n.nspname, t.typname), format_type(t.typbasetype, t.typtypmod), t.typnotnull, t.typdefault,
+                   (SELECT string_agg(pg_get_constraintdef(k.oid), ' ' ORDER BY k.oid) FROM pg_constraint k WHERE k.contypid = t.oid)
+            FROM pg_type t JOIN pg_namespace n ON n.oid = t.typnamespace
+            WHERE t.typtype = 'd' AND\s""" + USER_SCHEMA + " AND " + notFromExtension("pg_type", "t") + " ORDER BY t.oid";
+    private static final String SEQUENCES_SQL = """
+            SELECT format('%I.%I', n.nspname, c.relname), format_type(s.seqtypid, NULL), s.seqstart, s.seqincrement,
+                   s.seqmin, s.seqmax, s.seqcache, s.seqcycle,
+                   quote_ident(tn.nspname) || '.' || quote_ident(t.relname) || '.' || quote_ident(a.attname)
+            FROM pg_sequence s
+            JOIN pg_class c ON c.oid = s.seqrelid
+            JOIN pg_namespace n ON n.oid = c.relnamespace
+            LEFT JOIN pg_depend d ON d.classid = 'pg_class'::regclass AND d.objid = c.oid
+                AND d.refclassid = 'pg_class'::regclass AND d.deptype = 'a'
+            LEFT JOIN pg_class t ON t.oid = d.refobjid
+            LEFT JOIN pg_namespace tn ON tn.oid = t.relnamespace
+            LEFT JOIN pg_attribute a ON a.attrelid = t.oid AND a.attnum = d.refobjsubid
+            WHERE\s""" + USER_SCHEMA + " AND (t.relname IS NULL OR t.relname NOT IN " + TOOL_TABLES + """
+            )
+              AND NOT EXISTS (SELECT 1 FROM pg_depend x WHERE x.classid = 'pg_class'::regclass AND x.objid = c.oid
+                              AND x.deptype IN ('e', 'i'))
+            ORDER BY c.oid""";
+    private static final String FUNCTIONS_SQL = """
+            SELECT pg_get_functiondef(p.oid)
+            FROM pg_proc p JOIN pg_namespace n ON n.oid = p.pronamespace
+            WHERE p.prokind IN ('f', 'p') AND\s""" + USER_SCHEMA + " AND " + notFromExtension("pg_proc", "p") + " ORDER BY p.oid";
+    private static final String TABLES_SQL = """
+            SELECT c.oid, format('%I.%I', n.nspname, c.relname), c.relkind, c.relispartition,
+                   CASE WHEN c.relkind = 'p' THEN pg_get_partkeydef(c.oid) END,
+                   (SELECT format('%I.%I', pn.nspname, p.relname) FROM pg_inherits i
+                        JOIN pg_class p ON p.oid = i.inhparent JOIN pg_namespace pn ON pn.oid = p.relnamespace
+                    WHERE i.inhrelid = c.oid AND c.relispartition),
+                   CASE WHEN c.relispartition THEN pg_get_expr(c.relpartbound, c.oid) END
+            FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace
+            WHERE c.relkind IN ('r', 'p') AND\s""" + USER_SCHEMA + " AND c.relname NOT IN " + TOOL_TABLES
+            + " AND " + notFromExtension("pg_class", "c") + " ORDER BY c.relispartition, c.oid";
+    private static final String COLUMNS_SQL = """
+            SELECT quote_ident(a.attname), format_type(a.atttypid, a.atttypmod), a.attnotnull,
+                   pg_get_expr(ad.adbin, ad.adrelid), a.attidentity, a.attgenerated,
+                   (SELECT format('%I.%I', cn.nspname, co.collname) FROM pg_collation co
+                        JOIN pg_namespace cn ON cn.oid = co.collnamespace
+                    WHERE co.oid = a.attcollation AND a.attcollation <> t.typcollation)
+            FROM pg_attribute a
+            JOIN pg_type t ON t.oid = a.atttypid
+            LEFT JOIN pg_attrdef ad ON ad.adrelid = a.attrelid AND ad.adnum = a.attnum
+            WHERE a.attrelid = ? AND a.attnum > 0 AND NOT a.attisdropped
+            ORDER BY a.attnum""";
+    private static final String CONSTRAINTS_SQL = """
+            SELECT format('%I.%I', n.nspname, c.relname), quote_ident(k.conname), pg_get_constraintdef(k.oid), k.contype = 'f'
+            FROM pg_constraint k JOIN pg_class c ON c.oid = k.conrelid JOIN pg_namespace n ON n.oid = c.relnamespace
+            WHERE k.contype IN ('p', 'u', 'c', 'f', 'x') AND k.conislocal AND c.relkind IN ('r', 'p')
+              AND\s""" + USER_SCHEMA + " AND c.relname NOT IN " + TOOL_TABLES + " AND " + notFromExtension("pg_class", "c")
+            + " ORDER BY c.oid, k.contype, k.conname";
+    private static final String VIEWS_SQL = """
+            SELECT format('%I.%I', n.nspname, c.relname), c.relkind = 'm', pg_get_viewdef(c.oid)
+            FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace
+            WHERE c.relkind IN ('v', 'm') AND\s""" + USER_SCHEMA + " AND " + notFromExtension("pg_class", "c")
+            + " ORDER BY c.oid";
+    private static final String INDEXES_SQL = """
+            SELECT pg_get_indexdef(i.indexrelid)
+            FROM pg_index i
+            JOIN pg_class c ON c.oid = i.indrelid
+            JOIN pg_class ic ON ic.oid = i.indexrelid
+            JOIN pg_namespace n ON n.oid = c.relnamespace
+            WHERE c.relkind IN ('r', 'p', 'm') AND NOT ic.relispartition
+              AND NOT EXISTS (SELECT 1 FROM pg_constraint k WHERE k.conindid = i.indexrelid AND k.conrelid = c.oid
+                              AND k.contype IN ('p', 'u', 'x'))
+              AND\s""" + USER_SCHEMA + " AND c.relname NOT IN " + TOOL_TABLES + " AND " + notFromExtension("pg_class", "c")
+            + " ORDER BY c.oid, ic.relname";
+    private static final String TRIGGERS_SQL = """
+            SELECT pg_get_triggerdef(g.oid)
+            FROM pg_trigger g JOIN pg_class c ON c.oid = g.tgrelid JOIN pg_namespace n ON n.oid = c.relnamespace
+            WHERE NOT g.tgisinternal AND NOT c.relispartition
+              AND\s""" + USER_SCHEMA + " AND c.relname NOT IN " + TOOL_TABLES + " AND " + notFromExtension("pg_class", "c")
+            + " ORDER BY c.oid, g.tgname";
+
+    private SchemaIntrospector() {
+    }
+
+    /**
+     * Строит DDL-скрипт схемы базы данных.
+     *
+     * @param connection Соединение с базой данных.
+     * @return Операторы, воссоздающие схему в пустой базе, в порядке выполнения.
+     * @throws SQLException если не удаётся прочитать системный каталог.
+     */
+    static List<String> introspect(Connection connection) throws SQLException {
+        List<String> statements = new ArrayList<>();
+        // Тела функций могут ссылаться на таблицы, которые создаются позже
+        statements.add("SET LOCAL check_function_bodies = false");
+
+        query(connection, SCHEMAS_SQL, row -> statements.add("CREATE SCHEMA IF NOT EXISTS " + row.getString(1)));
+        query(connection, EXTENSIONS_SQL, row -> statements.add(
+                "CREATE EXTENSION IF NOT EXISTS " + row.getString(1) + " WITH SCHEMA " + row.getString(2)));
+        query(connection, ENUMS_SQL, row -> statements.add(
+                "CREATE TYPE " + row.getString(1) + " AS ENUM (" + row.getString(2) + ")"));
+        query(connection, DOMAINS_SQL, row -> statements.add(domain(row)));
+
+        List<String> sequenceOwners = new ArrayList<>();
+        query(connection, SEQUENCES_SQL, row -> {
+            statements.add(sequence(row));
+            if (row.getString(9) != null) {
+                sequenceOwners.add("ALTER SEQUENCE " + row.getString(1) + " OWNED BY " + row.getString(9));
+            }
+        });
+        query(connection, FUNCTIONS_SQL, row -> statements.add(row.getString(1).strip()));
+
+        try (PreparedStatement columns = connection.prepareStatement(COLUMNS_SQL)) {
+            query(connection, TABLES_SQL, row -> statements.add(table(row, columns)));
+        }
+
+        List<String> foreignKeys = new ArrayList<>();
+        query(connection, CONSTRAINTS_SQL, row -> {
+            String constraint = "ALTER TABLE " + row.getString(1) + " ADD CONSTRAINT " + row.getString(2) + " " + row.getString(3);
+            (row.getBoolean(4) ? foreignKeys : statements).add(constraint);
+        });
+        statements.addAll(sequenceOwners);
+        query(connection, VIEWS_SQL, row -> statements.add(
+                (row.getBoolean(2) ? "CREATE MATERIALIZED VIEW " : "CREATE VIEW ") + row.getString(1)
+                        + " AS\n" + stripSemicolon(row.getString(3))));
+        query(connection, INDEXES_SQL, row -> statements.add(row.getString(1)));
+        statements.addAll(foreignKeys);
+        query(connection, TRIGGERS_SQL, row -> statements.add(row.getString(1)));
+        return statements;
+    }
+
+    private static String domain(ResultSet row) throws SQLException {
+        StringBuilder sql = new StringBuilder("CREATE DOMAIN ").append(row.getString(1)).append(" AS ").append(row.getString(2));
+        if (row.getString(4) != null) {
+            sql.append(" DEFAULT ").append(row.getString(4));
+        }
+        if (row.getBoolean(3)) {
+            sql.append(" NOT NULL");
+        }
+        if (row.getString(5) != null) {
+            sql.append(' ').append(row.getString(5));
+        }
+        return sql.toString();
+    }
+
+    private static String sequence(ResultSet row) throws SQLException {
+        return "CREATE SEQUENCE " + row.getString(1) + " AS " + row.getString(2)
+                + " START WITH " + row.getLong(3) + " INCREMENT BY " + row.getLong(4)
+                + " MINVALUE " + row.getLong(5) + " MAXVALUE " + row.getLong(6)
+                + " CACHE " + row.getLong(7) + (row.getBoolean(8) ? " CYCLE" : " NO CYCLE");
+    }
+
+    private static String table(ResultSet row, PreparedStatement columns) throws SQLException {
+        String name = row.getString(2);
+        if (row.getBoolean(4) && row.getString(6) != null) {
+            // Секция наследует столбцы родительской таблицы
+            return "CREATE TABLE " + name + " PARTITION OF " + row.getString(6) + " " + row.getString(7)
+                    + (row.getString(5) != null ? " PARTITION BY " + row.getString(5) : "");
+        }
+
+        List<String> definitions = new ArrayList<>();
+        columns.setLong(1, row.getLong(1));
+        try (ResultSet column = columns.executeQuery()) {
+            while (column.next()) {
+                definitions.add(column(column));
+            }
+        }
+        return "CREATE TABLE " + name + " (\n    " + String.join(",\n    ", definitions) + "\n)"
+                + (row.getString(5) != null ? " PARTITION BY " + row.getString(5) : "");
+    }
+
+    private static String column(ResultSet column) throws SQLException {
+        StringBuilder sql = new StringBuilder(column.getString(1)).append(' ').append(column.getString(2));
+        if (column.getString(7) != null) {
+            sql.append(" COLLATE ").append(column.getString(7));
+        }
+        String identity = column.getString(5);
+        String generated = column.getString(6);
+        String expression = column.getString(4);
+        if ("a".equals(identity)) {
+            sql.append(" GENERATED ALWAYS AS IDENTITY");
+        } else if ("d".equals(identity)) {
+            sql.append(" GENERATED BY DEFAULT AS IDENTITY");
+        } else if ("s".equals(generated) && expression != null) {
+            sql.append(" GENERATED ALWAYS AS (").append(expression).append(") STORED");
+        } else if (expression != null) {
+            sql.append(" DEFAULT ").append(expression);
+        }
+        if (column.getBoolean(3)) {
+            sql.append(" NOT NULL");
+        }
+        return sql.toString();
+    }
+
+    private static String notFromExtension(String catalog, String alias) {
+        return "NOT EXISTS (SELECT 1 FROM pg_depend ext WHERE ext.classid = '" + catalog + "'::regclass AND ext.objid = "
+                + alias + ".oid AND ext.deptype = 'e')";
+    }
+
+    private static String stripSemicolon(String sql) {
+        String result = sql.strip();
+        return result.endsWith(";") ? result.substring(0, result.length() - 1) : result;
+    }
+
+    private static void query(Connection connection, String sql, RowHandler handler) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql);
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                handler.handle(resultSet);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowHandler {
+        void handle(ResultSet row) throws SQLException;
+    }
+}
@@ -0,0 +1,43 @@
+package org.example.migration;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Set;
+
+/**
+ * Класс, представляющий отдельный SQL-оператор, выделенный из файла миграции.
+ */
+@Getter
+@AllArgsConstructor
+public class SqlStatement {
+    private static final Set<String> BATCHABLE_KEYWORDS = Set.of("INSERT", "UPDATE", "DELETE");
+
+    /**
+     * Текст оператора без завершающей точки с запятой.
+     */
+    private final String sql;
+    /**
+     * Первое ключевое слово оператора в верхнем регистре.
+     */
+    private final String keyword;
+    /**
+     * Признак наличия {@code RETURNING}: такой оператор возвращает строки.
+     */
+    private final boolean returningRows;
+
+    /**
+     * Проверяет, можно ли отправить оператор в пакете {@link java.sql.Statement#addBatch(String)}.
+     * В пакет попадают только простые DML-операторы, которые не возвращают результат.
+     *
+     * @return {@code true}, если оператор можно выполнять пакетно.
+     */
+    public boolean isBatchable() {
+        return BATCHABLE_KEYWORDS.contains(keyword) && !returningRows;
+    }
+
+    @Override
+    public String toString() {
+        return sql;
+    }
+}
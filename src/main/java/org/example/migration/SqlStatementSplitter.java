@@ -0,0 +1,267 @@
+package org.example.migration;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Locale;
+
+/**
+ * Потоковый разборщик SQL-скрипта на отдельные операторы.
+ * Учитывает строки в одинарных кавычках (включая {@code E'...'}), идентификаторы в двойных кавычках,
+ * однострочные и вложенные блочные комментарии, а также dollar-quoting ({@code $$...$$}, {@code $tag$...$tag$}),
+ * поэтому тела функций и блоки {@code DO $$ ... $$} не разрываются по внутренним точкам с запятой.
+ * Тела функций и процедур в стиле стандарта SQL ({@code BEGIN ATOMIC ... END}) тоже не разрываются:
+ * внутри {@code CREATE FUNCTION} и {@code CREATE PROCEDURE} учитывается вложенность {@code BEGIN}/{@code CASE} и {@code END}.
+ * Скрипт читается последовательно и не загружается в память целиком.
+ */
+public class SqlStatementSplitter implements Closeable {
+    private static final int NONE = -2;
+    private static final int ROUTINE_KEYWORD_POSITION = 4;
+
+    private final Reader reader;
+    private final StringBuilder current = new StringBuilder();
+    private int pushedBack = NONE;
+
+    /**
+     * Конструктор для {@link SqlStatementSplitter}.
+     *
+     * @param reader Источник текста SQL-скрипта.
+     */
+    public SqlStatementSplitter(Reader reader) {
+        this.reader = reader instanceof BufferedReader ? reader : new BufferedReader(reader);
+    }
+
+    /**
+     * Возвращает следующий оператор скрипта.
+     * Пустые операторы и фрагменты, состоящие только из комментариев, пропускаются.
+     *
+     * @return Следующий оператор или {@code null}, если скрипт закончился.
+     * @throws IOException Если не удаётся прочитать скрипт.
+     */
+    public SqlStatement next() throws IOException {
+        current.setLength(0);
+        StringBuilder word = new StringBuilder();
+        String keyword = null;
+        boolean returningRows = false;
+        int wordCount = 0;
+        boolean routine = false;
+        int blockDepth = 0;
+
+        int c;
+        while ((c = read()) != -1) {
+            char ch = (char) c;
+
+            if (isWordChar(ch, word.length() > 0)) {
+                word.append(ch);
+                current.append(ch);
+                continue;
+            }
+
+            String completedWord = null;
+            if (word.length() > 0) {
+                completedWord = word.toString();
+                word.setLength(0);
+                wordCount++;
+                if (keyword == null) {
+                    keyword = completedWord.toUpperCase(Locale.ROOT);
+                } else if (completedWord.equalsIgnoreCase("RETURNING")) {
+                    returningRows = true;
+                }
+                // CREATE [OR REPLACE] FUNCTION | PROCEDURE
+                if (wordCount <= ROUTINE_KEYWORD_POSITION && keyword.equals("CREATE")
+                        && (completedWord.equalsIgnoreCase("FUNCTION") || completedWord.equalsIgnoreCase("PROCEDURE"))) {
+                    routine = true;
+                }
+                if (routine) {
+                    blockDepth = blockDepth(completedWord, blockDepth);
+                }
+            }
+
+            switch (ch) {
+                case ';' -> {
+                    if (blockDepth > 0) {
+                        current.append(ch);
+                    } else if (keyword != null) {
+                        return new SqlStatement(current.toString().trim(), keyword, returningRows);
+                    } else {
+                        current.setLength(0);
+                    }
+                }
+                case '\'' -> {
+                    current.append(ch);
+                    readQuoted('\'', completedWord != null && completedWord.equalsIgnoreCase("E"));
+                }
+                case '"' -> {
+                    current.append(ch);
+                    readQuoted('"', false);
+                }
+                case '-' -> {
+                    current.append(ch);
+                    if (peek() == '-') {
+                        readLineComment();
+                    }
+                }
+                case '/' -> {
+                    current.append(ch);
+                    if (peek() == '*') {
+                        current.append((char) read());
+                        readBlockComment();
+                    }
+                }
+                case '$' -> readDollarQuoted();
+                default -> current.append(ch);
+            }
+        }
+
+        if (word.length() > 0 && keyword == null) {
+            keyword = word.toString().toUpperCase(Locale.ROOT);
+        }
+        if (keyword != null) {
+            return new SqlStatement(current.toString().trim(), keyword, returningRows);
+        }
+        return null;
+    }
+
+    /**
+     * Пересчитывает вложенность блока тела функции: {@code BEGIN} открывает блок,
+     * {@code CASE} внутри него открывает вложенный, {@code END} закрывает последний открытый.
+     */
+    private static int blockDepth(String word, int depth) {
+        if (word.equalsIgnoreCase("BEGIN")) {
+            return depth + 1;
+        }
+        if (depth > 0 && word.equalsIgnoreCase("CASE")) {
+            return depth + 1;
+        }
+        if (depth > 0 && word.equalsIgnoreCase("END")) {
+            return depth - 1;
+        }
+        return depth;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private void readQuoted(char quote, boolean backslashEscapes) throws IOException {
+        int c;
+        while ((c = read()) != -1) {
+            char ch = (char) c;
+            current.append(ch);
+            if (backslashEscapes && ch == '\\') {
+                int escaped = read();
+                if (escaped != -1) {
+                    current.append((char) escaped);
+                }
+            } else if (ch == quote) {
+                if (peek() == quote) {
+                    current.append((char) read());
+                } else {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void readLineComment() throws IOException {
+        int c;
+        while ((c = read()) != -1) {
+            current.append((char) c);
+            if (c == '\n') {
+                return;
+            }
+        }
+    }
+
+    private void readBlockComment() throws IOException {
+        int depth = 1;
+        int c;
+        while ((c = read()) != -1) {
+            char ch = (char) c;
+            current.append(ch);
+            if (ch == '*' && peek() == '/') {
+                current.append((char) read());
+                if (--depth == 0) {
+                    return;
+                }
+            } else if (ch == '/' && peek() == '*') {
+                current.append((char) read());
+                depth++;
+            }
+        }
+    }
+
+    /**
+     * Разбирает конструкцию, начинающуюся с {@code $}: либо открывающий тег dollar-quoting,
+     * либо позиционный параметр вида {@code $1}, который копируется как есть.
+     */
+    private void readDollarQuoted() throws IOException {
+        StringBuilder tag = new StringBuilder("$");
+        int c;
+        while ((c = read()) != -1) {
+            char ch = (char) c;
+            if (ch == '$') {
+                tag.append(ch);
+                current.append(tag);
+                readUntilDelimiter(tag.toString());
+                return;
+            }
+            boolean tagChar = Character.isLetter(ch) || ch == '_' || (tag.length() > 1 && Character.isDigit(ch));
+            if (!tagChar) {
+                unread(c);
+                break;
+            }
+            tag.append(ch);
+        }
+        current.append(tag);
+    }
+
+    private void readUntilDelimiter(String delimiter) throws IOException {
+        int c;
+        while ((c = read()) != -1) {
+            current.append((char) c);
+            if (c == '$' && endsWith(delimiter)) {
+                return;
+            }
+        }
+    }
+
+    private boolean endsWith(String suffix) {
+        int offset = current.length() - suffix.length();
+        if (offset < 0) {
+            return false;
+        }
+        for (int i = 0; i < suffix.length(); i++) {
+            if (current.charAt(offset + i) != suffix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWordChar(char ch, boolean insideWord) {
+        return Character.isLetterOrDigit(ch) || ch == '_' || (insideWord && ch == '$');
+    }
+
+    private int read() throws IOException {
+        if (pushedBack != NONE) {
+            int c = pushedBack;
+            pushedBack = NONE;
+            return c;
+        }
+        return reader.read();
+    }
+
+    private int peek() throws IOException {
+        if (pushedBack == NONE) {
+            pushedBack = reader.read();
+        }
+        return pushedBack;
+    }
+
+    private void unread(int c) {
+        pushedBack = c;
+    }
+}
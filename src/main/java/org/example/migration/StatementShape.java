@@ -0,0 +1,316 @@
+package org.example.migration;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Форма DML-оператора: его текст, в котором литералы заменены параметрами {@code ?}, и значения этих литералов.
+ * Операторы, отличающиеся только литералами, имеют одну форму и могут выполняться одним подготовленным запросом.
+ * <p>
+ * Числа привязываются с тем же типом, который PostgreSQL назначил бы литералу ({@code integer}, {@code bigint}
+ * или {@code numeric}), строки — без типа, как строковые литералы, тип которых выводится из контекста.
+ * Замена выполняется консервативно: литералы с префиксом типа ({@code DATE '...'}), строки с префиксами
+ * {@code E}, {@code B}, {@code X}, {@code U&}, строки с обратной косой чертой, элементы списков
+ * {@code ORDER BY} и {@code GROUP BY}, заданные числом (номер столбца), и литералы в скобках вызова функции или модификатора типа ({@code varchar(20)}) остаются в тексте.
+ *
+ * @param sql        Текст оператора с параметрами {@code ?}.
+ * @param parameters Значения параметров: {@link Integer}, {@link Long}, {@link BigDecimal} или {@link String}.
+ */
+record StatementShape(String sql, List<Object> parameters) {
+    /**
+     * Ключевые слова, после которых открывающая скобка начинает выражение или список значений,
+     * а не вызов функции или модификатор типа.
+     */
+    private static final Set<String> EXPRESSION_KEYWORDS = Set.of(
+            "VALUES", "IN", "AND", "OR", "NOT", "WHERE", "SET", "ON", "WHEN", "THEN", "ELSE", "SELECT", "EXISTS");
+    /**
+     * Ключевые слова, которые завершают список {@code ORDER BY} или {@code GROUP BY}.
+     */
+    private static final Set<String> BY_LIST_END_KEYWORDS = Set.of(
+            "LIMIT", "OFFSET", "FETCH", "FOR", "HAVING", "WINDOW", "UNION", "INTERSECT", "EXCEPT", "RETURNING",
+            "ROWS", "RANGE", "GROUPS");
+    private static final String QUOTED_IDENTIFIER = "\"";
+
+    /**
+     * Выделяет форму оператора.
+     *
+     * @param sql Текст оператора.
+     * @return Форма оператора или {@code null}, если текст уже содержит параметры
+     * ({@code ?} или {@code $1}) и не может быть подготовлен как есть.
+     */
+    static StatementShape parse(String sql) {
+        StringBuilder shape = new StringBuilder(sql.length());
+        List<Object> parameters = new ArrayList<>();
+        Deque<Boolean> parentheses = new ArrayDeque<>();
+        String lastWord = null;
+        // Глубина скобок, на которой открыт список ORDER BY / GROUP BY, или -1
+        int byListDepth = -1;
+        // Следующий токен начинает элемент этого списка
+        boolean byListItem = false;
+        int length = sql.length();
+        int i = 0;
+
+        while (i < length) {
+            char c = sql.charAt(i);
+            char next = i + 1 < length ? sql.charAt(i + 1) : 0;
+
+            if (Character.isWhitespace(c)) {
+                shape.append(c);
+                i++;
+            } else if (c == '-' && next == '-') {
+                int end = sql.indexOf('\n', i);
+                end = end < 0 ? length : end;
+                shape.append(sql, i, end);
+                i = end;
+            } else if (c == '/' && next == '*') {
+                int end = skipBlockComment(sql, i);
+                shape.append(sql, i, end);
+                i = end;
+            } else if (c == '\'') {
+                int end = skipString(sql, i, false);
+                String value = sql.substring(i + 1, end - 1);
+                boolean literalAllowed = lastWord == null && literalsAllowed(parentheses)
+                        && value.indexOf('\\') < 0 && !followedByString(sql, end);
+                // Все части склеиваемой строки остаются в тексте
+                end = skipContinuation(sql, end, false);
+                if (literalAllowed) {
+                    shape.append('?');
+                    parameters.add(value.replace("''", "'"));
+                } else {
+                    shape.append(sql, i, end);
+                }
+                lastWord = null;
+                byListItem = false;
+                i = end;
+            } else if (c == '"') {
+                int end = sql.indexOf('"', i + 1);
+                end = end < 0 ? length : end + 1;
+                shape.append(sql, i, end);
+                lastWord = QUOTED_IDENTIFIER;
+                byListItem = false;
+                i = end;
+            } else if (c == '$') {
+                if (Character.isDigit(next)) {
+                    return null;
+                }
+                int end = skipDollarQuoted(sql, i);
+                shape.append(sql, i, end);
+                lastWord = null;
+                byListItem = false;
+                i = end;
+            } else if (c == '?') {
+                return null;
+            } else if (Character.isLetter(c) || c == '_') {
+                int end = i;
+                while (end < length && isIdentifierPart(sql.charAt(end))) {
+                    end++;
+                }
+                String word = sql.substring(i, end);
+                if (end < length && sql.charAt(end) == '\'') {
+                    // Строка с префиксом: E'...', B'...', X'...', N'...'
+                    boolean backslashEscapes = word.equalsIgnoreCase("E");
+                    int stringEnd = skipContinuation(sql, skipString(sql, end, backslashEscapes), backslashEscapes);
+                    shape.append(sql, i, stringEnd);
+                    lastWord = null;
+                    byListItem = false;
+                    i = stringEnd;
+                } else if (word.equalsIgnoreCase("U") && sql.startsWith("&'", end)) {
+                    int stringEnd = skipContinuation(sql, skipString(sql, end + 1, false), false);
+                    shape.append(sql, i, stringEnd);
+                    lastWord = null;
+                    byListItem = false;
+                    i = stringEnd;
+                } else {
+                    shape.append(word);
+                    lastWord = word.toUpperCase(Locale.ROOT);
+                    byListItem = lastWord.equals("BY");
+                    if (byListItem) {
+                        byListDepth = parentheses.size();
+                    } else if (byListDepth == parentheses.size() && BY_LIST_END_KEYWORDS.contains(lastWord)) {
+                        byListDepth = -1;
+                    }
+                    i = end;
+                }
+            } else if (Character.isDigit(c) || (c == '.' && Character.isDigit(next))) {
+                int end = skipNumber(sql, i);
+                String literal = sql.substring(i, end);
+                boolean literalAllowed = !byListItem && literalsAllowed(parentheses)
+                        && (end == length || !isIdentifierPart(sql.charAt(end)));
+                if (literalAllowed) {
+                    shape.append('?');
+                    parameters.add(numericValue(literal));
+                } else {
+                    shape.append(literal);
+                }
+                lastWord = null;
+                byListItem = false;
+                i = end;
+            } else {
+                if (c == '(') {
+                    parentheses.push(lastWord == null || EXPRESSION_KEYWORDS.contains(lastWord));
+                } else if (c == ')' && !parentheses.isEmpty()) {
+                    parentheses.pop();
+                    if (parentheses.size() < byListDepth) {
+                        byListDepth = -1;
+                    }
+                }
+                byListItem = c == ',' && byListDepth == parentheses.size();
+                shape.append(c);
+                lastWord = null;
+                i++;
+            }
+        }
+        return new StatementShape(shape.toString(), List.copyOf(parameters));
+    }
+
+    /**
+     * Привязывает значения литералов к подготовленному запросу этой формы.
+     *
+     * @param statement Подготовленный запрос с текстом {@link #sql()}.
+     * @throws SQLException если не удаётся установить параметр.
+     */
+    void bind(PreparedStatement statement) throws SQLException {
+        for (int i = 0; i < parameters.size(); i++) {
+            Object value = parameters.get(i);
+            if (value instanceof Integer number) {
+                statement.setInt(i + 1, number);
+            } else if (value instanceof Long number) {
+                statement.setLong(i + 1, number);
+            } else if (value instanceof BigDecimal number) {
+                statement.setBigDecimal(i + 1, number);
+            } else {
+                statement.setObject(i + 1, value, Types.OTHER);
+            }
+        }
+    }
+
+    private static boolean literalsAllowed(Deque<Boolean> parentheses) {
+        return parentheses.isEmpty() || parentheses.peek();
+    }
+
+    /**
+     * Соседние строковые литералы, разделённые переводом строки, PostgreSQL склеивает в один.
+     */
+    private static boolean followedByString(String sql, int from) {
+        int i = from;
+        while (i < sql.length() && Character.isWhitespace(sql.charAt(i))) {
+            i++;
+        }
+        return i < sql.length() && sql.charAt(i) == '\'';
+    }
+
+    /**
+     * Пропускает продолжения строкового литерала, заканчивающегося в позиции {@code from}.
+     */
+    private static int skipContinuation(String sql, int from, boolean backslashEscapes) {
+        int end = from;
+        while (followedByString(sql, end)) {
+            end = skipString(sql, sql.indexOf('\'', end), backslashEscapes);
+        }
+        return end;
+    }
+
+    private static Object numericValue(String literal) {
+        if (literal.indexOf('.') >= 0 || literal.indexOf('e') >= 0 || literal.indexOf('E') >= 0) {
+            return new BigDecimal(literal);
+        }
+        BigInteger value = new BigInteger(literal);
+        if (value.bitLength() < Integer.SIZE) {
+            return value.intValue();
+        }
+        if (value.bitLength() < Long.SIZE) {
+            return value.longValue();
+        }
+        return new BigDecimal(value);
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+    static int skipString(String sql, int start, boolean backslashEscapes) {
+        int i = start + 1;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (backslashEscapes && c == '\\') {
+                i += 2;
+            } else if (c == '\'') {
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == '\'') {
+                    i += 2;
+                } else {
+                    return i + 1;
+                }
+            } else {
+                i++;
+            }
+        }
+        return sql.length();
+    }
+
+    static int skipBlockComment(String sql, int start) {
+        int depth = 0;
+        int i = start;
+        while (i < sql.length()) {
+            if (sql.startsWith("/*", i)) {
+                depth++;
+                i += 2;
+            } else if (sql.startsWith("*/", i)) {
+                i += 2;
+                if (--depth == 0) {
+                    return i;
+                }
+            } else {
+                i++;
+            }
+        }
+        return sql.length();
+    }
+
+    static int skipDollarQuoted(String sql, int start) {
+        int tagEnd = start + 1;
+        while (tagEnd < sql.length() && isIdentifierPart(sql.charAt(tagEnd)) && sql.charAt(tagEnd) != '$') {
+            tagEnd++;
+        }
+        if (tagEnd >= sql.length() || sql.charAt(tagEnd) != '$') {
+            return start + 1;
+        }
+        String tag = sql.substring(start, tagEnd + 1);
+        int close = sql.indexOf(tag, tagEnd + 1);
+        return close < 0 ? sql.length() : close + tag.length();
+    }
+
+    private static int skipNumber(String sql, int start) {
+        int i = start;
+        while (i < sql.length() && Character.isDigit(sql.charAt(i))) {
+            i++;
+        }
+        if (i < sql.length() && sql.charAt(i) == '.') {
+            i++;
+            while (i < sql.length() && Character.isDigit(sql.charAt(i))) {
+                i++;
+            }
+        }
+        if (i < sql.length() && (sql.charAt(i) == 'e' || sql.charAt(i) == 'E')) {
+            int exponent = i + 1;
+            if (exponent < sql.length() && (sql.charAt(exponent) == '+' || sql.charAt(exponent) == '-')) {
+                exponent++;
+            }
+            if (exponent < sql.length() && Character.isDigit(sql.charAt(exponent))) {
+                i = exponent;
+                while (i < sql.length() && Character.isDigit(sql.charAt(i))) {
+                    i++;
+                }
+            }
+        }
+        return i;
+    }
+}
@@ -0,0 +1,133 @@
+package org.example.migration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGStatement;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Кэш подготовленных запросов по форме DML-оператора ({@link StatementShape}) для одного соединения.
+ * <p>
+ * Подготовленный запрос используется, когда оператор продолжает серию операторов одной формы, и переиспользуется
+ * до закрытия кэша. Пакет подготовленного запроса приходится отправлять при каждой смене формы, поэтому
+ * разовые и чередующиеся формы выгоднее выполнять как есть, одним текстовым пакетом.
+ * Запросу задаётся {@code prepareThreshold} драйвера PostgreSQL: после заданного числа выполнений драйвер переходит на именованный серверный запрос, и сервер перестаёт разбирать и планировать его заново.
+ * <p>
+ * Перед первым использованием запрос описывается сервером ({@link PreparedStatement#getParameterMetaData()})
+ * под точкой сохранения: если тип параметра нельзя вывести из контекста, форма отклоняется
+ * и её операторы выполняются как есть. Вытесняются давно не использованные формы.
+ */
+@Slf4j
+final class StatementShapeCache implements AutoCloseable {
+    private final Connection connection;
+    private final int prepareThreshold;
+    private final Map<String, Entry> entries;
+    private String previousShape;
+
+    /**
+     * Конструктор для {@link StatementShapeCache}.
+     *
+     * @param connection       Соединение с базой данных.
+     * @param capacity         Максимальное количество форм.
+     * @param prepareThreshold Количество выполнений запроса, после которого драйвер подготавливает его на сервере.
+     */
+    StatementShapeCache(Connection connection, int capacity, int prepareThreshold) {
+        this.connection = connection;
+        this.prepareThreshold = prepareThreshold;
+        // Вытесняемая форма не должна совпадать с текущим пакетом, который ещё не отправлен
+        int limit = Math.max(capacity, 2);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= limit) {
+                    return false;
+                }
+                eldest.getValue().close();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Возвращает подготовленный запрос формы оператора с привязанными значениями литералов,
+     * если предыдущий DML-оператор имел ту же форму.
+     *
+     * @param sql Текст DML-оператора.
+     * @return Подготовленный запрос или {@code null}, если оператор нужно выполнить как есть.
+     * @throws SQLException если не удаётся привязать параметры.
+     */
+    PreparedStatement bind(String sql) throws SQLException {
+        StatementShape shape = StatementShape.parse(sql);
+        String previous = previousShape;
+        previousShape = shape != null ? shape.sql() : null;
+        if (shape == null || !shape.sql().equals(previous)) {
+            return null;
+        }
+        Entry entry = entries.computeIfAbsent(shape.sql(), key -> new Entry());
+        if (entry.rejected) {
+            return null;
+        }
+        if (entry.statement == null) {
+            entry.statement = prepare(shape.sql());
+            entry.rejected = entry.statement == null;
+            if (entry.rejected) {
+                return null;
+            }
+        }
+        shape.bind(entry.statement);
+        return entry.statement;
+    }
+
+    private PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql);
+        if (statement.isWrapperFor(PGStatement.class)) {
+            statement.unwrap(PGStatement.class).setPrepareThreshold(prepareThreshold);
+        }
+        Savepoint savepoint = connection.getAutoCommit() ? null : connection.setSavepoint();
+        try {
+            statement.getParameterMetaData();
+            if (savepoint != null) {
+                connection.releaseSavepoint(savepoint);
+            }
+            return statement;
+        } catch (SQLException e) {
+            if (savepoint != null) {
+                connection.rollback(savepoint);
+            }
+            statement.close();
+            log.debug("Форма оператора выполняется без подготовки: {}: {}", sql, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Закрывает все подготовленные запросы.
+     */
+    @Override
+    public void close() {
+        entries.values().forEach(Entry::close);
+        entries.clear();
+    }
+
+    private static final class Entry {
+        private boolean rejected;
+        private PreparedStatement statement;
+
+        void close() {
+            if (statement == null) {
+                return;
+            }
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                log.debug("Ошибка при закрытии подготовленного запроса: {}", e.getMessage());
+            }
+            statement = null;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package org.example.migration;
+
+import java.util.Locale;
+
+/**
+ * Стратегия разбиения применяемых миграций на транзакции.
+ */
+public enum TransactionMode {
+    /**
+     * Все миграции выполняются в одной транзакции.
+     */
+    ALL,
+    /**
+     * Каждая миграция выполняется в собственной транзакции.
+     */
+    PER_MIGRATION,
+    /**
+     * Миграции выполняются группами фиксированного размера, по одной транзакции на группу.
+     */
+    GROUPED;
+
+    /**
+     * Преобразует значение свойства конфигурации в стратегию.
+     * Допускаются значения {@code all}, {@code per-migration} и {@code grouped} без учёта регистра.
+     *
+     * @param value Значение свойства.
+     * @return Стратегия транзакций.
+     * @throws IllegalArgumentException если значение не соответствует ни одной стратегии.
+     */
+    public static TransactionMode fromProperty(String value) {
+        try {
+            return valueOf(value.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown transaction mode: " + value, e);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package org.example.tenant;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.config.MigrationConfig;
+import org.example.metrics.MetricsRegistry;
+import org.example.metrics.MigrationMetricsListener;
+import org.example.migration.BaselineManager;
+import org.example.migration.MigrationExecutor;
+import org.example.migration.MigrationFile;
+import org.example.migration.MigrationFileReader;
+import org.example.migration.MigrationLock;
+import org.example.migration.MigrationManager;
+import org.example.migration.MigrationTableManager;
+import org.example.util.ConnectionManager;
+import org.example.util.ConnectionPool;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Применение миграций к множеству баз данных одновременно, например при схеме «база на клиента».
+ * <p>
+ * Папка миграций читается один раз, и один и тот же список файлов сверяется с каждой базой.
+ * Базы обрабатываются на пуле из {@code migration.fanout.threads} потоков; общее число открытых соединений
+ * со всеми базами ограничено семафором на {@code migration.fanout.connections} разрешений.
+ * У каждой базы собственный небольшой пул соединений, который закрывается сразу после её обработки.
+ * Ошибка в одной базе не останавливает остальные и попадает в её {@link TenantResult}.
+ * Получатели метрик видят обработку всех баз как один запуск: количество ожидающих миграций в его начале —
+ * это количество файлов, которые сверяются с каждой базой.
+ * Манифест контрольных сумм в этом режиме не используется.
+ */
+@Slf4j
+public class MultiTenantMigrator {
+
+    private final MigrationConfig config;
+    private final MigrationExecutor migrationExecutor;
+    private final MigrationManager migrationManager;
+    private final MigrationFileReader migrationFileReader;
+    private final BaselineManager baselineManager;
+    private final int connectionsPerTenant;
+
+    /**
+     * Конструктор для {@link MultiTenantMigrator}.
+     * Параметры подключения из конфигурации служат шаблоном: у каждой базы заменяются URL и, если заданы,
+     * учётные данные.
+     *
+     * @param config Конфигурация инструмента.
+     */
+    public MultiTenantMigrator(MigrationConfig config) {
+        this.connectionsPerTenant = config.isLockEnabled() ? 2 : 1;
+        if (config.getFanOutConnections() < connectionsPerTenant) {
+            throw new IllegalArgumentException("Property 'migration.fanout.connections' must be at least "
+                    + connectionsPerTenant + ": " + config.getFanOutConnections());
+        }
+        this.config = config.toBuilder()
+                .manifestEnabled(false)
+                .parallelThreads(1)
+                .poolSize(connectionsPerTenant)
+                .build();
+        this.migrationFileReader = new MigrationFileReader(this.config);
+        this.migrationManager = new MigrationManager(migrationFileReader, this.config);
+        this.migrationExecutor = new MigrationExecutor(this.config);
+        this.baselineManager = this.config.isBaselineEnabled() ? new BaselineManager(migrationFileReader, this.config) : null;
+    }
+
+    /**
+     * Применяет ожидающие миграции ко всем базам.
+     * Метод возвращает управление после обработки всех баз.
+     *
+     * @param targets  Базы данных.
+     * @param listener Получатель событий о ходе обработки.
+     * @return Итоги обработки в порядке {@code targets}.
+     * @throws IOException если не удаётся прочитать файлы миграций.
+     */
+    public List<TenantResult> migrate(List<TenantTarget> targets, TenantProgressListener listener) throws IOException {
+        List<MigrationFile> migrations = migrationFileReader.readMigrationFiles();
+        if (migrations.isEmpty()) {
+            log.error("Не найдены файлы миграций в папке. Проверьте вашу конфигурацию.");
+            throw new IllegalStateException("No migration files found in the folder. Check your configuration.");
+        }
+        MigrationFile baseline = baselineManager != null ? baselineManager.readBaseline().orElse(null) : null;
+
+        int threads = Math.min(config.getFanOutThreads(), Math.max(1, targets.size()));
+        log.info("Применение {} миграций к {} базам данных: потоков {}, лимит соединений {}",
+                migrations.size(), targets.size(), threads, config.getFanOutConnections());
+
+        MigrationMetricsListener metrics = MetricsRegistry.listener();
+        metrics.onRunStarted(migrations.size());
+        boolean success = false;
+
+        Semaphore connections = new Semaphore(config.getFanOutConnections(), true);
+        AtomicInteger completed = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "migration-tenant");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<TenantResult>> futures = new ArrayList<>(targets.size());
+            for (TenantTarget target : targets) {
+                futures.add(pool.submit(() -> {
+                    TenantResult result = migrateTenant(target, migrations, baseline, connections, listener);
+                    int done = completed.incrementAndGet();
+                    logResult(result, done, targets.size());
+                    listener.onTenantFinished(result, done, targets.size());
+                    return result;
+                }));
+            }
+
+            List<TenantResult> results = new ArrayList<>(targets.size());
+            for (Future<TenantResult> future : futures) {
+                results.add(future.get());
+            }
+            logSummary(results);
+            success = results.stream().allMatch(TenantResult::isSuccess);
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while migrating tenant databases.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Unexpected error while migrating tenant databases: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdownNow();
+            metrics.onRunFinished(success);
+        }
+    }
+
+    private TenantResult migrateTenant(TenantTarget target, List<MigrationFile> migrations, MigrationFile baseline,
+                                       Semaphore connections, TenantProgressListener listener) throws InterruptedException {
+        long startedAt = System.nanoTime();
+        connections.acquire(connectionsPerTenant);
+        try (ConnectionPool dataSource = ConnectionManager.createPool(tenantConfig(target))) {
+            listener.onTenantStarted(target);
+
+            if (MigrationTableManager.isMigrationTableReady(dataSource)
+                    && migrationManager.filterPendingMigrations(migrations, dataSource).isEmpty()) {
+                return new TenantResult(target.name(), TenantResult.Status.UP_TO_DATE, 0, elapsedMillis(startedAt), null);
+            }
+
+            int applied;
+            if (config.isLockEnabled()) {
+                MigrationLock lock = MigrationLock.acquire(dataSource, config.getLockKey(), config.getLockWaitMs());
+                try {
+                    applied = apply(migrations, baseline, dataSource);
+                } finally {
+                    lock.release();
+                }
+            } else {
+                applied = apply(migrations, baseline, dataSource);
+            }
+            TenantResult.Status status = applied > 0 ? TenantResult.Status.APPLIED : TenantResult.Status.UP_TO_DATE;
+            return new TenantResult(target.name(), status, applied, elapsedMillis(startedAt), null);
+        } catch (Exception e) {
+            return new TenantResult(target.name(), TenantResult.Status.FAILED, 0, elapsedMillis(startedAt), e);
+        } finally {
+            connections.release(connectionsPerTenant);
+        }
+    }
+
+    /**
+     * Применяет ожидающие миграции под блокировкой; список запрашивается заново,
+     * так как пока узел ждал блокировку, их мог применить другой узел.
+     * Пустая база сначала инициализируется базовой схемой, если она есть.
+     */
+    private int apply(List<MigrationFile> migrations, MigrationFile baseline, ConnectionPool dataSource) {
+        MigrationTableManager.ensureMigrationTableExists(dataSource);
+        if (baseline != null) {
+            List<String> fileNames = migrations.stream().map(MigrationFile::getFileName).toList();
+            baselineManager.bootstrap(baseline, fileNames, dataSource);
+        }
+        List<MigrationFile> pending = migrationManager.filterPendingMigrations(migrations, dataSource);
+        if (!pending.isEmpty()) {
+            migrationExecutor.executeMigrations(pending, dataSource);
+        }
+        return pending.size();
+    }
+
+    private MigrationConfig tenantConfig(TenantTarget target) {
+        return config.toBuilder()
+                .dbUrl(target.url())
+                .dbUsername(target.username() != null ? target.username() : config.getDbUsername())
+                .dbPassword(target.password() != null ? target.password() : config.getDbPassword())
+                .build();
+    }
+
+    private static void logResult(TenantResult result, int completed, int total) {
+        if (result.isSuccess()) {
+            log.info("[{}/{}] {}: {} (миграций: {}, {} мс)",
+                    completed, total, result.tenant(), result.status(), result.appliedCount(), result.durationMillis());
+        } else {
+            log.error("[{}/{}] {}: ошибка: {}", completed, total, result.tenant(), result.error().getMessage(), result.error());
+        }
+    }
+
+    private static void logSummary(List<TenantResult> results) {
+        long failed = results.stream().filter(result -> !result.isSuccess()).count();
+        long applied = results.stream().filter(result -> result.status() == TenantResult.Status.APPLIED).count();
+        if (failed > 0) {
+            log.error("Обработано баз данных: {}, с новыми миграциями: {}, с ошибкой: {}", results.size(), applied, failed);
+        } else {
+            log.info("Обработано баз данных: {}, с новыми миграциями: {}", results.size(), applied);
+        }
+    }
+
+    private static long elapsedMillis(long startedAt) {
+        return (System.nanoTime() - startedAt) / 1_000_000;
+    }
+}
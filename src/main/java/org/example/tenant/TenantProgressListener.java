@@ -0,0 +1,26 @@
+package org.example.tenant;
+
+/**
+ * Получатель событий о ходе применения миграций к нескольким базам.
+ * Методы вызываются из рабочих потоков, поэтому реализация должна быть потокобезопасной.
+ */
+public interface TenantProgressListener {
+
+    /**
+     * Обработка базы началась: соединения получены.
+     *
+     * @param target База данных.
+     */
+    default void onTenantStarted(TenantTarget target) {
+    }
+
+    /**
+     * Обработка базы завершена.
+     *
+     * @param result    Итог обработки.
+     * @param completed Количество обработанных баз, включая эту.
+     * @param total     Общее количество баз.
+     */
+    default void onTenantFinished(TenantResult result, int completed, int total) {
+    }
+}
@@ -0,0 +1,35 @@
+package org.example.tenant;
+
+/**
+ * Итог применения миграций к одной базе данных.
+ *
+ * @param tenant         Имя базы.
+ * @param status         Результат.
+ * @param appliedCount   Количество применённых миграций.
+ * @param durationMillis Длительность обработки базы в миллисекундах, включая ожидание соединений.
+ * @param error          Ошибка для статуса {@link Status#FAILED}, иначе {@code null}.
+ */
+public record TenantResult(String tenant, Status status, int appliedCount, long durationMillis, Throwable error) {
+
+    /**
+     * Результат обработки базы данных.
+     */
+    public enum Status {
+        /**
+         * Новые миграции применены.
+         */
+        APPLIED,
+        /**
+         * Новых миграций не было.
+         */
+        UP_TO_DATE,
+        /**
+         * Миграции не удалось применить.
+         */
+        FAILED
+    }
+
+    public boolean isSuccess() {
+        return status != Status.FAILED;
+    }
+}
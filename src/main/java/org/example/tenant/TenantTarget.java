@@ -0,0 +1,32 @@
+package org.example.tenant;
+
+/**
+ * База данных, к которой применяются миграции в режиме нескольких баз.
+ *
+ * @param name     Имя базы для логов и отчёта, например идентификатор клиента.
+ * @param url      JDBC URL базы данных.
+ * @param username Имя пользователя или {@code null}, чтобы использовать {@code db.username} из конфигурации.
+ * @param password Пароль или {@code null}, чтобы использовать {@code db.password} из конфигурации.
+ */
+public record TenantTarget(String name, String url, String username, String password) {
+
+    public TenantTarget {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Tenant name must not be empty.");
+        }
+        if (url == null || url.isBlank()) {
+            throw new IllegalArgumentException("JDBC URL must not be empty for tenant " + name);
+        }
+    }
+
+    /**
+     * Создаёт цель с учётными данными из общей конфигурации.
+     *
+     * @param name Имя базы.
+     * @param url  JDBC URL базы данных.
+     * @return Цель миграции.
+     */
+    public static TenantTarget of(String name, String url) {
+        return new TenantTarget(name, url, null, null);
+    }
+}
@@ -2,47 +2,121 @@ package org.example.util;
 
 import lombok.extern.slf4j.Slf4j;
 import org.example.config.ConfigurationLoader;
+import org.example.config.MigrationConfig;
+import org.example.metrics.MetricsRegistry;
 
+import javax.sql.DataSource;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 /**
  * Класс для управления подключениями к базе данных.
+ * Соединения выдаются из общего {@link ConnectionPool}, который создаётся один раз по конфигурации.
+ * Приложение может подставить собственный {@link DataSource} через {@link #setDataSource(DataSource)}.
  */
 @Slf4j
 public class ConnectionManager {
 
+    private static volatile DataSource dataSource;
+    private static ConnectionPool ownPool;
+
     /**
-     * Создаёт и возвращает новое подключение к базе данных.
-     * Для получения параметров подключения используется {@link ConfigurationLoader}.
+     * Возвращает соединение с базой данных.
+     * Закрытие полученного соединения возвращает его в пул.
+     * Время получения соединения передаётся получателям метрик: встроенный пул сообщает его сам,
+     * а для внешнего источника соединений оно измеряется здесь.
      *
      * @return Объект {@link Connection} для подключения к базе данных.
      * @throws SQLException если возникает ошибка при установлении подключения.
      */
     public static Connection getConnection() throws SQLException {
-        log.info("Начинаем попытку установить соединение с базой данных...");
-
-        String url = ConfigurationLoader.getInstance().getProperty("db.url");
-        String username = ConfigurationLoader.getInstance().getProperty("db.username");
-        String password = ConfigurationLoader.getInstance().getProperty("db.password");
-        log.debug("Данные для подключения: url:{}, username:{}", url, username);
-
-        try {
-            Class.forName(ConfigurationLoader.getInstance().getProperty("db.driver"));
-            log.info("JDBC драйвер загружен: {}", ConfigurationLoader.getInstance().getProperty("db.driver"));
-        } catch (ClassNotFoundException e) {
-            log.error("JDBC Driver не найден: {}", e.getMessage(), e);
-            throw new RuntimeException("JDBC Driver not found: " + e.getMessage(), e);
+        log.debug("Запрашиваем соединение с базой данных...");
+        DataSource current = getDataSource();
+        if (current instanceof ConnectionPool) {
+            return current.getConnection();
+        }
+        long startedAt = System.nanoTime();
+        Connection connection = current.getConnection();
+        MetricsRegistry.listener().onConnectionAcquired(System.nanoTime() - startedAt);
+        return connection;
+    }
+
+    /**
+     * Возвращает используемый источник соединений.
+     * При первом обращении создаёт пул соединений по параметрам из {@link ConfigurationLoader}.
+     *
+     * @return Источник соединений.
+     */
+    public static DataSource getDataSource() {
+        DataSource current = dataSource;
+        if (current == null) {
+            synchronized (ConnectionManager.class) {
+                current = dataSource;
+                if (current == null) {
+                    ownPool = createPool(ConfigurationLoader.getInstance().getSharedConfig());
+                    current = ownPool;
+                    dataSource = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Устанавливает внешний источник соединений вместо встроенного пула.
+     * Ранее созданный встроенный пул закрывается.
+     *
+     * @param externalDataSource Источник соединений приложения.
+     */
+    public static synchronized void setDataSource(DataSource externalDataSource) {
+        closeOwnPool();
+        dataSource = externalDataSource;
+        log.info("Используется внешний источник соединений: {}", externalDataSource.getClass().getName());
+    }
+
+    /**
+     * Закрывает встроенный пул соединений, если он был создан.
+     * Следующий вызов {@link #getConnection()} создаст пул заново.
+     */
+    public static synchronized void shutdown() {
+        if (ownPool != null) {
+            closeOwnPool();
+            dataSource = null;
         }
+    }
 
-        try {
-            Connection connection = DriverManager.getConnection(url, username, password);
-            log.info("Соединение с базой данных успешно установлено.");
-            return connection;
-        } catch (SQLException e) {
-            log.error("Ошибка при попытке установить соединение с базой данных: {}", e.getMessage(), e);
-            throw new SQLException("Failed to establish connection to database: " + e.getMessage(), e);
+    private static void closeOwnPool() {
+        if (ownPool != null) {
+            ownPool.close();
+            ownPool = null;
         }
     }
+
+    /**
+     * Создаёт пул соединений по заданной конфигурации.
+     * Если класс драйвера не указан, драйвер должен регистрироваться автоматически (JDBC 4).
+     *
+     * @param config Конфигурация инструмента.
+     * @return Новый пул соединений; закрывается вызывающим.
+     */
+    public static ConnectionPool createPool(MigrationConfig config) {
+        String driver = config.getDbDriver();
+        log.debug("Данные для подключения: url:{}, username:{}", config.getDbUrl(), config.getDbUsername());
+
+        if (driver != null) {
+            try {
+                Class.forName(driver);
+                log.info("JDBC драйвер загружен: {}", driver);
+            } catch (ClassNotFoundException e) {
+                log.error("JDBC Driver не найден: {}", e.getMessage(), e);
+                throw new RuntimeException("JDBC Driver not found: " + e.getMessage(), e);
+            }
+        }
+
+        return new ConnectionPool(config.getDbUrl(), config.getDbUsername(), config.getDbPassword(),
+                config.getPoolSize(),
+                config.getPoolIdleTimeoutMs(),
+                config.getPoolBorrowTimeoutMs(),
+                config.getPoolValidationTimeoutSec());
+    }
 }
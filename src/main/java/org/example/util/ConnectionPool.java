@@ -0,0 +1,371 @@
+package org.example.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.metrics.MetricsRegistry;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+/**
+ * Небольшой пул физических соединений с базой данных.
+ * Количество соединений ограничено сверху, соединения проверяются при выдаче,
+ * а простаивающие дольше заданного времени закрываются фоновой задачей.
+ * Выданное соединение возвращается в пул вызовом {@link Connection#close()}, а после {@link Connection#abort} закрывается.
+ */
+@Slf4j
+public class ConnectionPool implements DataSource, AutoCloseable {
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int maxSize;
+    private final long idleTimeoutMillis;
+    private final long borrowTimeoutMillis;
+    private final int validationTimeoutSeconds;
+
+    private final Deque<IdleConnection> idle = new ArrayDeque<>();
+    private final ScheduledExecutorService evictor;
+    private int total;
+    private boolean closed;
+
+    /**
+     * Конструктор для {@link ConnectionPool}.
+     *
+     * @param url                      URL для подключения к базе данных.
+     * @param username                 Имя пользователя.
+     * @param password                 Пароль пользователя.
+     * @param maxSize                  Максимальное количество физических соединений.
+     * @param idleTimeoutMillis        Время простоя, после которого соединение закрывается.
+     * @param borrowTimeoutMillis      Максимальное время ожидания свободного соединения.
+     * @param validationTimeoutSeconds Таймаут проверки соединения при выдаче.
+     */
+    public ConnectionPool(String url, String username, String password, int maxSize,
+                          long idleTimeoutMillis, long borrowTimeoutMillis, int validationTimeoutSeconds) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool size must be positive: " + maxSize);
+        }
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "migration-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(idleTimeoutMillis / 2, 1000);
+        evictor.scheduleWithFixedDelay(this::evictIdleConnections, period, period, TimeUnit.MILLISECONDS);
+        log.info("Создан пул соединений: url:{}, максимальный размер:{}", url, maxSize);
+    }
+
+    /**
+     * Выдаёт соединение из пула.
+     * Свободное соединение проверяется перед выдачей; если свободных нет и лимит не достигнут,
+     * открывается новое физическое соединение, иначе вызов ожидает освобождения соединения.
+     *
+     * Время ожидания передаётся получателям метрик.
+     *
+     * @return Соединение, которое возвращается в пул при закрытии.
+     * @throws SQLException если соединение не удалось получить за отведённое время.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        long startedAt = System.nanoTime();
+        Connection connection = borrow();
+        MetricsRegistry.listener().onConnectionAcquired(System.nanoTime() - startedAt);
+        return connection;
+    }
+
+    private Connection borrow() throws SQLException {
+        long deadline = System.currentTimeMillis() + borrowTimeoutMillis;
+
+        while (true) {
+            Connection physical = null;
+            boolean create = false;
+
+            synchronized (this) {
+                if (closed) {
+                    throw new SQLException("Connection pool is closed.");
+                }
+                if (!idle.isEmpty()) {
+                    physical = idle.pollFirst().connection();
+                } else if (total < maxSize) {
+                    total++;
+                    create = true;
+                } else {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        log.error("Не удалось получить соединение из пула за {} мс.", borrowTimeoutMillis);
+                        throw new SQLException("Timed out waiting for a pooled connection after " + borrowTimeoutMillis + " ms.");
+                    }
+                    try {
+                        wait(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a pooled connection.", e);
+                    }
+                    continue;
+                }
+            }
+
+            if (create) {
+                return wrap(openPhysicalConnection());
+            }
+            if (isValid(physical)) {
+                return wrap(physical);
+            }
+            log.warn("Соединение из пула не прошло проверку и будет закрыто.");
+            discard(physical);
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pool credentials are fixed at construction time.");
+    }
+
+    /**
+     * Закрывает пул и все свободные соединения.
+     * Выданные соединения закрываются при возврате.
+     */
+    @Override
+    public void close() {
+        List<Connection> toClose = new ArrayList<>();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            idle.forEach(entry -> toClose.add(entry.connection()));
+            total -= idle.size();
+            idle.clear();
+            notifyAll();
+        }
+        evictor.shutdownNow();
+        toClose.forEach(ConnectionPool::closeQuietly);
+        log.info("Пул соединений закрыт.");
+    }
+
+    private Connection openPhysicalConnection() throws SQLException {
+        try {
+            Connection connection = DriverManager.getConnection(url, username, password);
+            log.info("Соединение с базой данных успешно установлено.");
+            return connection;
+        } catch (SQLException e) {
+            synchronized (this) {
+                total--;
+                notifyAll();
+            }
+            log.error("Ошибка при попытке установить соединение с базой данных: {}", e.getMessage(), e);
+            throw new SQLException("Failed to establish connection to database: " + e.getMessage(), e);
+        }
+    }
+
+    private boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Возвращает физическое соединение в пул, предварительно сбрасывая его состояние.
+     */
+    private void release(Connection physical) {
+        try {
+            if (!physical.isClosed() && !physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            log.warn("Не удалось сбросить состояние соединения, оно будет закрыто: {}", e.getMessage());
+            discard(physical);
+            return;
+        }
+
+        synchronized (this) {
+            if (!closed && isOpen(physical)) {
+                idle.addFirst(new IdleConnection(physical, System.currentTimeMillis()));
+                notifyAll();
+                return;
+            }
+        }
+        discard(physical);
+    }
+
+    private void discard(Connection physical) {
+        closeQuietly(physical);
+        synchronized (this) {
+            total--;
+            notifyAll();
+        }
+    }
+
+    private void evictIdleConnections() {
+        List<Connection> expired = new ArrayList<>();
+        long threshold = System.currentTimeMillis() - idleTimeoutMillis;
+        synchronized (this) {
+            Iterator<IdleConnection> iterator = idle.iterator();
+            while (iterator.hasNext()) {
+                IdleConnection entry = iterator.next();
+                if (entry.releasedAt() < threshold) {
+                    iterator.remove();
+                    expired.add(entry.connection());
+                }
+            }
+            total -= expired.size();
+            if (!expired.isEmpty()) {
+                notifyAll();
+            }
+        }
+        if (!expired.isEmpty()) {
+            log.debug("Закрыто простаивающих соединений: {}", expired.size());
+            expired.forEach(ConnectionPool::closeQuietly);
+        }
+    }
+
+    private Connection wrap(Connection physical) {
+        return (Connection) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new PooledConnectionHandler(physical));
+    }
+
+    private static boolean isOpen(Connection connection) {
+        try {
+            return !connection.isClosed();
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.debug("Ошибка при закрытии соединения: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return DriverManager.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        DriverManager.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        DriverManager.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return DriverManager.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+    private record IdleConnection(Connection connection, long releasedAt) {
+    }
+
+    /**
+     * Обработчик вызовов выданного соединения: перенаправляет вызовы физическому соединению,
+     * {@code close()} возвращает его в пул, а {@code abort()} закрывает физическое соединение, не возвращая его.
+     */
+    private class PooledConnectionHandler implements InvocationHandler {
+        private final Connection physical;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        PooledConnectionHandler(Connection physical) {
+            this.physical = physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (released.compareAndSet(false, true)) {
+                        release(physical);
+                    }
+                    return null;
+                }
+                case "abort" -> {
+                    if (released.compareAndSet(false, true)) {
+                        try {
+                            physical.abort((Executor) args[0]);
+                        } finally {
+                            discard(physical);
+                        }
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return released.get() || physical.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "PooledConnection[" + physical + "]";
+                }
+                default -> {
+                    if (released.get()) {
+                        throw new SQLException("Connection has already been returned to the pool.");
+                    }
+                    try {
+                        return method.invoke(physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }
+            }
+        }
+    }
+}
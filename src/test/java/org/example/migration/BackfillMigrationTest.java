@@ -0,0 +1,49 @@
+package org.example.migration;
+
+import org.example.migration.BackfillMigration.ChunkStatement;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BackfillMigrationTest {
+
+    @Test
+    void replacesChunkBounds() {
+        ChunkStatement statement = ChunkStatement.parse(
+                "UPDATE orders SET total_cents = total * 100 WHERE id BETWEEN :from AND :to AND id <> :from");
+
+        assertEquals("UPDATE orders SET total_cents = total * 100 WHERE id BETWEEN ? AND ? AND id <> ?", statement.sql());
+        assertEquals(List.of("from", "to", "from"), statement.parameters());
+    }
+
+    @Test
+    void keepsTypeCasts() {
+        ChunkStatement statement = ChunkStatement.parse(
+                "UPDATE t SET a = b::to_type, c = d::from WHERE id >= :from::bigint AND id <= (:to)::bigint");
+
+        assertEquals("UPDATE t SET a = b::to_type, c = d::from WHERE id >= ?::bigint AND id <= (?)::bigint", statement.sql());
+        assertEquals(List.of("from", "to"), statement.parameters());
+    }
+
+    @Test
+    void ignoresParametersInsideLiteralsAndComments() {
+        String sql = """
+                UPDATE t SET note = 'from :from to :to', "col:to" = E'it\\'s :to', body = $$ :from $$ -- :to
+                /* :from */ WHERE id BETWEEN :from AND :to""";
+
+        ChunkStatement statement = ChunkStatement.parse(sql);
+
+        assertEquals(sql.replace("BETWEEN :from AND :to", "BETWEEN ? AND ?"), statement.sql());
+        assertEquals(List.of("from", "to"), statement.parameters());
+    }
+
+    @Test
+    void ignoresSimilarNames() {
+        ChunkStatement statement = ChunkStatement.parse("UPDATE t SET a = :fromage, b = :total WHERE id = :to");
+
+        assertEquals("UPDATE t SET a = :fromage, b = :total WHERE id = ?", statement.sql());
+        assertEquals(List.of("to"), statement.parameters());
+    }
+}
@@ -0,0 +1,114 @@
+package org.example.migration;
+
+import org.example.config.ConfigurationLoader;
+import org.example.config.MigrationConfig;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BaselineManagerTest {
+    private static final String BASELINE = "20240102000000_baseline.sql";
+
+    @TempDir
+    Path folder;
+
+    private JdbcDataSource dataSource;
+    private MigrationConfig config;
+
+    @BeforeAll
+    static void configureMetrics() {
+        // Получатели метрик читают общую конфигурацию
+        ConfigurationLoader.configure(config(Path.of(".")));
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + folder.getFileName() + ";DB_CLOSE_DELAY=-1");
+        config = config(folder);
+        MigrationTableManager.ensureMigrationTableExists(dataSource);
+
+        Path baselineFolder = Files.createDirectories(folder.resolve(BaselineManager.BASELINE_FOLDER));
+        Files.writeString(baselineFolder.resolve(BASELINE), "CREATE TABLE users (id INT PRIMARY KEY);\n");
+        Files.writeString(folder.resolve("20240103000000_add_name.sql"), "ALTER TABLE users ADD COLUMN name VARCHAR(50);\n");
+    }
+
+    @Test
+    void recordsCoveredFilesAndBaseline() throws Exception {
+        Files.writeString(folder.resolve("20240101000000_create_users.sql"), "CREATE TABLE users (id INT PRIMARY KEY);\n");
+        Files.writeString(folder.resolve("20240102000000_add_index.sql"), "CREATE INDEX users_id ON users (id);\n");
+
+        assertTrue(bootstrap());
+
+        assertEquals(List.of(BASELINE, "20240101000000_create_users.sql", "20240102000000_add_index.sql"), appliedNames());
+        assertEquals(List.of("20240103000000_add_name.sql"), pendingNames());
+    }
+
+    @Test
+    void doesNotReapplyBaselineAfterCoveredFilesAreRemoved() throws Exception {
+        assertTrue(bootstrap());
+        assertEquals(List.of(BASELINE), appliedNames());
+
+        assertFalse(bootstrap());
+        assertEquals(List.of("20240103000000_add_name.sql"), pendingNames());
+    }
+
+    @Test
+    void skipsDatabaseWithHistory() throws Exception {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE users (id INT PRIMARY KEY)");
+            statement.execute("INSERT INTO applied_migrations (file_name, version) VALUES ('20240101000000_create_users.sql', 20240101000000)");
+        }
+
+        assertFalse(bootstrap());
+        assertEquals(List.of("20240101000000_create_users.sql"), appliedNames());
+    }
+
+    private boolean bootstrap() throws IOException {
+        MigrationFileReader reader = new MigrationFileReader(config);
+        return new BaselineManager(reader, config).bootstrap(dataSource, new MigrationManager(reader, config));
+    }
+
+    private List<String> pendingNames() throws IOException {
+        MigrationManager manager = new MigrationManager(new MigrationFileReader(config), config);
+        return manager.getPendingMigrationFiles(dataSource).stream().map(path -> path.getFileName().toString()).toList();
+    }
+
+    private List<String> appliedNames() throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT file_name FROM applied_migrations ORDER BY id")) {
+            while (resultSet.next()) {
+                names.add(resultSet.getString(1));
+            }
+        }
+        return names;
+    }
+
+    private static MigrationConfig config(Path folder) {
+        return MigrationConfig.builder()
+                .dbUrl("jdbc:h2:mem:baseline")
+                .dbUsername("sa")
+                .dbPassword("")
+                .migrationPath(folder.toString())
+                .manifestPath(folder.resolve(".manifest").toString())
+                .build();
+    }
+}
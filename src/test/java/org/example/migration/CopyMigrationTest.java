@@ -0,0 +1,52 @@
+package org.example.migration;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CopyMigrationTest {
+
+    @Test
+    void skipsHeaderLines() throws IOException {
+        MigrationFile migration = copy("-- @copy: users (id, name)\n-- @options: FORMAT csv\n1,Alice\n2,Bob\n");
+
+        assertEquals("1,Alice\n2,Bob\n", data(migration));
+    }
+
+    @Test
+    void skipsBlankLinesAndCommentsBetweenHeaderLines() throws IOException {
+        MigrationFile migration = copy("-- @copy: t\n\n-- таблица пользователей\n  -- @options: FORMAT csv, HEADER true\nid\n1\n");
+
+        assertEquals(Map.of("copy", "t", "options", "FORMAT csv, HEADER true"), migration.getHeaders());
+        assertEquals("id\n1\n", data(migration));
+    }
+
+    @Test
+    void keepsBlankLinesAndCommentsAfterHeader() throws IOException {
+        MigrationFile migration = copy("-- @copy: t\r\n\r\n-- not a header\r\n1\r\n");
+
+        assertEquals(Map.of("copy", "t"), migration.getHeaders());
+        assertEquals("\r\n-- not a header\r\n1\r\n", data(migration));
+    }
+
+    @Test
+    void handlesHeaderWithoutData() throws IOException {
+        assertEquals("", data(copy("-- @copy: t")));
+        assertEquals("1\n", data(copy("1\n")));
+    }
+
+    private static MigrationFile copy(String content) {
+        return new MigrationFile("20240101000000_users.copy", content);
+    }
+
+    private static String data(MigrationFile migration) throws IOException {
+        try (InputStream input = CopyMigration.openData(migration)) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
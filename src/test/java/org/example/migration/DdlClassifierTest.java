@@ -0,0 +1,83 @@
+package org.example.migration;
+
+import org.example.migration.DdlClassifier.Classification;
+import org.example.migration.DdlClassifier.TableWork;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DdlClassifierTest {
+
+    @Test
+    void classifiesIndexBuilds() {
+        assertClassified("CREATE INDEX orders_user_idx ON public.orders (user_id)",
+                LockMode.SHARE, TableWork.INDEX_BUILD, "public.orders");
+        assertClassified("create unique index concurrently orders_uq on orders using btree (code)",
+                LockMode.SHARE_UPDATE_EXCLUSIVE, TableWork.INDEX_BUILD, "orders");
+        assertClassified("REINDEX TABLE CONCURRENTLY \"Orders\"",
+                LockMode.SHARE_UPDATE_EXCLUSIVE, TableWork.INDEX_BUILD, "\"Orders\"");
+        assertClassified("REINDEX INDEX orders_user_idx", LockMode.SHARE, TableWork.INDEX_BUILD, null);
+    }
+
+    @Test
+    void classifiesRewrites() {
+        assertClassified("VACUUM (FULL, VERBOSE) orders", LockMode.ACCESS_EXCLUSIVE, TableWork.REWRITE, "orders");
+        assertClassified("CLUSTER orders USING orders_pkey", LockMode.ACCESS_EXCLUSIVE, TableWork.REWRITE, "orders");
+        assertClassified("REFRESH MATERIALIZED VIEW CONCURRENTLY stats",
+                LockMode.SHARE_ROW_EXCLUSIVE, TableWork.REWRITE, "stats");
+        assertClassified("ALTER TABLE orders ALTER COLUMN total TYPE numeric(12, 2)",
+                LockMode.ACCESS_EXCLUSIVE, TableWork.REWRITE, "orders");
+        assertClassified("ALTER TABLE orders ADD COLUMN token uuid DEFAULT gen_random_uuid()",
+                LockMode.ACCESS_EXCLUSIVE, TableWork.REWRITE, "orders");
+        assertClassified("ALTER TABLE orders ADD COLUMN seq bigserial",
+                LockMode.ACCESS_EXCLUSIVE, TableWork.REWRITE, "orders");
+        assertClassified("ALTER TABLE orders SET UNLOGGED", LockMode.ACCESS_EXCLUSIVE, TableWork.REWRITE, "orders");
+    }
+
+    @Test
+    void treatsConstantDefaultsAsCatalogOnly() {
+        assertClassified("ALTER TABLE orders ADD COLUMN status text DEFAULT 'new'",
+                LockMode.ACCESS_EXCLUSIVE, TableWork.NONE, "orders");
+        assertClassified("ALTER TABLE orders ADD COLUMN created_at timestamptz DEFAULT now()",
+                LockMode.ACCESS_EXCLUSIVE, TableWork.NONE, "orders");
+    }
+
+    @Test
+    void classifiesConstraints() {
+        assertClassified("ALTER TABLE orders ADD CONSTRAINT orders_user_fk FOREIGN KEY (user_id) REFERENCES users (id)",
+                LockMode.SHARE_ROW_EXCLUSIVE, TableWork.SCAN, "orders");
+        assertClassified("ALTER TABLE orders ADD CONSTRAINT orders_user_fk FOREIGN KEY (user_id) REFERENCES users (id) NOT VALID",
+                LockMode.SHARE_ROW_EXCLUSIVE, TableWork.NONE, "orders");
+        assertClassified("ALTER TABLE orders VALIDATE CONSTRAINT orders_user_fk",
+                LockMode.SHARE_UPDATE_EXCLUSIVE, TableWork.SCAN, "orders");
+        assertClassified("ALTER TABLE orders ADD CHECK (total >= 0)", LockMode.ACCESS_EXCLUSIVE, TableWork.SCAN, "orders");
+        assertClassified("ALTER TABLE orders ADD CONSTRAINT total_positive CHECK (total >= 0) NOT VALID",
+                LockMode.ACCESS_EXCLUSIVE, TableWork.NONE, "orders");
+        assertClassified("ALTER TABLE orders ALTER COLUMN total SET NOT NULL", LockMode.ACCESS_EXCLUSIVE, TableWork.SCAN, "orders");
+        assertClassified("ALTER TABLE orders ADD PRIMARY KEY (id)", LockMode.ACCESS_EXCLUSIVE, TableWork.INDEX_BUILD, "orders");
+        assertClassified("ALTER TABLE orders ADD CONSTRAINT orders_pkey PRIMARY KEY USING INDEX orders_id_idx",
+                LockMode.ACCESS_EXCLUSIVE, TableWork.NONE, "orders");
+    }
+
+    @Test
+    void classifiesDropsAndTruncate() {
+        assertClassified("DROP TABLE IF EXISTS audit.log", LockMode.ACCESS_EXCLUSIVE, TableWork.NONE, "audit.log");
+        assertClassified("TRUNCATE TABLE ONLY orders", LockMode.ACCESS_EXCLUSIVE, TableWork.NONE, "orders");
+        assertClassified("DROP INDEX CONCURRENTLY orders_user_idx", LockMode.SHARE_UPDATE_EXCLUSIVE, TableWork.NONE, null);
+    }
+
+    @Test
+    void treatsNewObjectsAsUnlocked() {
+        assertClassified("CREATE TABLE users (id bigint PRIMARY KEY)", LockMode.NONE, TableWork.NONE, null);
+        assertClassified("COMMENT ON TABLE users IS 'people'", LockMode.NONE, TableWork.NONE, null);
+    }
+
+    @Test
+    void assumesWorstLockForUnknownStatements() {
+        assertClassified("LOCK TABLE orders", LockMode.ACCESS_EXCLUSIVE, TableWork.NONE, null);
+    }
+
+    private static void assertClassified(String sql, LockMode lockMode, TableWork work, String table) {
+        assertEquals(new Classification(lockMode, work, table), DdlClassifier.classify(sql), sql);
+    }
+}
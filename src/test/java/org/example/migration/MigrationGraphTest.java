@@ -0,0 +1,103 @@
+package org.example.migration;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MigrationGraphTest {
+
+    @Test
+    void ordersMigrationsWithinGroupOnly() {
+        MigrationGraph graph = MigrationGraph.build(List.of(
+                migration("20240101000000_a1.sql", "-- @group: a"),
+                migration("20240102000000_b1.sql", "-- @group: b"),
+                migration("20240103000000_a2.sql", "-- @group: a")), Set.of());
+
+        assertEquals(Map.of(
+                "20240101000000_a1.sql", List.of("20240103000000_a2.sql"),
+                "20240102000000_b1.sql", List.of(),
+                "20240103000000_a2.sql", List.of()), dependents(graph));
+        assertEquals(2, graph.countGroups());
+    }
+
+    @Test
+    void treatsUngroupedMigrationAsBarrier() {
+        MigrationGraph graph = MigrationGraph.build(List.of(
+                migration("20240101000000_a1.sql", "-- @group: a"),
+                migration("20240102000000_b1.sql", "-- @group: b"),
+                migration("20240103000000_shared.sql", ""),
+                migration("20240104000000_next.sql", ""),
+                migration("20240105000000_a2.sql", "-- @group: a")), Set.of());
+
+        assertEquals(Map.of(
+                "20240101000000_a1.sql", List.of("20240103000000_shared.sql"),
+                "20240102000000_b1.sql", List.of("20240103000000_shared.sql"),
+                "20240103000000_shared.sql", List.of("20240104000000_next.sql"),
+                "20240104000000_next.sql", List.of("20240105000000_a2.sql"),
+                "20240105000000_a2.sql", List.of()), dependents(graph));
+    }
+
+    @Test
+    void addsExplicitDependencies() {
+        MigrationGraph graph = MigrationGraph.build(List.of(
+                migration("20240101000000_a1.sql", "-- @group: a"),
+                migration("20240102000000_b1.sql", "-- @group: b\n-- @depends: 20240101000000_a1.sql")), Set.of());
+
+        assertEquals(List.of("20240102000000_b1.sql"), dependents(graph).get("20240101000000_a1.sql"));
+    }
+
+    @Test
+    void rejectsCycles() {
+        List<MigrationFile> migrations = List.of(
+                migration("20240101000000_a1.sql", "-- @group: a\n-- @depends: 20240102000000_a2.sql"),
+                migration("20240102000000_a2.sql", "-- @group: a"));
+
+        IllegalStateException error = assertThrows(IllegalStateException.class, () -> MigrationGraph.build(migrations, Set.of()));
+        assertTrue(error.getMessage().contains("cycle"), error.getMessage());
+    }
+
+    @Test
+    void rejectsSelfDependency() {
+        List<MigrationFile> migrations = List.of(migration("20240101000000_a1.sql", "-- @depends: 20240101000000_a1.sql"));
+
+        assertThrows(IllegalStateException.class, () -> MigrationGraph.build(migrations, Set.of()));
+    }
+
+    @Test
+    void rejectsUnknownDependencyUnlessApplied() {
+        List<MigrationFile> migrations = List.of(
+                migration("20240102000000_b1.sql", "-- @group: b\n-- @depends: 20240101000000_a1.sql"));
+
+        IllegalStateException error = assertThrows(IllegalStateException.class, () -> MigrationGraph.build(migrations, Set.of()));
+        assertTrue(error.getMessage().contains("neither pending nor applied"), error.getMessage());
+
+        MigrationGraph graph = MigrationGraph.build(migrations, Set.of("20240101000000_a1.sql"));
+        assertEquals(0, graph.getNodes().get(0).getDependencyCount());
+    }
+
+    @Test
+    void listsExternalDependencies() {
+        List<MigrationFile> migrations = List.of(
+                migration("20240102000000_b1.sql", "-- @depends: 20240101000000_a1.sql, 20240103000000_c1.sql"),
+                migration("20240103000000_c1.sql", "-- @depends: 20240101000000_a1.sql"));
+
+        assertEquals(Set.of("20240101000000_a1.sql"), MigrationGraph.externalDependencies(migrations));
+    }
+
+    private static MigrationFile migration(String fileName, String headers) {
+        return new MigrationFile(fileName, headers + "\nSELECT 1;\n");
+    }
+
+    private static Map<String, List<String>> dependents(MigrationGraph graph) {
+        return graph.getNodes().stream().collect(Collectors.toMap(
+                node -> node.getMigration().getFileName(),
+                node -> node.getDependents().stream().map(dependent -> dependent.getMigration().getFileName()).toList()));
+    }
+}
@@ -0,0 +1,92 @@
+package org.example.migration;
+
+import org.example.config.MigrationConfig;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MigrationManagerTest {
+
+    @TempDir
+    Path folder;
+
+    private JdbcDataSource dataSource;
+    private MigrationManager manager;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + folder.getFileName() + ";DB_CLOSE_DELAY=-1");
+        MigrationTableManager.ensureMigrationTableExists(dataSource);
+        MigrationConfig config = MigrationConfig.builder()
+                .dbUrl("jdbc:h2:mem:manager")
+                .dbUsername("sa")
+                .dbPassword("")
+                .migrationPath(folder.toString())
+                .manifestEnabled(false)
+                .build();
+        manager = new MigrationManager(new MigrationFileReader(config), config);
+    }
+
+    @Test
+    void returnsFilesNewerThanHistory() throws Exception {
+        files("20240101000000_a.sql", "20240102000000_b.sql", "20240103000000_c.sql");
+        applied("20240101000000_a.sql", "20240102000000_b.sql");
+
+        assertEquals(List.of("20240103000000_c.sql"), pending());
+    }
+
+    @Test
+    void findsFilesAddedBelowHistory() throws Exception {
+        files("20240101000000_a.sql", "20240102000000_b.sql", "20240103000000_c.sql");
+        applied("20240101000000_a.sql", "20240103000000_c.sql");
+
+        assertEquals(List.of("20240102000000_b.sql"), pending());
+    }
+
+    @Test
+    void findsGapWhenAppliedFileWasRemoved() throws Exception {
+        files("20240102000000_b.sql", "20240103000000_c.sql", "20240104000000_d.sql");
+        applied("20240101000000_a.sql", "20240103000000_c.sql", "20240104000000_d.sql");
+
+        assertEquals(List.of("20240102000000_b.sql"), pending());
+    }
+
+    @Test
+    void ignoresBaselineRecord() throws Exception {
+        files("20240101000000_a.sql", "20240102000000_b.sql");
+        applied("20240101000000_baseline.sql", "20240101000000_a.sql");
+
+        assertEquals(List.of("20240102000000_b.sql"), pending());
+    }
+
+    private void files(String... names) throws IOException {
+        for (String name : names) {
+            Files.writeString(folder.resolve(name), "SELECT 1;\n");
+        }
+    }
+
+    private void applied(String... names) throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            for (String name : names) {
+                statement.execute("INSERT INTO applied_migrations (file_name, version) VALUES ('" + name + "', "
+                        + MigrationManager.extractTimestamp(name) + ")");
+            }
+        }
+    }
+
+    private List<String> pending() throws IOException {
+        return manager.getPendingMigrationFiles(dataSource).stream().map(path -> path.getFileName().toString()).toList();
+    }
+}
@@ -0,0 +1,97 @@
+package org.example.migration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MigrationManifestTest {
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void acceptsUnchangedFileAfterReload() throws IOException {
+        Path file = migration("CREATE TABLE a (id INT);", 1_000);
+        MigrationManifest manifest = MigrationManifest.load(manifestPath());
+        assertTrue(manifest.verify(file));
+        manifest.save();
+
+        assertTrue(MigrationManifest.load(manifestPath()).verify(file));
+    }
+
+    @Test
+    void detectsChangedContent() throws IOException {
+        Path file = migration("CREATE TABLE a (id INT);", 1_000);
+        saveManifestWith(file);
+
+        // Тот же размер, другое содержимое и время изменения
+        migration("CREATE TABLE b (id INT);", 2_000);
+
+        assertFalse(MigrationManifest.load(manifestPath()).verify(file));
+    }
+
+    @Test
+    void acceptsTouchedFileWithSameContent() throws IOException {
+        Path file = migration("CREATE TABLE a (id INT);", 1_000);
+        saveManifestWith(file);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(2_000));
+
+        MigrationManifest manifest = MigrationManifest.load(manifestPath());
+        assertTrue(manifest.verify(file));
+        manifest.save();
+
+        assertTrue(MigrationManifest.load(manifestPath()).verify(file));
+    }
+
+    @Test
+    void recordReplacesPreviousChecksum() throws IOException {
+        Path file = migration("CREATE TABLE a (id INT);", 1_000);
+        saveManifestWith(file);
+        migration("CREATE TABLE a (id BIGINT);", 2_000);
+
+        MigrationManifest manifest = MigrationManifest.load(manifestPath());
+        manifest.record(file);
+        manifest.save();
+
+        assertTrue(MigrationManifest.load(manifestPath()).verify(file));
+    }
+
+    @Test
+    void skipsCorruptedEntries() throws IOException {
+        Path file = migration("CREATE TABLE a (id INT);", 1_000);
+        Files.writeString(manifestPath(), "broken line\n" + file.getFileName() + "\t1\tx\tzz\n");
+
+        assertTrue(MigrationManifest.load(manifestPath()).verify(file));
+    }
+
+    @Test
+    void savesOnlyWhenChanged() throws IOException {
+        MigrationManifest.load(manifestPath()).save();
+
+        assertFalse(Files.exists(manifestPath()));
+    }
+
+    private Path migration(String content, long modifiedMillis) throws IOException {
+        Path file = folder.resolve("20240101000000_create.sql");
+        Files.writeString(file, content);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modifiedMillis));
+        return file;
+    }
+
+    private void saveManifestWith(Path file) throws IOException {
+        MigrationManifest manifest = MigrationManifest.load(manifestPath());
+        manifest.verify(file);
+        manifest.save();
+    }
+
+    private Path manifestPath() {
+        return folder.resolve("manifest");
+    }
+}
@@ -0,0 +1,190 @@
+package org.example.migration;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SchemaIntrospectorTest {
+
+    @Test
+    void emitsObjectKindsInDependencyOrder() throws Exception {
+        FakeCatalog catalog = new FakeCatalog()
+                .rows("FROM pg_extension", row("pgcrypto", "public"))
+                .rows("FROM pg_namespace n WHERE", row("app"))
+                .rows("pg_enum", row("public.mood", "'sad', 'happy'"))
+                .rows("t.typtype = 'd'", row("public.email", "text", true, null, "CHECK ((VALUE ~ '@'::text))"))
+                .rows("FROM pg_sequence", row("public.counter_seq", "bigint", 1L, 1L, 1L, 9999L, 1L, false, "public.orders.counter"))
+                .rows("pg_get_functiondef", row("CREATE OR REPLACE FUNCTION public.touch()\n RETURNS trigger\n"))
+                .rows("pg_get_partkeydef", row(1L, "public.orders", "r", false, null, null, null))
+                .columns(1L, row("id", "bigint", true, null, "a", "", null))
+                .rows("k.contype = 'f'",
+                        row("public.orders", "orders_pkey", "PRIMARY KEY (id)", false),
+                        row("public.orders", "orders_user_fkey", "FOREIGN KEY (user_id) REFERENCES public.users(id)", true))
+                .rows("pg_get_viewdef", row("public.recent", false, " SELECT orders.id\n   FROM public.orders;"))
+                .rows("pg_get_indexdef", row("CREATE INDEX orders_id_idx ON public.orders USING btree (id)"))
+                .rows("pg_get_triggerdef", row("CREATE TRIGGER orders_touch BEFORE UPDATE ON public.orders"));
+
+        List<String> statements = SchemaIntrospector.introspect(catalog.connection());
+
+        assertEquals(List.of(
+                "SET LOCAL check_function_bodies = false",
+                "CREATE SCHEMA IF NOT EXISTS app",
+                "CREATE EXTENSION IF NOT EXISTS pgcrypto WITH SCHEMA public",
+                "CREATE TYPE public.mood AS ENUM ('sad', 'happy')",
+                "CREATE DOMAIN public.email AS text NOT NULL CHECK ((VALUE ~ '@'::text))",
+                "CREATE SEQUENCE public.counter_seq AS bigint START WITH 1 INCREMENT BY 1 MINVALUE 1 MAXVALUE 9999 CACHE 1 NO CYCLE",
+                "CREATE OR REPLACE FUNCTION public.touch()\n RETURNS trigger",
+                "CREATE TABLE public.orders (\n    id bigint GENERATED ALWAYS AS IDENTITY NOT NULL\n)",
+                "ALTER TABLE public.orders ADD CONSTRAINT orders_pkey PRIMARY KEY (id)",
+                "ALTER SEQUENCE public.counter_seq OWNED BY public.orders.counter",
+                "CREATE VIEW public.recent AS\nSELECT orders.id\n   FROM public.orders",
+                "CREATE INDEX orders_id_idx ON public.orders USING btree (id)",
+                "ALTER TABLE public.orders ADD CONSTRAINT orders_user_fkey FOREIGN KEY (user_id) REFERENCES public.users(id)",
+                "CREATE TRIGGER orders_touch BEFORE UPDATE ON public.orders"), statements);
+        assertEquals(0, catalog.openStatements);
+    }
+
+    @Test
+    void createsPartitionsOfTheirParents() throws Exception {
+        FakeCatalog catalog = new FakeCatalog()
+                .rows("pg_get_partkeydef",
+                        row(1L, "public.events", "p", false, "RANGE (created)", null, null),
+                        row(2L, "public.events_2024", "r", true, null, "public.events",
+                                "FOR VALUES FROM ('2024-01-01') TO ('2025-01-01')"))
+                .columns(1L,
+                        row("id", "bigint", true, null, "", "", null),
+                        row("created", "date", true, "CURRENT_DATE", "", "", null),
+                        row("day", "integer", false, "EXTRACT(day FROM created)", "", "s", null),
+                        row("note", "text", false, null, "", "", "public.\"C\""));
+
+        List<String> statements = SchemaIntrospector.introspect(catalog.connection());
+
+        assertEquals(List.of(
+                "SET LOCAL check_function_bodies = false",
+                "CREATE TABLE public.events (\n    id bigint NOT NULL,\n    created date DEFAULT CURRENT_DATE NOT NULL,\n"
+                        + "    day integer GENERATED ALWAYS AS (EXTRACT(day FROM created)) STORED,\n"
+                        + "    note text COLLATE public.\"C\"\n) PARTITION BY RANGE (created)",
+                "CREATE TABLE public.events_2024 PARTITION OF public.events FOR VALUES FROM ('2024-01-01') TO ('2025-01-01')"),
+                statements);
+    }
+
+    @Test
+    void keepsForeignKeysAfterIndexesOfAllTables() throws Exception {
+        FakeCatalog catalog = new FakeCatalog()
+                .rows("pg_get_partkeydef",
+                        row(1L, "public.orders", "r", false, null, null, null),
+                        row(2L, "public.users", "r", false, null, null, null))
+                .columns(1L, row("user_id", "bigint", false, null, "", "", null))
+                .columns(2L, row("id", "bigint", true, null, "d", "", null))
+                .rows("k.contype = 'f'",
+                        row("public.orders", "orders_user_fkey", "FOREIGN KEY (user_id) REFERENCES public.users(id)", true),
+                        row("public.users", "users_pkey", "PRIMARY KEY (id)", false))
+                .rows("pg_get_viewdef", row("public.totals", true, "SELECT count(*) AS count FROM public.orders;"))
+                .rows("pg_get_indexdef", row("CREATE UNIQUE INDEX totals_idx ON public.totals USING btree (count)"));
+
+        List<String> statements = SchemaIntrospector.introspect(catalog.connection());
+
+        assertEquals(List.of(
+                "SET LOCAL check_function_bodies = false",
+                "CREATE TABLE public.orders (\n    user_id bigint\n)",
+                "CREATE TABLE public.users (\n    id bigint GENERATED BY DEFAULT AS IDENTITY NOT NULL\n)",
+                "ALTER TABLE public.users ADD CONSTRAINT users_pkey PRIMARY KEY (id)",
+                "CREATE MATERIALIZED VIEW public.totals AS\nSELECT count(*) AS count FROM public.orders",
+                "CREATE UNIQUE INDEX totals_idx ON public.totals USING btree (count)",
+                "ALTER TABLE public.orders ADD CONSTRAINT orders_user_fkey FOREIGN KEY (user_id) REFERENCES public.users(id)"),
+                statements);
+    }
+
+    private static Object[] row(Object... values) {
+        return values;
+    }
+
+    /**
+     * Системный каталог, в котором результат запроса определяется характерным фрагментом его текста.
+     * Столбцы таблиц возвращаются по идентификатору таблицы, переданному в запрос столбцов.
+     */
+    private static final class FakeCatalog {
+        private static final String COLUMNS_MARKER = "a.attrelid = ?";
+
+        private final Map<String, List<Object[]>> results = new LinkedHashMap<>();
+        private final Map<Long, List<Object[]>> columns = new LinkedHashMap<>();
+        private int openStatements;
+
+        FakeCatalog rows(String marker, Object[]... rows) {
+            results.put(marker, List.of(rows));
+            return this;
+        }
+
+        FakeCatalog columns(long tableId, Object[]... rows) {
+            columns.put(tableId, List.of(rows));
+            return this;
+        }
+
+        Connection connection() {
+            return proxy(Connection.class, (method, args) -> switch (method) {
+                case "prepareStatement" -> statement((String) args[0]);
+                case "close" -> null;
+                default -> throw new UnsupportedOperationException(method);
+            });
+        }
+
+        private PreparedStatement statement(String sql) {
+            openStatements++;
+            long[] tableId = new long[1];
+            return proxy(PreparedStatement.class, (method, args) -> switch (method) {
+                case "setLong" -> {
+                    tableId[0] = (Long) args[1];
+                    yield null;
+                }
+                case "executeQuery" -> resultSet(sql.contains(COLUMNS_MARKER)
+                        ? columns.getOrDefault(tableId[0], List.of())
+                        : results.entrySet().stream()
+                                .filter(entry -> sql.contains(entry.getKey()))
+                                .map(Map.Entry::getValue)
+                                .findFirst()
+                                .orElse(List.of()));
+                case "close" -> {
+                    openStatements--;
+                    yield null;
+                }
+                default -> throw new UnsupportedOperationException(method);
+            });
+        }
+
+        private static ResultSet resultSet(List<Object[]> rows) {
+            Iterator<Object[]> iterator = new ArrayList<>(rows).iterator();
+            Object[][] current = new Object[1][];
+            return proxy(ResultSet.class, (method, args) -> switch (method) {
+                case "next" -> {
+                    current[0] = iterator.hasNext() ? iterator.next() : null;
+                    yield current[0] != null;
+                }
+                case "getString" -> (String) current[0][(Integer) args[0] - 1];
+                case "getBoolean" -> Boolean.TRUE.equals(current[0][(Integer) args[0] - 1]);
+                case "getLong" -> ((Number) current[0][(Integer) args[0] - 1]).longValue();
+                case "close" -> null;
+                default -> throw new UnsupportedOperationException(method);
+            });
+        }
+
+        private static <T> T proxy(Class<T> type, Handler handler) {
+            return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                    (proxy, method, args) -> handler.handle(method.getName(), args)));
+        }
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object handle(String method, Object[] args) throws Exception;
+    }
+}
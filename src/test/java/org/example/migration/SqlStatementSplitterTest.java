@@ -0,0 +1,109 @@
+package org.example.migration;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SqlStatementSplitterTest {
+
+    @Test
+    void splitsOnSemicolons() throws IOException {
+        List<SqlStatement> statements = split("CREATE TABLE a (id INT);\nINSERT INTO a VALUES (1);\n  ;\nDROP TABLE a");
+
+        assertEquals(List.of("CREATE TABLE a (id INT)", "INSERT INTO a VALUES (1)", "DROP TABLE a"), texts(statements));
+        assertEquals(List.of("CREATE", "INSERT", "DROP"), statements.stream().map(SqlStatement::getKeyword).toList());
+    }
+
+    @Test
+    void keepsSemicolonsInsideQuotes() throws IOException {
+        List<SqlStatement> statements = split("INSERT INTO a VALUES ('x;y', 'it''s;');\nSELECT \"a;b\" FROM a;");
+
+        assertEquals(List.of("INSERT INTO a VALUES ('x;y', 'it''s;')", "SELECT \"a;b\" FROM a"), texts(statements));
+    }
+
+    @Test
+    void keepsSemicolonsInsideEscapeStrings() throws IOException {
+        List<SqlStatement> statements = split("INSERT INTO a VALUES (E'it\\'s; fine', e'\\\\');\nSELECT 1;");
+
+        assertEquals(List.of("INSERT INTO a VALUES (E'it\\'s; fine', e'\\\\')", "SELECT 1"), texts(statements));
+    }
+
+    @Test
+    void keepsSemicolonsInsideDollarQuotes() throws IOException {
+        String function = """
+                CREATE FUNCTION f() RETURNS int AS $body$
+                BEGIN
+                    PERFORM 1; RETURN $$;$$::text;
+                END;
+                $body$ LANGUAGE plpgsql""";
+        List<SqlStatement> statements = split(function + ";\nDO $$ BEGIN NULL; END $$;\nSELECT $1;");
+
+        assertEquals(List.of(function, "DO $$ BEGIN NULL; END $$", "SELECT $1"), texts(statements));
+    }
+
+    @Test
+    void skipsNestedBlockComments() throws IOException {
+        List<SqlStatement> statements = split("/* outer; /* inner; */ still comment; */ SELECT 1; -- tail;\n/* only comment; */");
+
+        assertEquals(List.of("/* outer; /* inner; */ still comment; */ SELECT 1"), texts(statements));
+        assertEquals("SELECT", statements.get(0).getKeyword());
+    }
+
+    @Test
+    void keepsSqlStandardRoutineBodies() throws IOException {
+        String function = """
+                CREATE OR REPLACE FUNCTION grade(score int) RETURNS text
+                LANGUAGE sql
+                BEGIN ATOMIC
+                    INSERT INTO log VALUES (score);
+                    SELECT CASE WHEN score > 50 THEN 'pass' ELSE 'fail' END;
+                END""";
+        String procedure = """
+                CREATE PROCEDURE clean()
+                BEGIN ATOMIC
+                    DELETE FROM log;
+                END""";
+        List<SqlStatement> statements = split(function + ";\n" + procedure + ";\nBEGIN;\nSELECT 1;\nEND;");
+
+        assertEquals(List.of(function, procedure, "BEGIN", "SELECT 1", "END"), texts(statements));
+    }
+
+    @Test
+    void classifiesBatchableStatements() throws IOException {
+        List<SqlStatement> statements = split("""
+                INSERT INTO a VALUES (1);
+                update a SET id = 2;
+                DELETE FROM a RETURNING id;
+                SELECT * FROM a;
+                CREATE INDEX i ON a (id);""");
+
+        assertTrue(statements.get(0).isBatchable());
+        assertTrue(statements.get(1).isBatchable());
+        assertTrue(statements.get(2).isReturningRows());
+        assertFalse(statements.get(2).isBatchable());
+        assertFalse(statements.get(3).isBatchable());
+        assertFalse(statements.get(4).isBatchable());
+    }
+
+    private static List<SqlStatement> split(String sql) throws IOException {
+        List<SqlStatement> statements = new ArrayList<>();
+        try (SqlStatementSplitter splitter = new SqlStatementSplitter(new StringReader(sql))) {
+            SqlStatement statement;
+            while ((statement = splitter.next()) != null) {
+                statements.add(statement);
+            }
+        }
+        return statements;
+    }
+
+    private static List<String> texts(List<SqlStatement> statements) {
+        return statements.stream().map(SqlStatement::getSql).toList();
+    }
+}
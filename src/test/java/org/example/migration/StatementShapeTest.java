@@ -0,0 +1,177 @@
+package org.example.migration;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class StatementShapeTest {
+
+    @Test
+    void replacesLiteralsWithParameters() {
+        StatementShape shape = StatementShape.parse("INSERT INTO users (id, name) VALUES (1, 'Alice')");
+
+        assertEquals("INSERT INTO users (id, name) VALUES (?, ?)", shape.sql());
+        assertEquals(List.of(1, "Alice"), shape.parameters());
+    }
+
+    @Test
+    void statementsDifferingOnlyInLiteralsShareShape() {
+        StatementShape first = StatementShape.parse("UPDATE users SET name = 'a' WHERE id = 1");
+        StatementShape second = StatementShape.parse("UPDATE users SET name = 'b' WHERE id = 2");
+
+        assertEquals(first.sql(), second.sql());
+    }
+
+    @Test
+    void unescapesDoubledQuotes() {
+        StatementShape shape = StatementShape.parse("INSERT INTO t VALUES ('it''s')");
+
+        assertEquals("INSERT INTO t VALUES (?)", shape.sql());
+        assertEquals(List.of("it's"), shape.parameters());
+    }
+
+    @Test
+    void keepsPrefixedStrings() {
+        String sql = "INSERT INTO t VALUES (E'a\\'b', B'101', X'1F', U&'d\\0061t', N'x')";
+
+        StatementShape shape = StatementShape.parse(sql);
+
+        assertEquals(sql, shape.sql());
+        assertEquals(List.of(), shape.parameters());
+    }
+
+    @Test
+    void keepsTypedLiterals() {
+        String sql = "INSERT INTO t VALUES (DATE '2024-01-01', 2)";
+
+        StatementShape shape = StatementShape.parse(sql);
+
+        assertEquals("INSERT INTO t VALUES (DATE '2024-01-01', ?)", shape.sql());
+        assertEquals(List.of(2), shape.parameters());
+    }
+
+    @Test
+    void keepsStringsWithBackslashes() {
+        String sql = "INSERT INTO t VALUES ('C:\\temp')";
+
+        assertEquals(sql, StatementShape.parse(sql).sql());
+    }
+
+    @Test
+    void keepsAdjacentStringLiterals() {
+        String sql = "INSERT INTO t VALUES ('foo'\n'bar')";
+
+        StatementShape shape = StatementShape.parse(sql);
+
+        assertEquals(sql, shape.sql());
+        assertEquals(List.of(), shape.parameters());
+    }
+
+    @Test
+    void keepsContinuationOfPrefixedStrings() {
+        String sql = "INSERT INTO t VALUES (E'a\\n'\n'b', 1)";
+
+        StatementShape shape = StatementShape.parse(sql);
+
+        assertEquals("INSERT INTO t VALUES (E'a\\n'\n'b', ?)", shape.sql());
+        assertEquals(List.of(1), shape.parameters());
+    }
+
+    @Test
+    void keepsPositionsAfterBy() {
+        StatementShape shape = StatementShape.parse(
+                "INSERT INTO t SELECT a, count(*) FROM s WHERE b = 5 GROUP BY 1 ORDER BY 2");
+
+        assertEquals("INSERT INTO t SELECT a, count(*) FROM s WHERE b = ? GROUP BY 1 ORDER BY 2", shape.sql());
+        assertEquals(List.of(5), shape.parameters());
+    }
+
+    @Test
+    void keepsEveryPositionInByLists() {
+        StatementShape shape = StatementShape.parse(
+                "INSERT INTO t SELECT a, b, c FROM s GROUP BY 1, 2, 3 ORDER BY a, 2 DESC, 3 ASC NULLS LAST, 1 LIMIT 10");
+
+        assertEquals("INSERT INTO t SELECT a, b, c FROM s GROUP BY 1, 2, 3 ORDER BY a, 2 DESC, 3 ASC NULLS LAST, 1 LIMIT ?",
+                shape.sql());
+        assertEquals(List.of(10), shape.parameters());
+    }
+
+    @Test
+    void endsByListWithClauseOrParenthesis() {
+        StatementShape shape = StatementShape.parse(
+                "INSERT INTO t SELECT a FROM (SELECT a FROM s ORDER BY 1) x WHERE a IN (1, 2) ORDER BY 1 OFFSET 5");
+
+        assertEquals("INSERT INTO t SELECT a FROM (SELECT a FROM s ORDER BY 1) x WHERE a IN (?, ?) ORDER BY 1 OFFSET ?",
+                shape.sql());
+        assertEquals(List.of(1, 2, 5), shape.parameters());
+    }
+
+    @Test
+    void keepsFunctionArguments() {
+        StatementShape shape = StatementShape.parse("UPDATE t SET a = round(b, 2), c = 3 WHERE d = substr('abc', 1)");
+
+        assertEquals("UPDATE t SET a = round(b, 2), c = ? WHERE d = substr('abc', 1)", shape.sql());
+        assertEquals(List.of(3), shape.parameters());
+    }
+
+    @Test
+    void replacesLiteralsInExpressionParentheses() {
+        StatementShape shape = StatementShape.parse("DELETE FROM t WHERE id IN (1, 2) AND (a = 'x')");
+
+        assertEquals("DELETE FROM t WHERE id IN (?, ?) AND (a = ?)", shape.sql());
+        assertEquals(List.of(1, 2, "x"), shape.parameters());
+    }
+
+    @Test
+    void keepsTypeModifiers() {
+        StatementShape shape = StatementShape.parse("UPDATE t SET a = CAST(b AS varchar(20)), c = b::numeric(10, 2)");
+
+        assertEquals("UPDATE t SET a = CAST(b AS varchar(20)), c = b::numeric(10, 2)", shape.sql());
+        assertEquals(List.of(), shape.parameters());
+    }
+
+    @Test
+    void keepsDigitsInIdentifiersAndQuotedIdentifiers() {
+        StatementShape shape = StatementShape.parse("INSERT INTO t2 (\"col 1\", c3) VALUES (1, 2)");
+
+        assertEquals("INSERT INTO t2 (\"col 1\", c3) VALUES (?, ?)", shape.sql());
+        assertEquals(List.of(1, 2), shape.parameters());
+    }
+
+    @Test
+    void keepsCommentsAndDollarQuotedStrings() {
+        String sql = "INSERT INTO t VALUES ($$it's 1$$) -- 2\n/* 3 /* 4 */ */";
+
+        StatementShape shape = StatementShape.parse(sql);
+
+        assertEquals(sql, shape.sql());
+        assertEquals(List.of(), shape.parameters());
+    }
+
+    @Test
+    void rejectsStatementsWithParameters() {
+        assertNull(StatementShape.parse("INSERT INTO t VALUES (?)"));
+        assertNull(StatementShape.parse("INSERT INTO t VALUES ($1)"));
+    }
+
+    @Test
+    void acceptsPlaceholdersInsideLiteralsAndComments() {
+        StatementShape shape = StatementShape.parse("INSERT INTO t VALUES ('?', $tag$$1$tag$) -- ?");
+
+        assertEquals("INSERT INTO t VALUES (?, $tag$$1$tag$) -- ?", shape.sql());
+        assertEquals(List.of("?"), shape.parameters());
+    }
+
+    @Test
+    void typesNumbersLikePostgres() {
+        StatementShape shape = StatementShape.parse(
+                "INSERT INTO t VALUES (2147483647, 2147483648, 9223372036854775808, 1.50, .5, 1e3)");
+
+        assertEquals(List.of(2147483647, 2147483648L, new BigDecimal("9223372036854775808"),
+                new BigDecimal("1.50"), new BigDecimal(".5"), new BigDecimal("1e3")), shape.parameters());
+    }
+}